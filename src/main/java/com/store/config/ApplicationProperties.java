@@ -1,6 +1,14 @@
 package com.store.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Properties specific to Store.
@@ -11,4 +19,440 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+    private final Thumbnail thumbnail = new Thumbnail();
+
+    private final TicketOutbox ticketOutbox = new TicketOutbox();
+
+    private final CatalogSnapshot catalogSnapshot = new CatalogSnapshot();
+
+    private final Cache cache = new Cache();
+
+    private final ExistenceIndex existenceIndex = new ExistenceIndex();
+
+    public Thumbnail getThumbnail() {
+        return thumbnail;
+    }
+
+    public TicketOutbox getTicketOutbox() {
+        return ticketOutbox;
+    }
+
+    public CatalogSnapshot getCatalogSnapshot() {
+        return catalogSnapshot;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public ExistenceIndex getExistenceIndex() {
+        return existenceIndex;
+    }
+
+    public static class Thumbnail {
+
+        private List<Integer> sizes = new ArrayList<>(Arrays.asList(64, 256));
+
+        public List<Integer> getSizes() {
+            return sizes;
+        }
+
+        public void setSizes(List<Integer> sizes) {
+            this.sizes = sizes;
+        }
+    }
+
+    public static class TicketOutbox {
+
+        private long pollInterval = 5000;
+
+        private int batchSize = 50;
+
+        private int maxAttempts = 10;
+
+        private Duration initialBackoff = Duration.ofSeconds(30);
+
+        private Duration maxBackoff = Duration.ofHours(1);
+
+        private Duration lease = Duration.ofMinutes(5);
+
+        public long getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(long pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public Duration getLease() {
+            return lease;
+        }
+
+        public void setLease(Duration lease) {
+            this.lease = lease;
+        }
+    }
+
+    public static class CatalogSnapshot {
+
+        private boolean enabled = false;
+
+        private long rebuildInterval = 600000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getRebuildInterval() {
+            return rebuildInterval;
+        }
+
+        public void setRebuildInterval(long rebuildInterval) {
+            this.rebuildInterval = rebuildInterval;
+        }
+    }
+
+    public static class ExistenceIndex {
+
+        private boolean enabled = false;
+
+        private long rebuildInterval = 3600000;
+
+        private double falsePositiveRate = 0.01;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getRebuildInterval() {
+            return rebuildInterval;
+        }
+
+        public void setRebuildInterval(long rebuildInterval) {
+            this.rebuildInterval = rebuildInterval;
+        }
+
+        /**
+         * The rate of the keys reported as possibly existing while they do not, once the index holds twice as many
+         * keys as when it was built.
+         *
+         * @return the rate, between 0 and 1.
+         */
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            this.falsePositiveRate = falsePositiveRate;
+        }
+    }
+
+    public static class Cache {
+
+        /**
+         * The settings of the cache regions, by name, overriding the {@code jhipster.cache.ehcache} defaults.
+         */
+        private Map<String, Region> regions = new LinkedHashMap<>();
+
+        private final Warmup warmup = new Warmup();
+
+        private final Invalidation invalidation = new Invalidation();
+
+        private final Coalescing coalescing = new Coalescing();
+
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+
+        public void setRegions(Map<String, Region> regions) {
+            this.regions = regions;
+        }
+
+        public Warmup getWarmup() {
+            return warmup;
+        }
+
+        public Invalidation getInvalidation() {
+            return invalidation;
+        }
+
+        public Coalescing getCoalescing() {
+            return coalescing;
+        }
+
+        public static class Region {
+
+            private Long maxEntries;
+
+            private DataSize heapSize;
+
+            private DataSize offHeapSize;
+
+            private Duration timeToLive;
+
+            private Duration timeToIdle;
+
+            private Duration refreshAfter;
+
+            /**
+             * The number of entries kept on heap; exclusive with {@link #getHeapSize()}.
+             *
+             * @return the number of entries, or {@code null} for the default.
+             */
+            public Long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(Long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            /**
+             * The size of the entries kept on heap; exclusive with {@link #getMaxEntries()}.
+             *
+             * @return the size, or {@code null} to bound the heap tier by entries.
+             */
+            public DataSize getHeapSize() {
+                return heapSize;
+            }
+
+            public void setHeapSize(DataSize heapSize) {
+                this.heapSize = heapSize;
+            }
+
+            /**
+             * The size of the off-heap tier, which the entries evicted from the heap tier are moved to.
+             *
+             * @return the size, or {@code null} for no off-heap tier.
+             */
+            public DataSize getOffHeapSize() {
+                return offHeapSize;
+            }
+
+            public void setOffHeapSize(DataSize offHeapSize) {
+                this.offHeapSize = offHeapSize;
+            }
+
+            public Duration getTimeToLive() {
+                return timeToLive;
+            }
+
+            public void setTimeToLive(Duration timeToLive) {
+                this.timeToLive = timeToLive;
+            }
+
+            /**
+             * The time after which entries which were not read expire, instead of {@link #getTimeToLive()}.
+             *
+             * @return the time, or {@code null} to expire the entries on their time to live.
+             */
+            public Duration getTimeToIdle() {
+                return timeToIdle;
+            }
+
+            public void setTimeToIdle(Duration timeToIdle) {
+                this.timeToIdle = timeToIdle;
+            }
+
+            /**
+             * The age after which the entries read are reloaded in the background, while they are still served, so
+             * that they rarely expire; shorter than {@link #getTimeToLive()}. It applies to the
+             * {@code @Cacheable(sync = true)} methods resolving their caches with the {@link CoalescingCacheResolver}.
+             *
+             * @return the age, or {@code null} to reload the entries only once expired.
+             */
+            public Duration getRefreshAfter() {
+                return refreshAfter;
+            }
+
+            public void setRefreshAfter(Duration refreshAfter) {
+                this.refreshAfter = refreshAfter;
+            }
+        }
+
+        public static class Warmup {
+
+            private boolean enabled = false;
+
+            private String file = "hot-keys.json";
+
+            private int hotKeys = 500;
+
+            private long saveInterval = 300000;
+
+            private Duration timeBudget = Duration.ofSeconds(30);
+
+            private int parallelism = 4;
+
+            private int batchSize = 100;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public String getFile() {
+                return file;
+            }
+
+            public void setFile(String file) {
+                this.file = file;
+            }
+
+            public int getHotKeys() {
+                return hotKeys;
+            }
+
+            public void setHotKeys(int hotKeys) {
+                this.hotKeys = hotKeys;
+            }
+
+            public long getSaveInterval() {
+                return saveInterval;
+            }
+
+            public void setSaveInterval(long saveInterval) {
+                this.saveInterval = saveInterval;
+            }
+
+            public Duration getTimeBudget() {
+                return timeBudget;
+            }
+
+            public void setTimeBudget(Duration timeBudget) {
+                this.timeBudget = timeBudget;
+            }
+
+            public int getParallelism() {
+                return parallelism;
+            }
+
+            public void setParallelism(int parallelism) {
+                this.parallelism = parallelism;
+            }
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+        }
+
+        public static class Invalidation {
+
+            /**
+             * The transport broadcasting the evictions to the other nodes: none, in-jvm or postgres.
+             */
+            private String transport = "none";
+
+            private String channel = "store_cache_invalidation";
+
+            private long flushInterval = 50;
+
+            private int maxBatchSize = 500;
+
+            public String getTransport() {
+                return transport;
+            }
+
+            public void setTransport(String transport) {
+                this.transport = transport;
+            }
+
+            public String getChannel() {
+                return channel;
+            }
+
+            public void setChannel(String channel) {
+                this.channel = channel;
+            }
+
+            public long getFlushInterval() {
+                return flushInterval;
+            }
+
+            public void setFlushInterval(long flushInterval) {
+                this.flushInterval = flushInterval;
+            }
+
+            public int getMaxBatchSize() {
+                return maxBatchSize;
+            }
+
+            public void setMaxBatchSize(int maxBatchSize) {
+                this.maxBatchSize = maxBatchSize;
+            }
+        }
+
+        public static class Coalescing {
+
+            private boolean enabled = true;
+
+            /**
+             * How long a load waits for the same load in flight, before it runs on its own.
+             */
+            private Duration timeout = Duration.ofSeconds(5);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public Duration getTimeout() {
+                return timeout;
+            }
+
+            public void setTimeout(Duration timeout) {
+                this.timeout = timeout;
+            }
+        }
+    }
 }
@@ -1,33 +1,49 @@
 package com.store.config;
 
 import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import javax.sql.DataSource;
 
 import org.ehcache.config.builders.*;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.impl.serialization.PlainJavaSerializer;
 import org.ehcache.jsr107.Eh107Configuration;
 
 import org.hibernate.cache.jcache.ConfigSettings;
 import io.github.jhipster.config.JHipsterProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import com.store.service.CacheInvalidationTransport;
+import com.store.service.LoadCoalescer;
+import com.store.service.impl.InJvmCacheInvalidationTransport;
+import com.store.service.impl.PostgresCacheInvalidationTransport;
 
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.CacheResolver;
 import org.springframework.context.annotation.*;
 
 @Configuration
 @EnableCaching
 public class CacheConfiguration {
 
-    private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
+    private final JHipsterProperties.Cache.Ehcache defaults;
+
+    private final Map<String, ApplicationProperties.Cache.Region> regions;
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
-        JHipsterProperties.Cache.Ehcache ehcache =
-            jHipsterProperties.getCache().getEhcache();
+    private final ApplicationProperties.Cache.Invalidation invalidation;
 
-        jcacheConfiguration = Eh107Configuration.fromEhcacheCacheConfiguration(
-            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
-                ResourcePoolsBuilder.heap(ehcache.getMaxEntries()))
-                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ehcache.getTimeToLiveSeconds())))
-                .build());
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
+        this.defaults = jHipsterProperties.getCache().getEhcache();
+        this.regions = applicationProperties.getCache().getRegions();
+        this.invalidation = applicationProperties.getCache().getInvalidation();
     }
 
     @Bean
@@ -36,26 +52,87 @@ public class CacheConfiguration {
     }
 
     @Bean
-    public JCacheManagerCustomizer cacheManagerCustomizer() {
+    public JCacheManagerCustomizer cacheManagerCustomizer(MeterRegistry meterRegistry) {
         return cm -> {
-            createCache(cm, com.store.repository.UserRepository.USERS_BY_LOGIN_CACHE);
-            createCache(cm, com.store.repository.UserRepository.USERS_BY_EMAIL_CACHE);
-            createCache(cm, com.store.domain.User.class.getName());
-            createCache(cm, com.store.domain.Authority.class.getName());
-            createCache(cm, com.store.domain.User.class.getName() + ".authorities");
-            createCache(cm, com.store.domain.Item.class.getName());
-            createCache(cm, com.store.domain.Cart.class.getName());
-            createCache(cm, com.store.domain.Cart.class.getName() + ".orders");
-            createCache(cm, com.store.domain.Order.class.getName());
+            createCache(cm, com.store.repository.UserRepository.USERS_BY_LOGIN_CACHE, meterRegistry);
+            createCache(cm, com.store.repository.UserRepository.USERS_BY_EMAIL_CACHE, meterRegistry);
+            createCache(cm, com.store.domain.User.class.getName(), meterRegistry);
+            createCache(cm, com.store.domain.Authority.class.getName(), meterRegistry);
+            createCache(cm, com.store.domain.User.class.getName() + ".authorities", meterRegistry);
+            createCache(cm, com.store.domain.Item.class.getName(), meterRegistry);
+            createCache(cm, com.store.domain.Cart.class.getName(), meterRegistry);
+            createCache(cm, com.store.domain.Cart.class.getName() + ".orders", meterRegistry);
+            createCache(cm, com.store.domain.Order.class.getName(), meterRegistry);
+            createCache(cm, com.store.service.ItemQueryService.RESULTS_CACHE, meterRegistry);
             // jhipster-needle-ehcache-add-entry
         };
     }
 
-    private void createCache(javax.cache.CacheManager cm, String cacheName) {
+    @Bean(name = CoalescingCacheResolver.NAME)
+    public CacheResolver coalescingCacheResolver(CacheManager cacheManager, LoadCoalescer loadCoalescer,
+                                                 ApplicationProperties applicationProperties, BeanFactory beanFactory,
+                                                 @Qualifier("taskExecutor") Executor executor, MeterRegistry meterRegistry) {
+        return new CoalescingCacheResolver(cacheManager, loadCoalescer, applicationProperties, beanFactory, executor, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "application.cache.invalidation.transport", havingValue = "in-jvm")
+    public CacheInvalidationTransport inJvmCacheInvalidationTransport() {
+        return new InJvmCacheInvalidationTransport(invalidation.getChannel());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "application.cache.invalidation.transport", havingValue = "postgres")
+    public CacheInvalidationTransport postgresCacheInvalidationTransport(DataSource dataSource) {
+        return new PostgresCacheInvalidationTransport(dataSource, invalidation.getChannel());
+    }
+
+    private void createCache(javax.cache.CacheManager cm, String cacheName, MeterRegistry meterRegistry) {
         javax.cache.Cache<Object, Object> cache = cm.getCache(cacheName);
         if (cache != null) {
             cm.destroyCache(cacheName);
         }
-        cm.createCache(cacheName, jcacheConfiguration);
+        cache = cm.createCache(cacheName, Eh107Configuration.fromEhcacheCacheConfiguration(
+            createCacheConfiguration(regions.get(cacheName), defaults)));
+        new CacheRegionMetrics(cache).bindTo(meterRegistry);
+    }
+
+    /**
+     * Create the configuration of a cache region: its entries are bounded on heap by number, or by size, and may
+     * overflow to an off-heap tier. The settings the region does not override are the {@code jhipster.cache.ehcache}
+     * ones.
+     *
+     * @param region the settings of the region, may be {@code null}.
+     * @param defaults the default settings.
+     * @return the configuration.
+     */
+    static org.ehcache.config.CacheConfiguration<Object, Object> createCacheConfiguration(ApplicationProperties.Cache.Region region,
+                                                                                          JHipsterProperties.Cache.Ehcache defaults) {
+        if (region == null) {
+            region = new ApplicationProperties.Cache.Region();
+        }
+        if (region.getMaxEntries() != null && region.getHeapSize() != null) {
+            throw new IllegalArgumentException("A cache region is bounded either by max-entries or by heap-size, not both");
+        }
+        ResourcePoolsBuilder resourcePools = region.getHeapSize() != null
+            ? ResourcePoolsBuilder.newResourcePoolsBuilder().heap(region.getHeapSize().toBytes(), MemoryUnit.B)
+            : ResourcePoolsBuilder.newResourcePoolsBuilder().heap(
+                region.getMaxEntries() != null ? region.getMaxEntries() : defaults.getMaxEntries(), EntryUnit.ENTRIES);
+        if (region.getOffHeapSize() != null) {
+            resourcePools = resourcePools.offheap(region.getOffHeapSize().toBytes(), MemoryUnit.B);
+        }
+        CacheConfigurationBuilder<Object, Object> builder = CacheConfigurationBuilder
+            .newCacheConfigurationBuilder(Object.class, Object.class, resourcePools)
+            .withExpiry(region.getTimeToIdle() != null
+                ? ExpiryPolicyBuilder.timeToIdleExpiration(region.getTimeToIdle())
+                : ExpiryPolicyBuilder.timeToLiveExpiration(region.getTimeToLive() != null
+                    ? region.getTimeToLive() : Duration.ofSeconds(defaults.getTimeToLiveSeconds())));
+        if (region.getOffHeapSize() != null) {
+            // The entries are serialized off heap: the L2 cache entries and their keys all are Serializable
+            ClassLoader classLoader = CacheConfiguration.class.getClassLoader();
+            builder = builder.withKeySerializer(new PlainJavaSerializer<>(classLoader))
+                .withValueSerializer(new PlainJavaSerializer<>(classLoader));
+        }
+        return builder.build();
     }
 }
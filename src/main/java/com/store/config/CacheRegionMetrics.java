@@ -0,0 +1,77 @@
+package com.store.config;
+
+import java.util.EnumSet;
+import java.util.Optional;
+
+import org.ehcache.core.statistics.CacheOperationOutcomes.GetOutcome;
+import org.ehcache.core.statistics.TierOperationOutcomes.EvictionOutcome;
+import org.ehcache.impl.internal.statistics.StatsUtils;
+import org.terracotta.statistics.OperationStatistic;
+import org.terracotta.statistics.ValueStatistic;
+import org.terracotta.statistics.ZeroOperationStatistic;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Metrics of a cache region: the number of entries in each of its tiers, its hit ratio and its evictions, tagged
+ * with its name.
+ * <p>
+ * JCache tells neither the size of a cache nor its tiers, so they are read from the statistics Ehcache always
+ * maintains on the cache underlying the JCache one. Unlike the JCache statistics, they do not need enabling.
+ */
+public class CacheRegionMetrics implements MeterBinder {
+
+    private static final EnumSet<GetOutcome> HIT = EnumSet.of(GetOutcome.HIT);
+
+    private static final EnumSet<GetOutcome> HIT_OR_MISS = EnumSet.of(GetOutcome.HIT, GetOutcome.MISS);
+
+    private final String cacheName;
+
+    private final org.ehcache.Cache<?, ?> ehcache;
+
+    private final String[] tiers;
+
+    private final OperationStatistic<GetOutcome> gets;
+
+    private final OperationStatistic<EvictionOutcome> evictions;
+
+    public CacheRegionMetrics(javax.cache.Cache<?, ?> cache) {
+        this.cacheName = cache.getName();
+        this.ehcache = cache.unwrap(org.ehcache.Cache.class);
+        this.tiers = StatsUtils.findTiers(ehcache);
+        this.gets = StatsUtils.findOperationStatisticOnChildren(ehcache, GetOutcome.class, "get");
+        // The entries evicted from the lowest tier leave the cache, the others are only moved down
+        Optional<OperationStatistic<EvictionOutcome>> lowestTierEvictions =
+            StatsUtils.findStatisticOnDescendants(ehcache, StatsUtils.findLowestTier(tiers), "tier", "eviction");
+        this.evictions = lowestTierEvictions.orElse(ZeroOperationStatistic.get());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String tier : tiers) {
+            Optional<ValueStatistic<Long>> mappings = StatsUtils.findStatisticOnDescendants(ehcache, tier, "mappings");
+            mappings.ifPresent(statistic -> Gauge.builder("store.cache.size", statistic, value -> value.value())
+                .tags("cache", cacheName, "tier", tier)
+                .strongReference(true)
+                .description("The number of entries in a tier of the cache")
+                .register(registry));
+        }
+        Gauge.builder("store.cache.hit.ratio", gets, CacheRegionMetrics::hitRatio)
+            .tag("cache", cacheName)
+            .strongReference(true)
+            .description("The ratio of the reads of the cache which were hits")
+            .register(registry);
+        FunctionCounter.builder("store.cache.evictions", evictions, statistic -> statistic.count(EvictionOutcome.SUCCESS))
+            .tag("cache", cacheName)
+            .description("The number of entries evicted from the cache to respect its bounds")
+            .register(registry);
+    }
+
+    private static double hitRatio(OperationStatistic<GetOutcome> gets) {
+        long total = gets.sum(HIT_OR_MISS);
+        return total == 0 ? Double.NaN : (double) gets.sum(HIT) / total;
+    }
+}
@@ -0,0 +1,307 @@
+package com.store.config;
+
+import com.store.service.LoadCoalescer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.SimpleCacheResolver;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Resolver of the caches whose misses are loaded through the {@link LoadCoalescer}, so that the concurrent misses of
+ * the same key share one load. It applies to the {@code @Cacheable(sync = true)} methods, which load their misses
+ * with {@link Cache#get(Object, Callable)}; the hits never reach the coalescer.
+ * <p>
+ * The regions with a {@code refresh-after} also refresh their entries ahead of their expiry: an entry read once older
+ * than that is still served, and the method is invoked again in the background, on the bean of its declaring type, to
+ * load the entry again. The entry loaded only replaces the one it refreshes: if that one was evicted meanwhile, as when
+ * its user is updated, the eviction wins, and the next read loads the entry again.
+ */
+public class CoalescingCacheResolver extends SimpleCacheResolver {
+
+    /**
+     * The name of the resolver bean, for {@code @Cacheable(cacheResolver = ...)}.
+     */
+    public static final String NAME = "coalescingCacheResolver";
+
+    /**
+     * The entry refreshed by the invocation in progress on the current thread.
+     */
+    private static final ThreadLocal<LoadedValue> REFRESHED = new ThreadLocal<>();
+
+    private final Logger log = LoggerFactory.getLogger(CoalescingCacheResolver.class);
+
+    private final LoadCoalescer loadCoalescer;
+
+    private final Map<String, ApplicationProperties.Cache.Region> regions;
+
+    private final BeanFactory beanFactory;
+
+    private final Executor executor;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Set<List<Object>> refreshing = ConcurrentHashMap.newKeySet();
+
+    public CoalescingCacheResolver(CacheManager cacheManager, LoadCoalescer loadCoalescer,
+                                   ApplicationProperties applicationProperties, BeanFactory beanFactory,
+                                   Executor executor, MeterRegistry meterRegistry) {
+        super(cacheManager);
+        this.loadCoalescer = loadCoalescer;
+        this.regions = applicationProperties.getCache().getRegions();
+        this.beanFactory = beanFactory;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+        return super.resolveCaches(context).stream()
+            .map(cache -> new CoalescingCache(cache, refreshAfter(cache.getName()), context))
+            .collect(Collectors.toList());
+    }
+
+    private Duration refreshAfter(String cacheName) {
+        ApplicationProperties.Cache.Region region = regions.get(cacheName);
+        return region != null ? region.getRefreshAfter() : null;
+    }
+
+    /**
+     * Invoke the method again in the background, to refresh its entry, unless the same entry is being refreshed.
+     */
+    private void refresh(Cache cache, Object key, LoadedValue stale, CacheOperationInvocationContext<?> context) {
+        List<Object> refreshKey = Arrays.asList(cache.getName(), key);
+        if (!refreshing.add(refreshKey)) {
+            return;
+        }
+        Method method = context.getMethod();
+        Object[] args = context.getArgs();
+        try {
+            executor.execute(() -> {
+                REFRESHED.set(stale);
+                try {
+                    ReflectionUtils.invokeMethod(method, beanFactory.getBean(method.getDeclaringClass()), args);
+                } catch (RuntimeException e) {
+                    log.warn("Could not refresh the entry {} of the cache {}: {}", key, cache.getName(), e.toString());
+                    count(cache.getName(), "failed");
+                } finally {
+                    REFRESHED.remove();
+                    refreshing.remove(refreshKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(refreshKey);
+            log.debug("Could not schedule the refresh of the entry {} of the cache {}", key, cache.getName());
+        }
+    }
+
+    private void count(String cacheName, String result) {
+        Counter.builder("store.cache.refresh")
+            .description("Number of entries refreshed ahead of their expiry, of refreshes discarded as their entry was evicted meanwhile, and of failed ones")
+            .tag("cache", cacheName)
+            .tag("result", result)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * A cache loading its misses through the coalescer, refreshing its entries ahead of their expiry with a
+     * {@code refreshAfter}, and otherwise delegating to the cache.
+     */
+    private final class CoalescingCache implements Cache {
+
+        private final Cache cache;
+
+        private final Duration refreshAfter;
+
+        private final CacheOperationInvocationContext<?> context;
+
+        private CoalescingCache(Cache cache, Duration refreshAfter, CacheOperationInvocationContext<?> context) {
+            this.cache = cache;
+            this.refreshAfter = refreshAfter;
+            this.context = context;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            LoadedValue stale = REFRESHED.get();
+            if (stale != null) {
+                REFRESHED.remove();
+                return reload(key, valueLoader, stale);
+            }
+            ValueWrapper cached = cache.get(key);
+            if (cached != null) {
+                Object value = cached.get();
+                if (!(value instanceof LoadedValue)) {
+                    return (T) value;
+                }
+                LoadedValue loaded = (LoadedValue) value;
+                if (refreshAfter != null && loaded.isOlderThan(refreshAfter)) {
+                    refresh(cache, key, loaded, context);
+                }
+                return (T) loaded.getValue();
+            }
+            return loadCoalescer.load(cache.getName(), key, () -> {
+                T value = call(key, valueLoader);
+                cache.put(key, toStoreValue(value));
+                return value;
+            });
+        }
+
+        /**
+         * Load an entry again, and store it in place of the stale one only: an entry evicted meanwhile stays evicted.
+         */
+        @SuppressWarnings("unchecked")
+        private <T> T reload(Object key, Callable<T> valueLoader, LoadedValue stale) {
+            T value = call(key, valueLoader);
+            Object nativeCache = cache.getNativeCache();
+            boolean replaced;
+            if (nativeCache instanceof javax.cache.Cache) {
+                replaced = ((javax.cache.Cache<Object, Object>) nativeCache).replace(key, stale, toStoreValue(value));
+            } else if (nativeCache instanceof ConcurrentMap) {
+                replaced = ((ConcurrentMap<Object, Object>) nativeCache).replace(key, stale, toStoreValue(value));
+            } else {
+                // Without an atomic replace, the stale entry just expires
+                replaced = false;
+            }
+            count(cache.getName(), replaced ? "refreshed" : "evicted");
+            return value;
+        }
+
+        private <T> T call(Object key, Callable<T> valueLoader) {
+            try {
+                return valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        }
+
+        private Object toStoreValue(Object value) {
+            return refreshAfter != null ? new LoadedValue(value, System.currentTimeMillis()) : value;
+        }
+
+        @Override
+        public String getName() {
+            return cache.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return cache.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            ValueWrapper cached = cache.get(key);
+            if (cached != null && cached.get() instanceof LoadedValue) {
+                return new SimpleValueWrapper(((LoadedValue) cached.get()).getValue());
+            }
+            return cached;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Class<T> type) {
+            ValueWrapper cached = get(key);
+            Object value = cached != null ? cached.get() : null;
+            if (value != null && type != null && !type.isInstance(value)) {
+                throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+            }
+            return (T) value;
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            cache.put(key, toStoreValue(value));
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            ValueWrapper existing = cache.putIfAbsent(key, toStoreValue(value));
+            if (existing != null && existing.get() instanceof LoadedValue) {
+                return new SimpleValueWrapper(((LoadedValue) existing.get()).getValue());
+            }
+            return existing;
+        }
+
+        @Override
+        public void evict(Object key) {
+            cache.evict(key);
+        }
+
+        @Override
+        public void clear() {
+            cache.clear();
+        }
+    }
+
+    /**
+     * A value stored in a cache refreshing its entries ahead of their expiry, with the time it was loaded.
+     */
+    public static final class LoadedValue implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object value;
+
+        private final long loadedAt;
+
+        public LoadedValue(Object value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public long getLoadedAt() {
+            return loadedAt;
+        }
+
+        private boolean isOlderThan(Duration age) {
+            return System.currentTimeMillis() - loadedAt >= age.toMillis();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LoadedValue)) {
+                return false;
+            }
+            LoadedValue other = (LoadedValue) o;
+            return loadedAt == other.loadedAt && Objects.equals(value, other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(value, loadedAt);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.store.config;
+
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tells the client the sizes of the item thumbnails, {@code application.thumbnail.sizes}, as
+ * {@code thumbnail-sizes} in {@code /management/info}.
+ */
+@Component
+public class ThumbnailInfoContributor implements InfoContributor {
+
+    private final ApplicationProperties applicationProperties;
+
+    public ThumbnailInfoContributor(ApplicationProperties applicationProperties) {
+        this.applicationProperties = applicationProperties;
+    }
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        builder.withDetail("thumbnail-sizes", applicationProperties.getThumbnail().getSizes());
+    }
+}
@@ -37,10 +37,31 @@ public class Cart implements Serializable {
     @Column(name = "closed_at")
     private LocalDate closedAt;
 
+    /**
+     * The sum of the totals of the orders, maintained as they are added, changed or removed.
+     */
+    @NotNull
+    @Column(name = "total", nullable = false)
+    private Double total = 0.0;
+
+    /**
+     * The number of orders, maintained as they are added or removed.
+     */
+    @NotNull
+    @Column(name = "line_count", nullable = false)
+    private Integer lineCount = 0;
+
     @OneToMany(mappedBy = "cart")
     @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
     private Set<Order> orders = new HashSet<>();
 
+    /**
+     * Incremented by every update: it detects concurrent updates, and identifies the state of the cart in its ETag.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here, do not remove
     public Long getId() {
         return id;
@@ -50,13 +71,6 @@ public class Cart implements Serializable {
         this.id = id;
     }
 
-    public Double getTotal() {
-        Double total = 0.0;
-        for (Order order:orders)
-            total+=order.getTotal();
-        return total;
-    }
-
     public String getEmail() {
         return email;
     }
@@ -83,6 +97,45 @@ public class Cart implements Serializable {
         this.closedAt = closedAt;
     }
 
+    public Double getTotal() {
+        return total;
+    }
+
+    public Cart total(Double total) {
+        this.total = total;
+        return this;
+    }
+
+    public void setTotal(Double total) {
+        this.total = total;
+    }
+
+    public Integer getLineCount() {
+        return lineCount;
+    }
+
+    public Cart lineCount(Integer lineCount) {
+        this.lineCount = lineCount;
+        return this;
+    }
+
+    public void setLineCount(Integer lineCount) {
+        this.lineCount = lineCount;
+    }
+
+    /**
+     * Account for orders added to, changed in or removed from this cart, without loading its orders.
+     *
+     * @param lines the number of orders added, negative if removed.
+     * @param amount the change of the total.
+     * @return this cart.
+     */
+    public Cart addToTotals(int lines, double amount) {
+        this.lineCount += lines;
+        this.total += amount;
+        return this;
+    }
+
     public Set<Order> getOrders() {
         return orders;
     }
@@ -95,18 +148,26 @@ public class Cart implements Serializable {
     public Cart addOrder(Order order) {
         this.orders.add(order);
         order.setCart(this);
-        return this;
+        return addToTotals(1, order.getTotal());
     }
 
     public Cart removeOrder(Order order) {
         this.orders.remove(order);
         order.setCart(null);
-        return this;
+        return addToTotals(-1, -order.getTotal());
     }
 
     public void setOrders(Set<Order> orders) {
         this.orders = orders;
     }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here, do not remove
 
     @Override
@@ -131,6 +192,9 @@ public class Cart implements Serializable {
             "id=" + getId() +
             ", email='" + getEmail() + "'" +
             ", closedAt='" + getClosedAt() + "'" +
+            ", total=" + getTotal() +
+            ", lineCount=" + getLineCount() +
+            ", version=" + getVersion() +
             "}";
     }
 }
@@ -3,6 +3,7 @@ package com.store.domain;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.springframework.util.DigestUtils;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -52,6 +53,16 @@ public class Item implements Serializable {
     @Column(name = "image_content_type")
     private String imageContentType;
 
+    @Column(name = "image_hash", length = 32)
+    private String imageHash;
+
+    /**
+     * Incremented by every update: it detects concurrent updates, and identifies the state of the item in its ETag.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here, do not remove
     public Long getId() {
         return id;
@@ -138,6 +149,31 @@ public class Item implements Serializable {
     public void setImageContentType(String imageContentType) {
         this.imageContentType = imageContentType;
     }
+
+    public String getImageHash() {
+        return imageHash;
+    }
+
+    public void setImageHash(String imageHash) {
+        this.imageHash = imageHash;
+    }
+
+    /**
+     * Keep the image hash in sync with the image, so it can be used as an ETag without loading the image.
+     */
+    @PrePersist
+    @PreUpdate
+    public void updateImageHash() {
+        this.imageHash = image == null ? null : DigestUtils.md5DigestAsHex(image);
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here, do not remove
 
     @Override
@@ -166,6 +202,8 @@ public class Item implements Serializable {
             ", count=" + getCount() +
             ", image='" + getImage() + "'" +
             ", imageContentType='" + getImageContentType() + "'" +
+            ", imageHash='" + getImageHash() + "'" +
+            ", version=" + getVersion() +
             "}";
     }
 }
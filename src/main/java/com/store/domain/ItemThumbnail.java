@@ -0,0 +1,126 @@
+package com.store.domain;
+
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+import java.io.Serializable;
+
+/**
+ * A thumbnail of an {@link Item} image, shared by all the items with the same image.
+ */
+@Entity
+@Table(name = "store_item_thumbnail")
+public class ItemThumbnail implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    private Long id;
+
+    @NotNull
+    @Size(max = 32)
+    @Column(name = "hash", length = 32, nullable = false)
+    private String hash;
+
+    @NotNull
+    @Column(name = "size", nullable = false)
+    private Integer size;
+
+    @NotNull
+    @Column(name = "content_type", nullable = false)
+    private String contentType;
+
+    @NotNull
+    @Lob
+    @Column(name = "image", nullable = false)
+    private byte[] image;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public ItemThumbnail hash(String hash) {
+        this.hash = hash;
+        return this;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public ItemThumbnail size(Integer size) {
+        this.size = size;
+        return this;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public ItemThumbnail contentType(String contentType) {
+        this.contentType = contentType;
+        return this;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public byte[] getImage() {
+        return image;
+    }
+
+    public ItemThumbnail image(byte[] image) {
+        this.image = image;
+        return this;
+    }
+
+    public void setImage(byte[] image) {
+        this.image = image;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ItemThumbnail)) {
+            return false;
+        }
+        return id != null && id.equals(((ItemThumbnail) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemThumbnail{" +
+            "id=" + getId() +
+            ", hash='" + getHash() + "'" +
+            ", size=" + getSize() +
+            ", contentType='" + getContentType() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,184 @@
+package com.store.domain;
+
+
+import com.store.domain.enumeration.DeliveryStatus;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * The ticket email of a closed {@link Cart}, waiting to be sent.
+ * <p>
+ * Entries are written in the same transaction as the cart close, and sent later, with retries, by
+ * {@link com.store.service.TicketOutboxService}.
+ */
+@Entity
+@Table(name = "store_ticket_outbox")
+public class TicketOutboxEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    private Long id;
+
+    @NotNull
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    private Cart cart;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private DeliveryStatus status;
+
+    @NotNull
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @NotNull
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @NotNull
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "sent_at")
+    private Instant sentAt;
+
+    @Size(max = 255)
+    @Column(name = "last_error")
+    private String lastError;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Cart getCart() {
+        return cart;
+    }
+
+    public TicketOutboxEntry cart(Cart cart) {
+        this.cart = cart;
+        return this;
+    }
+
+    public void setCart(Cart cart) {
+        this.cart = cart;
+    }
+
+    public DeliveryStatus getStatus() {
+        return status;
+    }
+
+    public TicketOutboxEntry status(DeliveryStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    public void setStatus(DeliveryStatus status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public TicketOutboxEntry attempts(Integer attempts) {
+        this.attempts = attempts;
+        return this;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public TicketOutboxEntry createdAt(Instant createdAt) {
+        this.createdAt = createdAt;
+        return this;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public TicketOutboxEntry nextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+        return this;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public Instant getSentAt() {
+        return sentAt;
+    }
+
+    public TicketOutboxEntry sentAt(Instant sentAt) {
+        this.sentAt = sentAt;
+        return this;
+    }
+
+    public void setSentAt(Instant sentAt) {
+        this.sentAt = sentAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public TicketOutboxEntry lastError(String lastError) {
+        this.lastError = lastError;
+        return this;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TicketOutboxEntry)) {
+            return false;
+        }
+        return id != null && id.equals(((TicketOutboxEntry) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    @Override
+    public String toString() {
+        return "TicketOutboxEntry{" +
+            "id=" + getId() +
+            ", status='" + getStatus() + "'" +
+            ", attempts=" + getAttempts() +
+            ", createdAt='" + getCreatedAt() + "'" +
+            ", nextAttemptAt='" + getNextAttemptAt() + "'" +
+            ", sentAt='" + getSentAt() + "'" +
+            ", lastError='" + getLastError() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,8 @@
+package com.store.domain.enumeration;
+
+/**
+ * The DeliveryStatus enumeration.
+ */
+public enum DeliveryStatus {
+    PENDING, SENT, FAILED
+}
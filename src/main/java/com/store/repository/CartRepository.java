@@ -2,8 +2,14 @@ package com.store.repository;
 
 import com.store.domain.Cart;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 
 /**
  * Spring Data  repository for the Cart entity.
@@ -12,4 +18,16 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long>, JpaSpecificationExecutor<Cart> {
 
+    @Modifying
+    @Query("update Cart cart set cart.closedAt = :closedAt where cart.id = :id and cart.closedAt is null")
+    int closeById(@Param("id") Long id, @Param("closedAt") LocalDate closedAt);
+
+    @Query("select distinct cart from Cart cart left join fetch cart.orders orders left join fetch orders.item where cart.id in :ids")
+    List<Cart> findAllWithOrdersByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select cart from Cart cart left join fetch cart.orders orders left join fetch orders.item where cart.id = :id")
+    Optional<Cart> findOneWithOrdersById(@Param("id") Long id);
+
+    @Query("select cart.version from Cart cart where cart.id = :id")
+    Optional<Integer> findVersionById(@Param("id") Long id);
 }
@@ -2,8 +2,14 @@ package com.store.repository;
 
 import com.store.domain.Item;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 
 /**
  * Spring Data  repository for the Item entity.
@@ -12,4 +18,33 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long>, JpaSpecificationExecutor<Item> {
 
+    @Query("select item.id from Item item where item.imageHash = :imageHash")
+    List<Long> findIdsByImageHash(@Param("imageHash") String imageHash);
+
+    @Query("select item.imageHash from Item item where item.id = :id")
+    Optional<String> findImageHashById(@Param("id") Long id);
+
+    @Query("select item.id, item.title, item.description from Item item")
+    Stream<Object[]> streamAllSearchableFields();
+
+    @Query("select item.id, item.title, item.price, item.count from Item item order by item.id")
+    Stream<Object[]> streamAllCatalogFields();
+
+    @Query("select item.id, item.title, item.description, item.price, item.count from Item item where item.id in :ids")
+    List<Object[]> findReplicatedFieldsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select item.title from Item item")
+    Stream<String> streamAllTitles();
+
+    @Query("select item.id from Item item where item.title = :title")
+    Optional<Long> findIdByTitle(@Param("title") String title);
+
+    @Query("select item.title from Item item where item.title in :titles")
+    List<String> findTitlesByTitleIn(@Param("titles") Collection<String> titles);
+
+    @Query("select item.id, item.count from Item item where item.id in :ids")
+    List<Object[]> findCountsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select item.version from Item item where item.id = :id")
+    Optional<Integer> findVersionById(@Param("id") Long id);
 }
@@ -0,0 +1,26 @@
+package com.store.repository;
+
+import com.store.domain.ItemThumbnail;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.Set;
+
+
+/**
+ * Spring Data  repository for the ItemThumbnail entity.
+ */
+@Repository
+public interface ItemThumbnailRepository extends JpaRepository<ItemThumbnail, Long> {
+
+    Optional<ItemThumbnail> findOneByHashAndSize(String hash, Integer size);
+
+    @Query("select thumbnail.size from ItemThumbnail thumbnail where thumbnail.hash = :hash")
+    Set<Integer> findSizesByHash(@Param("hash") String hash);
+
+    @Modifying
+    @Query("delete from ItemThumbnail thumbnail where thumbnail.hash = :hash")
+    int deleteByHash(@Param("hash") String hash);
+}
@@ -2,8 +2,12 @@ package com.store.repository;
 
 import com.store.domain.Order;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 
 /**
  * Spring Data  repository for the Order entity.
@@ -12,4 +16,12 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
 
+    @Query("select o.item.id, sum(o.quantity) from Order o where o.cart.id = :cartId group by o.item.id")
+    List<Object[]> sumQuantitiesByItemIdForCartId(@Param("cartId") Long cartId);
+
+    @Query("select o from Order o join fetch o.cart cart where o.item.id = :itemId and cart.closedAt is null")
+    List<Order> findAllWithOpenCartByItemId(@Param("itemId") Long itemId);
+
+    @Query("select o from Order o join fetch o.item where o.id in :ids")
+    List<Order> findAllWithItemByIdIn(@Param("ids") Collection<Long> ids);
 }
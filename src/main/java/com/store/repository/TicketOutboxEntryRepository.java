@@ -0,0 +1,32 @@
+package com.store.repository;
+
+import com.store.domain.TicketOutboxEntry;
+import com.store.domain.enumeration.DeliveryStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.List;
+
+
+/**
+ * Spring Data  repository for the TicketOutboxEntry entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface TicketOutboxEntryRepository extends JpaRepository<TicketOutboxEntry, Long> {
+
+    /**
+     * Lock the entries due to be sent, skipping the ones already locked by another node, where supported.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select entry from TicketOutboxEntry entry where entry.status = :status and entry.nextAttemptAt <= :now order by entry.id")
+    List<TicketOutboxEntry> findDueForUpdate(@Param("status") DeliveryStatus status, @Param("now") Instant now, Pageable pageable);
+
+    List<TicketOutboxEntry> findAllByCartId(Long cartId);
+}
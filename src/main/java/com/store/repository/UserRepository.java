@@ -1,5 +1,6 @@
 package com.store.repository;
 
+import com.store.config.CoalescingCacheResolver;
 import com.store.domain.User;
 
 import org.springframework.cache.annotation.Cacheable;
@@ -8,10 +9,12 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import java.time.Instant;
 
 /**
@@ -37,8 +40,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @EntityGraph(attributePaths = "authorities")
     Optional<User> findOneWithAuthoritiesById(Long id);
 
+    /**
+     * The concurrent misses of the same login share one query, and the users read are refreshed ahead of their
+     * expiry, see {@link CoalescingCacheResolver}.
+     */
     @EntityGraph(attributePaths = "authorities")
-    @Cacheable(cacheNames = USERS_BY_LOGIN_CACHE)
+    @Cacheable(cacheNames = USERS_BY_LOGIN_CACHE, cacheResolver = CoalescingCacheResolver.NAME, sync = true)
     Optional<User> findOneWithAuthoritiesByLogin(String login);
 
     @EntityGraph(attributePaths = "authorities")
@@ -46,4 +53,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findOneWithAuthoritiesByEmail(String email);
 
     Page<User> findAllByLoginNot(Pageable pageable, String login);
+
+    @Query("select user.login, lower(user.email) from User user")
+    Stream<Object[]> streamAllLoginsAndLowerCaseEmails();
 }
@@ -0,0 +1,425 @@
+package com.store.service;
+
+import com.store.config.ApplicationProperties;
+import com.store.domain.Item;
+import com.store.repository.ItemRepository;
+import com.store.repository.UserRepository;
+import com.store.service.dto.CacheInvalidationDTO;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bus broadcasting the evictions from the caches of a node to the other nodes, so that they stop serving the
+ * entries the node changed.
+ * <p>
+ * The evictions of a transaction are broadcast only once it commits, and those of all the transactions are coalesced
+ * and sent in batches, every {@code application.cache.invalidation.flush-interval} milliseconds, by a thread of the bus:
+ * the tasks of the shared scheduler, such as sending mails or rebuilding the in-memory views, never delay them. The
+ * transport is pluggable: without any, nothing is broadcast, which suits a single node. The evictions the transport
+ * fails to publish are sent again at the next flush. When the transport may have lost evictions, all the caches of the
+ * node are cleared.
+ * <p>
+ * The items whose entity is evicted are also reloaded into the {@link ItemCatalogSnapshot} and
+ * {@link ItemSearchService} of the other nodes, or removed from them if they were deleted. Their titles, and the
+ * logins and emails of the users whose caches are evicted, are added to the {@link ExistenceIndex} of the other nodes,
+ * so that they do not skip the lookups of the keys written since their index was built.
+ */
+@Service
+public class CacheInvalidationBus {
+
+    private final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private final String node = UUID.randomUUID().toString();
+
+    private final CacheInvalidationTransport transport;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final CacheManager cacheManager;
+
+    private final CatalogEpoch catalogEpoch;
+
+    private final ItemRepository itemRepository;
+
+    private final ItemCatalogSnapshot itemCatalogSnapshot;
+
+    private final ItemSearchService itemSearchService;
+
+    private final ExistenceIndex existenceIndex;
+
+    private final ObjectMapper objectMapper;
+
+    private final int maxBatchSize;
+
+    private final Counter sentKeysCounter;
+
+    private final Counter sentMessagesCounter;
+
+    private final Counter receivedKeysCounter;
+
+    private final Counter receivedMessagesCounter;
+
+    private final Counter gapsCounter;
+
+    private final ScheduledExecutorService flusher;
+
+    private Set<Key> pending = new LinkedHashSet<>();
+
+    public CacheInvalidationBus(ObjectProvider<CacheInvalidationTransport> transport, EntityManagerFactory entityManagerFactory,
+                                CacheManager cacheManager, CatalogEpoch catalogEpoch, ItemRepository itemRepository,
+                                ItemCatalogSnapshot itemCatalogSnapshot, ItemSearchService itemSearchService,
+                                ExistenceIndex existenceIndex, ObjectMapper objectMapper, ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.transport = transport.getIfAvailable();
+        this.entityManagerFactory = entityManagerFactory;
+        this.cacheManager = cacheManager;
+        this.catalogEpoch = catalogEpoch;
+        this.itemRepository = itemRepository;
+        this.itemCatalogSnapshot = itemCatalogSnapshot;
+        this.itemSearchService = itemSearchService;
+        this.existenceIndex = existenceIndex;
+        this.objectMapper = objectMapper;
+        this.maxBatchSize = applicationProperties.getCache().getInvalidation().getMaxBatchSize();
+        this.sentKeysCounter = keysCounter("sent", meterRegistry);
+        this.sentMessagesCounter = messagesCounter("sent", meterRegistry);
+        this.receivedKeysCounter = keysCounter("received", meterRegistry);
+        this.receivedMessagesCounter = messagesCounter("received", meterRegistry);
+        this.gapsCounter = Counter.builder("store.cache.invalidation.gaps")
+            .description("Number of times evictions may have been lost, and all the caches were cleared")
+            .register(meterRegistry);
+        Gauge.builder("store.cache.invalidation.pending", this, CacheInvalidationBus::countPending)
+            .description("Number of evictions committed and not broadcast yet")
+            .register(meterRegistry);
+        if (this.transport != null) {
+            this.transport.subscribe(this::receive, this::clearAll);
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("store-cache-invalidation-");
+            threadFactory.setDaemon(true);
+            this.flusher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            long flushInterval = applicationProperties.getCache().getInvalidation().getFlushInterval();
+            this.flusher.scheduleWithFixedDelay(this::scheduledFlush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Return whether the evictions are broadcast.
+     *
+     * @return {@code true} if there is a transport.
+     */
+    public boolean isEnabled() {
+        return transport != null;
+    }
+
+    /**
+     * Broadcast the eviction of an entity from the second level cache, once the current transaction commits.
+     *
+     * @param entityName the name of the entity.
+     * @param id the id of the entity.
+     */
+    public void evictEntity(String entityName, Long id) {
+        broadcast(new Key(Kind.ENTITY, entityName, id));
+    }
+
+    /**
+     * Broadcast the eviction of a collection from the second level cache, once the current transaction commits.
+     *
+     * @param role the role of the collection.
+     * @param ownerId the id of the owner of the collection.
+     */
+    public void evictCollection(String role, Long ownerId) {
+        broadcast(new Key(Kind.COLLECTION, role, ownerId));
+    }
+
+    /**
+     * Broadcast the eviction of a key from a Spring cache, once the current transaction commits.
+     *
+     * @param cacheName the name of the cache.
+     * @param key the key.
+     */
+    public void evictCache(String cacheName, String key) {
+        broadcast(new Key(Kind.CACHE, cacheName, key));
+    }
+
+    /**
+     * Send the evictions committed since the last flush, in batches of at most
+     * {@code application.cache.invalidation.max-batch-size} keys, and small enough for the transport.
+     */
+    public void flush() {
+        if (transport == null) {
+            return;
+        }
+        List<Key> keys;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            keys = new ArrayList<>(pending);
+            pending = new LinkedHashSet<>();
+        }
+        for (int i = 0; i < keys.size(); i += maxBatchSize) {
+            try {
+                publish(keys.subList(i, Math.min(keys.size(), i + maxBatchSize)));
+            } catch (RuntimeException e) {
+                // The keys of the batch already sent, if any, are evicted twice, which is harmless
+                log.warn("Could not broadcast the cache evictions, retrying at the next flush: {}", e.getMessage());
+                requeue(keys.subList(i, keys.size()));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stop flushing periodically, and send the evictions committed since the last flush.
+     */
+    @PreDestroy
+    public void close() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Thrown out, it would cancel the next flushes
+            log.error("Could not flush the cache evictions", e);
+        }
+    }
+
+    private void broadcast(Key key) {
+        if (transport == null || key.key == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(Collections.singleton(key));
+            return;
+        }
+        TransactionEvictions evictions = null;
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof TransactionEvictions && ((TransactionEvictions) synchronization).isOf(this)) {
+                evictions = (TransactionEvictions) synchronization;
+            }
+        }
+        if (evictions == null) {
+            evictions = new TransactionEvictions();
+            TransactionSynchronizationManager.registerSynchronization(evictions);
+        }
+        evictions.keys.add(key);
+    }
+
+    private synchronized void enqueue(Set<Key> keys) {
+        pending.addAll(keys);
+    }
+
+    private synchronized void requeue(List<Key> keys) {
+        Set<Key> unsent = new LinkedHashSet<>(keys);
+        unsent.addAll(pending);
+        pending = unsent;
+    }
+
+    private synchronized double countPending() {
+        return pending.size();
+    }
+
+    private void publish(List<Key> keys) {
+        CacheInvalidationDTO evictions = new CacheInvalidationDTO();
+        evictions.setNode(node);
+        for (Key key : keys) {
+            key.addTo(evictions);
+        }
+        String message;
+        try {
+            message = objectMapper.writeValueAsString(evictions);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        if (message.length() > transport.getMaxMessageSize() && keys.size() > 1) {
+            publish(keys.subList(0, keys.size() / 2));
+            publish(keys.subList(keys.size() / 2, keys.size()));
+            return;
+        }
+        transport.publish(message);
+        sentMessagesCounter.increment();
+        sentKeysCounter.increment(keys.size());
+    }
+
+    private void receive(String message) {
+        CacheInvalidationDTO evictions;
+        try {
+            evictions = objectMapper.readValue(message, CacheInvalidationDTO.class);
+        } catch (IOException e) {
+            log.warn("Ignoring invalid cache evictions: {}", e.getMessage());
+            return;
+        }
+        if (node.equals(evictions.getNode())) {
+            return;
+        }
+        log.debug("Received cache evictions: {}", evictions);
+        org.hibernate.Cache secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        evictions.getEntities().forEach((entityName, ids) -> ids.forEach(id -> secondLevelCache.evictEntityData(entityName, id)));
+        evictions.getCollections().forEach((role, ownerIds) -> ownerIds.forEach(ownerId -> secondLevelCache.evictCollectionData(role, ownerId)));
+        evictions.getCaches().forEach((cacheName, keys) -> {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                keys.forEach(cache::evict);
+            }
+        });
+        evictions.getCaches().getOrDefault(UserRepository.USERS_BY_LOGIN_CACHE, Collections.emptySet())
+            .forEach(login -> existenceIndex.add(ExistenceIndex.Kind.LOGIN, login));
+        evictions.getCaches().getOrDefault(UserRepository.USERS_BY_EMAIL_CACHE, Collections.emptySet())
+            .forEach(email -> existenceIndex.add(ExistenceIndex.Kind.EMAIL, email));
+        Set<Long> itemIds = evictions.getEntities().get(Item.class.getName());
+        if (itemIds != null) {
+            // Before the epoch advances, so that no stale result is cached under the new epoch
+            reloadItems(itemIds);
+            catalogEpoch.advance();
+        }
+        receivedMessagesCounter.increment();
+        receivedKeysCounter.increment(evictions.size());
+    }
+
+    private void reloadItems(Set<Long> itemIds) {
+        Set<Long> deletedIds = new HashSet<>(itemIds);
+        for (Object[] item : itemRepository.findReplicatedFieldsByIdIn(itemIds)) {
+            Long id = (Long) item[0];
+            deletedIds.remove(id);
+            itemCatalogSnapshot.put(id, (String) item[1], (Double) item[3], (Integer) item[4]);
+            itemSearchService.index(id, (String) item[1], (String) item[2]);
+            existenceIndex.add(ExistenceIndex.Kind.ITEM_TITLE, (String) item[1]);
+        }
+        for (Long id : deletedIds) {
+            itemCatalogSnapshot.remove(id);
+            itemSearchService.remove(id);
+        }
+    }
+
+    private void clearAll() {
+        log.warn("Cache evictions may have been lost, clearing all the caches");
+        gapsCounter.increment();
+        for (String cacheName : cacheManager.getCacheNames()) {
+            Objects.requireNonNull(cacheManager.getCache(cacheName)).clear();
+        }
+        catalogEpoch.advance();
+    }
+
+    private static Counter keysCounter(String direction, MeterRegistry meterRegistry) {
+        return Counter.builder("store.cache.invalidation.keys")
+            .description("Number of cache keys evicted, broadcast to or received from the other nodes")
+            .tag("direction", direction)
+            .register(meterRegistry);
+    }
+
+    private static Counter messagesCounter(String direction, MeterRegistry meterRegistry) {
+        return Counter.builder("store.cache.invalidation.messages")
+            .description("Number of batches of cache evictions sent to or received from the other nodes")
+            .tag("direction", direction)
+            .register(meterRegistry);
+    }
+
+    /**
+     * The evictions of a transaction, enqueued once it commits.
+     */
+    private final class TransactionEvictions extends TransactionSynchronizationAdapter {
+
+        private final Set<Key> keys = new LinkedHashSet<>();
+
+        private boolean isOf(CacheInvalidationBus bus) {
+            return bus == CacheInvalidationBus.this;
+        }
+
+        @Override
+        public void afterCommit() {
+            enqueue(keys);
+        }
+    }
+
+    private enum Kind {
+        ENTITY, COLLECTION, CACHE
+    }
+
+    /**
+     * A key evicted from a region.
+     */
+    private static final class Key {
+
+        private final Kind kind;
+
+        private final String region;
+
+        private final Object key;
+
+        private Key(Kind kind, String region, Object key) {
+            this.kind = kind;
+            this.region = region;
+            this.key = key;
+        }
+
+        private void addTo(CacheInvalidationDTO evictions) {
+            switch (kind) {
+                case ENTITY:
+                    evictions.entity(region, (Long) key);
+                    break;
+                case COLLECTION:
+                    evictions.collection(region, (Long) key);
+                    break;
+                default:
+                    evictions.cache(region, (String) key);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return kind == other.kind && region.equals(other.region) && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, region, key);
+        }
+    }
+}
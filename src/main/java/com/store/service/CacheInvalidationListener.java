@@ -0,0 +1,184 @@
+package com.store.service;
+
+import com.store.domain.Item;
+
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.engine.spi.CollectionEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hibernate listener handing the changes to the cached entities and collections over to the
+ * {@link CacheInvalidationBus}.
+ * <p>
+ * An inverse collection, such as the orders of a cart, is not changed through its owner: it changes with the
+ * association of its elements, so the change of an element evicts the collections of its old and new owners.
+ * <p>
+ * The changes to the items are handed over whether they are cached or not, new items included, as every node also
+ * holds them in its in-memory views of the catalog.
+ */
+@Component
+public class CacheInvalidationListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+    PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * The cached inverse collections, by entity name of their elements.
+     */
+    private final Map<String, List<InverseCollection>> inverseCollections = new HashMap<>();
+
+    public CacheInvalidationListener(CacheInvalidationBus cacheInvalidationBus, EntityManagerFactory entityManagerFactory) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    public void register() {
+        if (!cacheInvalidationBus.isEnabled()) {
+            return;
+        }
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        for (CollectionPersister collectionPersister : sessionFactory.getMetamodel().collectionPersisters().values()) {
+            if (!(collectionPersister instanceof AbstractCollectionPersister)) {
+                continue;
+            }
+            AbstractCollectionPersister persister = (AbstractCollectionPersister) collectionPersister;
+            if (persister.hasCache() && persister.isInverse() && persister.getElementType().isEntityType()
+                && persister.getMappedByProperty() != null) {
+                EntityPersister elementPersister = persister.getElementPersister();
+                inverseCollections.computeIfAbsent(elementPersister.getEntityName(), name -> new ArrayList<>())
+                    .add(new InverseCollection(persister.getRole(),
+                        elementPersister.getEntityMetamodel().getPropertyIndex(persister.getMappedByProperty())));
+            }
+        }
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        // A new entity is in no cache yet, only the collections it joins may be
+        if (event.getPersister().getMappedClass() == Item.class) {
+            evictEntity(event.getPersister(), event.getId());
+        }
+        evictInverseCollections(event.getPersister(), event.getState(), null);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        evictEntity(event.getPersister(), event.getId());
+        evictInverseCollections(event.getPersister(), event.getState(), event.getOldState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        evictEntity(event.getPersister(), event.getId());
+        evictInverseCollections(event.getPersister(), event.getDeletedState(), null);
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        evictCollection(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        evictCollection(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        evictCollection(event);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * Still abstract in Hibernate 5.3, which calls {@link #requiresPostCommitHandling} instead.
+     */
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    private void evictEntity(EntityPersister persister, Object id) {
+        if ((persister.hasCache() || persister.getMappedClass() == Item.class) && id instanceof Long) {
+            cacheInvalidationBus.evictEntity(persister.getEntityName(), (Long) id);
+        }
+    }
+
+    private void evictCollection(AbstractCollectionEvent event) {
+        // The role of a collection just wrapped is not set yet, unlike the persister of its entry
+        CollectionEntry entry = event.getSession().getPersistenceContext().getCollectionEntry(event.getCollection());
+        CollectionPersister persister = entry == null ? null : entry.getLoadedPersister();
+        if (persister != null && persister.hasCache() && event.getAffectedOwnerIdOrNull() instanceof Long) {
+            cacheInvalidationBus.evictCollection(persister.getRole(), (Long) event.getAffectedOwnerIdOrNull());
+        }
+    }
+
+    private void evictInverseCollections(EntityPersister persister, Object[] state, Object[] oldState) {
+        for (InverseCollection collection : inverseCollections.getOrDefault(persister.getEntityName(), Collections.emptyList())) {
+            evictInverseCollection(collection, state);
+            evictInverseCollection(collection, oldState);
+        }
+    }
+
+    private void evictInverseCollection(InverseCollection collection, Object[] state) {
+        Object owner = state == null ? null : state[collection.ownerPropertyIndex];
+        if (owner != null) {
+            Object ownerId = entityManagerFactory.getPersistenceUnitUtil().getIdentifier(owner);
+            if (ownerId instanceof Long) {
+                cacheInvalidationBus.evictCollection(collection.role, (Long) ownerId);
+            }
+        }
+    }
+
+    private static final class InverseCollection {
+
+        private final String role;
+
+        private final int ownerPropertyIndex;
+
+        private InverseCollection(String role, int ownerPropertyIndex) {
+            this.role = role;
+            this.ownerPropertyIndex = ownerPropertyIndex;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.store.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Transport of the cache evictions between the nodes of the application, used by the {@link CacheInvalidationBus}.
+ * <p>
+ * A message published is delivered to the subscribers of all the nodes, including the publishing one, at most once.
+ * When a transport may have lost messages, for instance while reconnecting, it tells its subscribers, which then
+ * can no longer trust their caches.
+ */
+public interface CacheInvalidationTransport extends AutoCloseable {
+
+    /**
+     * The largest message the transport can carry.
+     *
+     * @return the size, in characters.
+     */
+    int getMaxMessageSize();
+
+    /**
+     * Publish a message to all the subscribers.
+     *
+     * @param message the message.
+     * @throws RuntimeException if the message may not have been published.
+     */
+    void publish(String message);
+
+    /**
+     * Subscribe to the messages.
+     *
+     * @param onMessage called with each message received.
+     * @param onGap called when messages may have been lost.
+     */
+    void subscribe(Consumer<String> onMessage, Runnable onGap);
+
+    /**
+     * Stop receiving messages.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,305 @@
+package com.store.service;
+
+import com.store.config.ApplicationProperties;
+import com.store.domain.Cart;
+import com.store.domain.Item;
+import com.store.repository.UserRepository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Service warming up the {@link Item}, {@link Cart} and {@link UserRepository#USERS_BY_LOGIN_CACHE} cache regions at
+ * startup, so that the first requests after a deploy do not all hit the database.
+ * <p>
+ * The reads of these regions are counted by key, and the hottest keys of each region are saved periodically, and on
+ * shutdown, to a local file. At startup, before the application is reported ready, the entries of these keys are
+ * loaded again, in parallel batches, within a time budget: the batches not started by then are skipped.
+ */
+@Service
+public class CacheWarmupService implements ApplicationRunner {
+
+    /**
+     * The number of keys tracked per region, relative to the number of hot keys saved.
+     */
+    private static final int TRACKED_KEYS_FACTOR = 10;
+
+    private static final TypeReference<Map<String, List<Object>>> HOT_KEYS_TYPE = new TypeReference<Map<String, List<Object>>>() {
+    };
+
+    private final Logger log = LoggerFactory.getLogger(CacheWarmupService.class);
+
+    private final EntityManager entityManager;
+
+    private final UserRepository userRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ApplicationProperties.Cache.Warmup properties;
+
+    private final Map<String, Consumer<List<Object>>> loaders = new LinkedHashMap<>();
+
+    private final Map<String, ConcurrentMap<Object, LongAdder>> hits = new LinkedHashMap<>();
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final Timer warmupTimer;
+
+    public CacheWarmupService(EntityManager entityManager, UserRepository userRepository,
+                              PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                              ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.entityManager = entityManager;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.properties = applicationProperties.getCache().getWarmup();
+        loaders.put(Item.class.getName(), ids -> loadEntities(Item.class, ids));
+        loaders.put(Cart.class.getName(), ids -> loadEntities(Cart.class, ids));
+        loaders.put(UserRepository.USERS_BY_LOGIN_CACHE, logins -> logins.forEach(login ->
+            this.userRepository.findOneWithAuthoritiesByLogin(String.valueOf(login))));
+        for (String cacheName : loaders.keySet()) {
+            hits.put(cacheName, new ConcurrentHashMap<>());
+        }
+        this.warmupTimer = Timer.builder("store.cache.warmup")
+            .description("The time spent warming up the caches at startup")
+            .register(meterRegistry);
+        Gauge.builder("store.cache.warmup.pending", pending, AtomicLong::get)
+            .description("The number of keys left to load by the cache warm-up")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Count a read of a key of a cache region. Only the regions which can be warmed up are counted, and only a
+     * bounded number of keys per region: the keys read first are kept until the counts decay.
+     *
+     * @param cacheName the name of the region.
+     * @param key the key read: the id of an entity, or a login.
+     */
+    public void recordHit(String cacheName, Object key) {
+        if (!properties.isEnabled() || key == null) {
+            return;
+        }
+        ConcurrentMap<Object, LongAdder> counts = hits.get(cacheName);
+        if (counts == null) {
+            return;
+        }
+        LongAdder count = counts.get(key);
+        if (count == null) {
+            if (counts.size() >= properties.getHotKeys() * TRACKED_KEYS_FACTOR) {
+                return;
+            }
+            count = counts.computeIfAbsent(key, k -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * Warm up the caches before the application is reported ready.
+     *
+     * @param args the arguments of the application.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        warmUp();
+    }
+
+    /**
+     * Load the entries of the saved hot keys, in parallel batches, within the time budget.
+     */
+    public void warmUp() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Map<String, List<Object>> hotKeys = readHotKeys();
+        if (hotKeys.isEmpty()) {
+            return;
+        }
+        log.info("Warming up the caches with the hot keys of {}", properties.getFile());
+        long deadline = System.nanoTime() + properties.getTimeBudget().toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getParallelism(),
+            new CustomizableThreadFactory("store-cache-warmup-"));
+        long start = System.nanoTime();
+        try {
+            hotKeys.forEach((cacheName, keys) -> {
+                Consumer<List<Object>> loader = loaders.get(cacheName);
+                if (loader == null) {
+                    return;
+                }
+                for (int i = 0; i < keys.size(); i += properties.getBatchSize()) {
+                    List<Object> batch = keys.subList(i, Math.min(keys.size(), i + properties.getBatchSize()));
+                    pending.addAndGet(batch.size());
+                    executor.execute(new Batch(cacheName, loader, batch, deadline));
+                }
+            });
+            executor.shutdown();
+            if (!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                log.warn("The cache warm-up did not complete within {}", properties.getTimeBudget());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Runnable skipped : executor.shutdownNow()) {
+                ((Batch) skipped).skip();
+            }
+            warmupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        log.info("Warmed up the caches in {} ms", Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    /**
+     * Save the hottest keys of each region, and let their counts decay, so that the keys which were hot only in the
+     * past give way to the current ones.
+     */
+    @Scheduled(initialDelayString = "${application.cache.warmup.save-interval:300000}",
+        fixedDelayString = "${application.cache.warmup.save-interval:300000}")
+    @PreDestroy
+    public void saveHotKeys() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Map<String, List<Object>> hotKeys = new LinkedHashMap<>();
+        hits.forEach((cacheName, counts) -> {
+            List<Object> keys = counts.entrySet().stream()
+                .sorted(Map.Entry.<Object, LongAdder>comparingByValue(
+                    (a, b) -> Long.compare(b.sum(), a.sum())))
+                .limit(properties.getHotKeys())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+            if (!keys.isEmpty()) {
+                hotKeys.put(cacheName, keys);
+            }
+            counts.values().removeIf(count -> {
+                long decayed = count.sumThenReset() / 2;
+                count.add(decayed);
+                return decayed == 0;
+            });
+        });
+        if (hotKeys.isEmpty()) {
+            // Keep the keys saved by a previous run, rather than forget them before any traffic
+            return;
+        }
+        Path file = Paths.get(properties.getFile()).toAbsolutePath();
+        try {
+            Files.createDirectories(file.getParent());
+            Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temporaryFile.toFile(), hotKeys);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Saved the hot keys of {} cache regions to {}", hotKeys.size(), file);
+        } catch (IOException e) {
+            log.warn("Could not save the hot keys to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Map<String, List<Object>> readHotKeys() {
+        Path file = Paths.get(properties.getFile());
+        if (!Files.isReadable(file)) {
+            return Collections.emptyMap();
+        }
+        try {
+            return objectMapper.readValue(file.toFile(), HOT_KEYS_TYPE);
+        } catch (IOException e) {
+            log.warn("Could not read the hot keys from {}: {}", file, e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Load entities by id, with one query, which puts them in their cache region.
+     */
+    private <T> void loadEntities(Class<T> entityClass, List<Object> ids) {
+        List<Long> entityIds = ids.stream()
+            .map(id -> id instanceof Number ? ((Number) id).longValue() : Long.valueOf(String.valueOf(id)))
+            .collect(Collectors.toList());
+        entityManager.createQuery("select e from " + entityClass.getSimpleName() + " e where e.id in :ids", entityClass)
+            .setParameter("ids", entityIds)
+            .getResultList();
+    }
+
+    /**
+     * A batch of keys of a region to load, unless the time budget is exceeded.
+     */
+    private final class Batch implements Runnable {
+
+        private final String cacheName;
+
+        private final Consumer<List<Object>> loader;
+
+        private final List<Object> keys;
+
+        private final long deadline;
+
+        private Batch(String cacheName, Consumer<List<Object>> loader, List<Object> keys, long deadline) {
+            this.cacheName = cacheName;
+            this.loader = loader;
+            this.keys = keys;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            if (System.nanoTime() - deadline > 0) {
+                skip();
+                return;
+            }
+            try {
+                transactionTemplate.execute(status -> {
+                    loader.accept(keys);
+                    return null;
+                });
+                count("loaded");
+            } catch (RuntimeException e) {
+                log.warn("Could not warm up {} keys of {}: {}", keys.size(), cacheName, e.getMessage());
+                count("failed");
+            }
+        }
+
+        private void skip() {
+            count("skipped");
+        }
+
+        private void count(String result) {
+            pending.addAndGet(-keys.size());
+            meterRegistry.counter("store.cache.warmup.keys", "cache", cacheName, "result", result).increment(keys.size());
+        }
+    }
+}
@@ -1,17 +1,36 @@
 package com.store.service;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.jhipster.service.QueryService;
 
 import com.store.domain.Cart;
@@ -20,6 +39,12 @@ import com.store.repository.CartRepository;
 import com.store.service.dto.CartCriteria;
 import com.store.service.dto.CartDTO;
 import com.store.service.mapper.CartMapper;
+import com.store.service.util.FileFormat;
+import com.store.service.util.KeysetPagination;
+import com.store.service.util.KeysetSlice;
+import com.store.service.util.RowWriter;
+import com.store.service.util.SlicePagination;
+import com.store.service.util.SpecificationQueries;
 
 /**
  * Service for executing complex queries for {@link Cart} entities in the database.
@@ -31,15 +56,46 @@ import com.store.service.mapper.CartMapper;
 @Transactional(readOnly = true)
 public class CartQueryService extends QueryService<Cart> {
 
+    /**
+     * The properties a keyset-paginated slice can be sorted on.
+     */
+    public static final Set<String> KEYSET_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        "id", "email")));
+
+    /**
+     * The number of rows fetched per round trip by the exports.
+     */
+    public static final int EXPORT_FETCH_SIZE = 500;
+
+
+    private static final Map<String, Function<CartDTO, ?>> EXPORT_COLUMNS;
+
+    static {
+        Map<String, Function<CartDTO, ?>> columns = new LinkedHashMap<>();
+        columns.put("id", CartDTO::getId);
+        columns.put("email", CartDTO::getEmail);
+        columns.put("closedAt", CartDTO::getClosedAt);
+        columns.put("total", CartDTO::getTotal);
+        columns.put("lineCount", CartDTO::getLineCount);
+        EXPORT_COLUMNS = Collections.unmodifiableMap(columns);
+    }
+
     private final Logger log = LoggerFactory.getLogger(CartQueryService.class);
 
     private final CartRepository cartRepository;
 
     private final CartMapper cartMapper;
 
-    public CartQueryService(CartRepository cartRepository, CartMapper cartMapper) {
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    public CartQueryService(CartRepository cartRepository, CartMapper cartMapper, EntityManager entityManager,
+                            ObjectMapper objectMapper) {
         this.cartRepository = cartRepository;
         this.cartMapper = cartMapper;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -68,6 +124,38 @@ public class CartQueryService extends QueryService<Cart> {
             .map(cartMapper::toDto);
     }
 
+    /**
+     * Return a {@link Slice} of {@link CartDTO} which matches the criteria from the database.
+     * Unlike a {@link Page}, the matching entities are never counted.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param page The page, which should be returned.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public Slice<CartDTO> findSliceByCriteria(CartCriteria criteria, Pageable page) {
+        log.debug("find slice by criteria : {}, page: {}", criteria, page);
+        final Specification<Cart> specification = createSpecification(criteria);
+        return SlicePagination.fetch(entityManager, Cart.class, specification, page)
+            .map(cartMapper::toDto);
+    }
+
+    /**
+     * Return a {@link KeysetSlice} of {@link CartDTO} which matches the criteria from the database, starting after
+     * the given cursor. Unlike a {@link Page}, the matching entities are never counted.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param after The cursor returned with the previous slice, empty for the first one.
+     * @param page The size and sort of the slice, sorted on one of {@link #KEYSET_PROPERTIES}. The page number is ignored.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public KeysetSlice<CartDTO> findByCriteria(CartCriteria criteria, String after, Pageable page) {
+        log.debug("find by criteria : {}, after: {}, page: {}", criteria, after, page);
+        final Sort.Order order = KeysetPagination.getOrder(page.getSort(), KEYSET_PROPERTIES);
+        final Specification<Cart> specification = createSpecification(criteria).and(KeysetPagination.after(after, order));
+        return KeysetPagination.fetch(entityManager, Cart.class, specification, order, page.getPageSize())
+            .map(cartMapper::toDto);
+    }
+
     /**
      * Return the number of matching entities in the database.
      * @param criteria The object which holds all the filters, which the entities should match.
@@ -80,6 +168,46 @@ public class CartQueryService extends QueryService<Cart> {
         return cartRepository.count(specification);
     }
 
+    /**
+     * Write the entities which match the criteria to a file, by ascending id. The entities are read through a
+     * forward-only cursor, {@link #EXPORT_FETCH_SIZE} at a time, and written as they are read: only their columns are
+     * selected, so they never enter the persistence context, and the memory used does not depend on their number.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param format The format of the file.
+     * @param writer The file.
+     * @throws IOException if the file can not be written.
+     */
+    @Transactional(readOnly = true)
+    public void exportByCriteria(CartCriteria criteria, FileFormat format, Writer writer) throws IOException {
+        log.debug("export by criteria : {}, format: {}", criteria, format);
+        RowWriter<CartDTO> rowWriter = new RowWriter<>(format, writer, objectMapper, EXPORT_COLUMNS);
+        final Specification<Cart> specification = createSpecification(criteria);
+        try (Stream<Object[]> rows = SpecificationQueries.stream(SpecificationQueries.createQuery(entityManager, Cart.class,
+                specification, CartQueryService::exportSelection, Sort.by("id")), EXPORT_FETCH_SIZE)) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                rowWriter.write(toExportDto(iterator.next()));
+            }
+        }
+        rowWriter.flush();
+    }
+
+    private static List<Selection<?>> exportSelection(Root<Cart> root, CriteriaBuilder cb) {
+        return Arrays.asList(root.get(Cart_.id), root.get(Cart_.email), root.get(Cart_.closedAt), root.get(Cart_.total),
+            root.get(Cart_.lineCount), root.get(Cart_.version));
+    }
+
+    private static CartDTO toExportDto(Object[] row) {
+        CartDTO cartDTO = new CartDTO();
+        cartDTO.setId((Long) row[0]);
+        cartDTO.setEmail((String) row[1]);
+        cartDTO.setClosedAt((LocalDate) row[2]);
+        cartDTO.setTotal((Double) row[3]);
+        cartDTO.setLineCount((Integer) row[4]);
+        cartDTO.setVersion((Integer) row[5]);
+        return cartDTO;
+    }
+
     /**
      * Function to convert CartCriteria to a {@link Specification}.
      */
@@ -1,6 +1,7 @@
 package com.store.service;
 
 import com.store.service.dto.CartDTO;
+import com.store.service.dto.CartFullDTO;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -45,6 +46,22 @@ public interface CartService {
      */
     Optional<CartDTO> findOne(Long id);
 
+    /**
+     * Get the version of the "id" cart, without loading it.
+     *
+     * @param id the id of the entity.
+     * @return the version, or empty if the cart does not exist.
+     */
+    Optional<Integer> findVersion(Long id);
+
+    /**
+     * Get the "id" cart, with its orders and their items.
+     *
+     * @param id the id of the entity.
+     * @return the entity.
+     */
+    Optional<CartFullDTO> findOneFull(Long id);
+
     /**
      * Delete the "id" cart.
      *
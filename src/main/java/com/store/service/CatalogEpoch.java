@@ -0,0 +1,61 @@
+package com.store.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The write epoch of the catalog, advanced by every write to the {@link com.store.domain.Item}s, which invalidates
+ * the results cached for the previous epochs.
+ * <p>
+ * A write advances the epoch once its transaction completes, so that the next read after the write misses the cache
+ * and sees it. Until then, reads from within the writing transaction bypass the cache: they would see, and cache,
+ * uncommitted data.
+ */
+@Service
+public class CatalogEpoch {
+
+    private final AtomicLong epoch = new AtomicLong();
+
+    /**
+     * Return the current epoch.
+     *
+     * @return the current epoch.
+     */
+    public long get() {
+        return epoch.get();
+    }
+
+    /**
+     * Return whether the catalog was written by the current transaction.
+     *
+     * @return {@code true} if the catalog was written, and is not committed yet.
+     */
+    public boolean isWrittenInTransaction() {
+        return TransactionSynchronizationManager.hasResource(this);
+    }
+
+    /**
+     * Advance the epoch, once the current transaction completes.
+     */
+    public void advance() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            epoch.incrementAndGet();
+            return;
+        }
+        if (isWrittenInTransaction()) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                // Also on rollbacks: harmless, as nothing was cached meanwhile
+                TransactionSynchronizationManager.unbindResourceIfPossible(CatalogEpoch.this);
+                epoch.incrementAndGet();
+            }
+        });
+    }
+}
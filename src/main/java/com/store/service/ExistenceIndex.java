@@ -0,0 +1,373 @@
+package com.store.service;
+
+import com.store.config.ApplicationProperties;
+import com.store.repository.ItemRepository;
+import com.store.repository.UserRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service answering whether a login, an email or an item title may exist, from Bloom filters held in memory, so that
+ * the keys which do not exist, such as the logins probed at registration, are never looked up in the database.
+ * <p>
+ * A filter may answer that a key exists while it does not, at about the configured false positive rate, but never
+ * that an existing key does not: the keys which may exist are still looked up. The filters are built at startup by
+ * streaming the keys from the database, and the keys written are added to them right away, then again once their
+ * transaction commits, in case a rebuild read the database meanwhile. The deleted keys cannot be removed from a
+ * filter: they are shed by the periodic rebuild, which also catches up with the writes bypassing the services or
+ * made by the other nodes. Until then, the unique constraints of the database still reject their duplicates. Before
+ * the filters are built, or when the index is disabled, every key may exist.
+ */
+@Service
+public class ExistenceIndex {
+
+    /**
+     * The keys of the index.
+     */
+    public enum Kind {
+        LOGIN("login"),
+        /** Compared ignoring case, as lowercased. */
+        EMAIL("email"),
+        ITEM_TITLE("item-title");
+
+        private final String tag;
+
+        Kind(String tag) {
+            this.tag = tag;
+        }
+
+        private String normalize(String key) {
+            return this == EMAIL ? key.toLowerCase() : key;
+        }
+    }
+
+    /**
+     * The filters hold twice as many keys as when they are built, and at least this, at their false positive rate.
+     */
+    private static final long MIN_CAPACITY = 1024;
+
+    private final Logger log = LoggerFactory.getLogger(ExistenceIndex.class);
+
+    private final UserRepository userRepository;
+
+    private final ItemRepository itemRepository;
+
+    private final boolean enabled;
+
+    private final double falsePositiveRate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer buildTimer;
+
+    private volatile Map<Kind, BloomFilter> filters;
+
+    /**
+     * The keys added while the filters are rebuilt, to add to the rebuilt filters, or {@code null} when they are not
+     * being rebuilt. Guarded by {@code this}, like all the additions.
+     */
+    private List<Map.Entry<Kind, String>> pendingKeys;
+
+    public ExistenceIndex(UserRepository userRepository, ItemRepository itemRepository,
+                          ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.itemRepository = itemRepository;
+        this.enabled = applicationProperties.getExistenceIndex().isEnabled();
+        this.falsePositiveRate = applicationProperties.getExistenceIndex().getFalsePositiveRate();
+        this.meterRegistry = meterRegistry;
+        this.buildTimer = Timer.builder("store.existence.index.build")
+            .description("Time spent building the existence index")
+            .register(meterRegistry);
+        for (Kind kind : Kind.values()) {
+            Gauge.builder("store.existence.index.false.positive.rate", this, index -> index.measure(kind, BloomFilter::getFalsePositiveRate))
+                .description("Expected rate of the keys reported as possibly existing while they do not, from the bits set in the index")
+                .tag("index", kind.tag)
+                .register(meterRegistry);
+            Gauge.builder("store.existence.index.memory", this, index -> index.measure(kind, BloomFilter::getMemory))
+                .description("Memory held by the bits of the existence index")
+                .tag("index", kind.tag)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Rebuild the whole index from the database, if it is enabled. The keys added meanwhile are added to the rebuilt
+     * index before it is published.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${application.existence-index.rebuild-interval:3600000}",
+        initialDelayString = "${application.existence-index.rebuild-interval:3600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            if (pendingKeys != null) {
+                log.debug("Existence index already being rebuilt");
+                return;
+            }
+            pendingKeys = new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        try {
+            Map<Kind, BloomFilter> built = new EnumMap<>(Kind.class);
+            long users = userRepository.count();
+            BloomFilter logins = newFilter(users);
+            BloomFilter emails = newFilter(users);
+            try (Stream<Object[]> rows = userRepository.streamAllLoginsAndLowerCaseEmails()) {
+                rows.forEach(row -> {
+                    logins.put((String) row[0]);
+                    if (row[1] != null) {
+                        emails.put((String) row[1]);
+                    }
+                });
+            }
+            long items = itemRepository.count();
+            BloomFilter titles = newFilter(items);
+            try (Stream<String> rows = itemRepository.streamAllTitles()) {
+                rows.forEach(titles::put);
+            }
+            built.put(Kind.LOGIN, logins);
+            built.put(Kind.EMAIL, emails);
+            built.put(Kind.ITEM_TITLE, titles);
+            synchronized (this) {
+                for (Map.Entry<Kind, String> key : pendingKeys) {
+                    built.get(key.getKey()).put(key.getValue());
+                }
+                filters = built;
+            }
+            log.debug("Built existence index of {} users and {} items in {} ms", users, items,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            synchronized (this) {
+                pendingKeys = null;
+            }
+            buildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Return whether a key may exist: {@code false} if it certainly does not.
+     *
+     * @param kind the kind of the key.
+     * @param key the key.
+     * @return {@code true} if the key may exist.
+     */
+    public boolean mightExist(Kind kind, String key) {
+        Map<Kind, BloomFilter> current = filters;
+        if (current == null || key == null || current.get(kind).mightContain(kind.normalize(key))) {
+            return true;
+        }
+        count(kind, "skipped");
+        return false;
+    }
+
+    /**
+     * Look a key up, unless it certainly does not exist.
+     *
+     * @param kind the kind of the key.
+     * @param key the key.
+     * @param finder the lookup of the key in the database.
+     * @param <T> the type of the result.
+     * @return the result of the lookup, or empty if the key certainly does not exist.
+     */
+    public <T> Optional<T> find(Kind kind, String key, Function<String, Optional<T>> finder) {
+        Map<Kind, BloomFilter> current = filters;
+        if (!mightExist(kind, key)) {
+            return Optional.empty();
+        }
+        Optional<T> found = finder.apply(key);
+        if (current != null) {
+            count(kind, found.isPresent() ? "found" : "false-positive");
+        }
+        return found;
+    }
+
+    /**
+     * Look the keys up, but those which certainly do not exist, in a single lookup, which is skipped if none may.
+     *
+     * @param kind the kind of the keys.
+     * @param keys the keys.
+     * @param finder the lookup of the keys in the database, returning those which exist.
+     * @return the keys which exist.
+     */
+    public Set<String> findExisting(Kind kind, Collection<String> keys, Function<Collection<String>, Collection<String>> finder) {
+        Map<Kind, BloomFilter> current = filters;
+        List<String> candidates = keys.stream().filter(key -> mightExist(kind, key)).collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> existing = new HashSet<>(finder.apply(candidates));
+        if (current != null) {
+            for (String candidate : candidates) {
+                count(kind, existing.contains(candidate) ? "found" : "false-positive");
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Add a key written by the current transaction, if any.
+     *
+     * @param kind the kind of the key.
+     * @param key the key, ignored if {@code null}.
+     */
+    public void add(Kind kind, String key) {
+        if (!enabled || key == null) {
+            return;
+        }
+        String normalized = kind.normalize(key);
+        put(kind, normalized);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    put(kind, normalized);
+                }
+            });
+        }
+    }
+
+    private void put(Kind kind, String key) {
+        synchronized (this) {
+            Map<Kind, BloomFilter> current = filters;
+            if (current != null) {
+                current.get(kind).put(key);
+            }
+            if (pendingKeys != null) {
+                pendingKeys.add(new AbstractMap.SimpleImmutableEntry<>(kind, key));
+            }
+        }
+    }
+
+    private BloomFilter newFilter(long keys) {
+        return new BloomFilter(Math.max(2 * keys, MIN_CAPACITY), falsePositiveRate);
+    }
+
+    private double measure(Kind kind, ToDoubleFunction<BloomFilter> measure) {
+        Map<Kind, BloomFilter> current = filters;
+        return current == null ? 0 : measure.applyAsDouble(current.get(kind));
+    }
+
+    private void count(Kind kind, String result) {
+        Counter.builder("store.existence.index.lookups")
+            .description("Number of lookups skipped as their key certainly does not exist, and of those done, which found their key or not")
+            .tag("index", kind.tag)
+            .tag("result", result)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * A Bloom filter of strings, sized for a number of keys at a false positive rate, safe for concurrent use. The bits
+     * of a key are derived from two 64 bits hashes of it.
+     */
+    private static final class BloomFilter {
+
+        private final AtomicLongArray words;
+
+        private final long bitCount;
+
+        private final int hashCount;
+
+        private final AtomicLong setBitCount = new AtomicLong();
+
+        BloomFilter(long capacity, double falsePositiveRate) {
+            long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) Math.max(1, (bits + 63) / 64));
+            this.bitCount = words.length() * 64L;
+            this.hashCount = (int) Math.max(1, Math.round((double) bitCount / capacity * Math.log(2)));
+        }
+
+        void put(String key) {
+            long hash1 = hash(key);
+            long hash2 = mix(hash1 + 0x9E3779B97F4A7C15L);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+                long mask = 1L << bit;
+                if ((words.getAndAccumulate((int) (bit >>> 6), mask, (word, set) -> word | set) & mask) == 0) {
+                    setBitCount.incrementAndGet();
+                }
+            }
+        }
+
+        boolean mightContain(String key) {
+            long hash1 = hash(key);
+            long hash2 = mix(hash1 + 0x9E3779B97F4A7C15L);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * The probability that all the bits of a key which was not added are set.
+         */
+        double getFalsePositiveRate() {
+            return Math.pow((double) setBitCount.get() / bitCount, hashCount);
+        }
+
+        double getMemory() {
+            return words.length() * 8.0;
+        }
+
+        /**
+         * FNV-1a of the characters, mixed.
+         */
+        private static long hash(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return mix(hash);
+        }
+
+        /**
+         * The finalizer of MurmurHash3, spreading every bit of the input over the output.
+         */
+        private static long mix(long hash) {
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb93fe53a89c5L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,573 @@
+package com.store.service;
+
+import com.store.config.ApplicationProperties;
+import com.store.repository.ItemRepository;
+import com.store.service.dto.ItemCriteria;
+
+import io.github.jhipster.service.filter.Filter;
+import io.github.jhipster.service.filter.RangeFilter;
+import io.github.jhipster.service.filter.StringFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoublePredicate;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Service evaluating the {@link ItemCriteria} filters on the id, title, price and count of the
+ * {@link com.store.domain.Item}s against an in-memory, columnar snapshot of the catalog, without hitting the database.
+ * <p>
+ * The snapshot is made of primitive arrays sorted by item id, which are never modified once published: a write
+ * copies the columns it changes, and publishes the new snapshot with a single atomic reference swap. A query is
+ * evaluated against the snapshot it read first, without any lock, so readers never block writers. The writes are
+ * applied by {@link #put}, {@link #remove} and {@link #refreshCounts} once their transaction commits, and the whole
+ * snapshot is rebuilt periodically, to catch up with the writes bypassing the services.
+ */
+@Service
+public class ItemCatalogSnapshot {
+
+    /**
+     * The properties the snapshot sorts on. The titles are left to the database, whose collation orders the case
+     * and the accents unlike {@link String#compareTo}, so that every path lists the items in the same order.
+     */
+    private static final Set<String> SORT_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        "id", "price", "count")));
+
+    private final Logger log = LoggerFactory.getLogger(ItemCatalogSnapshot.class);
+
+    private final ItemRepository itemRepository;
+
+    private final boolean enabled;
+
+    private final Timer buildTimer;
+
+    private final AtomicReference<Columns> columns = new AtomicReference<>();
+
+    /**
+     * The writes applied while the snapshot is rebuilt, to replay on the rebuilt snapshot, or {@code null} when it
+     * is not being rebuilt. Guarded by {@code this}, like all the writes.
+     */
+    private List<UnaryOperator<Columns>> pendingWrites;
+
+    public ItemCatalogSnapshot(ItemRepository itemRepository, ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.itemRepository = itemRepository;
+        this.enabled = applicationProperties.getCatalogSnapshot().isEnabled();
+        this.buildTimer = Timer.builder("store.item.catalog.snapshot.build")
+            .description("Time spent building the item catalog snapshot")
+            .register(meterRegistry);
+        Gauge.builder("store.item.catalog.snapshot.items", this, ItemCatalogSnapshot::getItemCount)
+            .description("Number of items in the item catalog snapshot")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Rebuild the whole snapshot from the database, if it is enabled. The writes committed meanwhile are applied to
+     * the rebuilt snapshot before it is published.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${application.catalog-snapshot.rebuild-interval:600000}",
+        initialDelayString = "${application.catalog-snapshot.rebuild-interval:600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            if (pendingWrites != null) {
+                log.debug("Item catalog snapshot already being rebuilt");
+                return;
+            }
+            pendingWrites = new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        try {
+            Columns.Builder builder = new Columns.Builder();
+            try (Stream<Object[]> items = itemRepository.streamAllCatalogFields()) {
+                items.forEach(item -> builder.add((Long) item[0], (String) item[1], (Double) item[2], (Integer) item[3]));
+            }
+            Columns built = builder.build();
+            synchronized (this) {
+                for (UnaryOperator<Columns> write : pendingWrites) {
+                    built = write.apply(built);
+                }
+                columns.set(built);
+            }
+            log.debug("Built item catalog snapshot of {} items in {} ms", built.size,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            synchronized (this) {
+                pendingWrites = null;
+            }
+            buildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Add or replace an item in the snapshot, once the current transaction, if any, commits.
+     *
+     * @param id the id of the item.
+     * @param title the title of the item.
+     * @param price the price of the item.
+     * @param count the stock of the item.
+     */
+    public void put(Long id, String title, Double price, Integer count) {
+        write(snapshot -> snapshot.with(id, title, price, count));
+    }
+
+    /**
+     * Remove an item from the snapshot, once the current transaction, if any, commits.
+     *
+     * @param id the id of the item.
+     */
+    public void remove(Long id) {
+        write(snapshot -> snapshot.without(id));
+    }
+
+    /**
+     * Read the stock of the given items within the current transaction, which changed it, and apply it to the
+     * snapshot once the transaction commits. The stock read is the one committed, as the changed rows are locked.
+     *
+     * @param itemIds the ids of the items.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refreshCounts(Collection<Long> itemIds) {
+        if (!enabled || itemIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Object[] item : itemRepository.findCountsByIdIn(itemIds)) {
+            counts.put((Long) item[0], (Integer) item[1]);
+        }
+        write(snapshot -> snapshot.withCounts(counts));
+    }
+
+    /**
+     * Return whether the criteria and sort can be evaluated against the snapshot: it is built, and only the
+     * filters and sort properties it holds are used.
+     *
+     * @param criteria the criteria, may be {@code null}.
+     * @param sort the sort.
+     * @return {@code true} if {@link #findIds} and {@link #count} can be called.
+     */
+    public boolean canEvaluate(ItemCriteria criteria, Sort sort) {
+        if (columns.get() == null) {
+            return false;
+        }
+        if (criteria != null) {
+            if (criteria.getDescription() != null) {
+                return false;
+            }
+            StringFilter title = criteria.getTitle();
+            if (title != null && title.getEquals() == null && title.getIn() == null && title.getContains() != null
+                && (title.getContains().indexOf('%') >= 0 || title.getContains().indexOf('_') >= 0)) {
+                // Wildcards of the like operator
+                return false;
+            }
+        }
+        for (Sort.Order order : sort) {
+            if (!SORT_PROPERTIES.contains(order.getProperty())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the ids of the items matching the criteria, in the order of the sort, then of their ids.
+     *
+     * @param criteria the criteria, may be {@code null}.
+     * @param sort the sort, on the id, price or count.
+     * @return the ids of the matching items.
+     */
+    public List<Long> findIds(ItemCriteria criteria, Sort sort) {
+        Columns snapshot = snapshot();
+        return snapshot.ids(snapshot.sort(snapshot.match(criteria), sort), 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Return a page of the ids of the items matching the criteria, in the order of the sort of the page, then of
+     * their ids.
+     *
+     * @param criteria the criteria, may be {@code null}.
+     * @param page the page, sorted on the id, price or count.
+     * @return the ids of the matching items.
+     */
+    public Page<Long> findIds(ItemCriteria criteria, Pageable page) {
+        Columns snapshot = snapshot();
+        int[] rows = snapshot.sort(snapshot.match(criteria), page.getSort());
+        List<Long> ids = page.isPaged()
+            ? snapshot.ids(rows, page.getOffset(), page.getPageSize())
+            : snapshot.ids(rows, 0, Integer.MAX_VALUE);
+        return new PageImpl<>(ids, page, rows.length);
+    }
+
+    /**
+     * Return the number of items matching the criteria.
+     *
+     * @param criteria the criteria, may be {@code null}.
+     * @return the number of matching items.
+     */
+    public long count(ItemCriteria criteria) {
+        return snapshot().match(criteria).length;
+    }
+
+    private int getItemCount() {
+        Columns current = columns.get();
+        return current == null ? 0 : current.size;
+    }
+
+    private Columns snapshot() {
+        Columns current = columns.get();
+        if (current == null) {
+            throw new IllegalStateException("The item catalog snapshot is not built");
+        }
+        return current;
+    }
+
+    private void write(UnaryOperator<Columns> write) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            synchronized (this) {
+                Columns current = columns.get();
+                if (current != null) {
+                    columns.set(write.apply(current));
+                }
+                if (pendingWrites != null) {
+                    pendingWrites.add(write);
+                }
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * The immutable columns of the snapshot, one row per item, sorted by id. The titles are interned, and also kept
+     * upper-cased for the {@code contains} filters.
+     */
+    private static final class Columns {
+
+        private final long[] ids;
+
+        private final String[] titles;
+
+        private final String[] upperTitles;
+
+        private final double[] prices;
+
+        private final int[] counts;
+
+        private final int size;
+
+        Columns(long[] ids, String[] titles, String[] upperTitles, double[] prices, int[] counts) {
+            this.ids = ids;
+            this.titles = titles;
+            this.upperTitles = upperTitles;
+            this.prices = prices;
+            this.counts = counts;
+            this.size = ids.length;
+        }
+
+        Columns with(long id, String title, double price, int count) {
+            int row = Arrays.binarySearch(ids, id);
+            if (row >= 0) {
+                // The ids are shared with this snapshot, the other columns are copied
+                Columns copy = new Columns(ids, titles.clone(), upperTitles.clone(), prices.clone(), counts.clone());
+                copy.set(row, title, price, count);
+                return copy;
+            }
+            row = -row - 1;
+            Columns copy = new Columns(insert(ids, row, long[]::new), insert(titles, row, String[]::new),
+                insert(upperTitles, row, String[]::new), insert(prices, row, double[]::new), insert(counts, row, int[]::new));
+            copy.ids[row] = id;
+            copy.set(row, title, price, count);
+            return copy;
+        }
+
+        Columns without(long id) {
+            int row = Arrays.binarySearch(ids, id);
+            if (row < 0) {
+                return this;
+            }
+            return new Columns(delete(ids, row, long[]::new), delete(titles, row, String[]::new),
+                delete(upperTitles, row, String[]::new), delete(prices, row, double[]::new), delete(counts, row, int[]::new));
+        }
+
+        Columns withCounts(Map<Long, Integer> newCounts) {
+            int[] copy = counts.clone();
+            newCounts.forEach((id, count) -> {
+                int row = Arrays.binarySearch(ids, id);
+                if (row >= 0) {
+                    copy[row] = count;
+                }
+            });
+            // Only the counts are copied
+            return new Columns(ids, titles, upperTitles, prices, copy);
+        }
+
+        /**
+         * Return the rows matching the criteria, by ascending id.
+         */
+        int[] match(ItemCriteria criteria) {
+            IntPredicate predicate = row -> true;
+            if (criteria != null) {
+                if (criteria.getId() != null) {
+                    LongPredicate id = longPredicate(criteria.getId());
+                    predicate = predicate.and(row -> id.test(ids[row]));
+                }
+                if (criteria.getTitle() != null) {
+                    predicate = predicate.and(titlePredicate(criteria.getTitle()));
+                }
+                if (criteria.getPrice() != null) {
+                    DoublePredicate price = doublePredicate(criteria.getPrice());
+                    predicate = predicate.and(row -> price.test(prices[row]));
+                }
+                if (criteria.getCount() != null) {
+                    LongPredicate count = longPredicate(criteria.getCount());
+                    predicate = predicate.and(row -> count.test(counts[row]));
+                }
+            }
+            int[] rows = new int[size];
+            int matched = 0;
+            for (int row = 0; row < size; row++) {
+                if (predicate.test(row)) {
+                    rows[matched++] = row;
+                }
+            }
+            return Arrays.copyOf(rows, matched);
+        }
+
+        /**
+         * Sort the rows, which are sorted by ascending id, in the order of the sort then of their ids.
+         */
+        int[] sort(int[] rows, Sort sort) {
+            Comparator<Integer> comparator = null;
+            for (Sort.Order order : sort) {
+                Comparator<Integer> next = comparator(order);
+                comparator = comparator == null ? next : comparator.thenComparing(next);
+            }
+            if (comparator == null) {
+                return rows;
+            }
+            Integer[] sorted = Arrays.stream(rows).boxed().toArray(Integer[]::new);
+            // Stable, the ties stay sorted by id
+            Arrays.sort(sorted, comparator);
+            return Arrays.stream(sorted).mapToInt(Integer::intValue).toArray();
+        }
+
+        List<Long> ids(int[] rows, long offset, int limit) {
+            List<Long> result = new ArrayList<>();
+            for (long i = offset; i < rows.length && i < offset + limit; i++) {
+                result.add(ids[rows[(int) i]]);
+            }
+            return result;
+        }
+
+        private void set(int row, String title, double price, int count) {
+            titles[row] = title.intern();
+            upperTitles[row] = title.toUpperCase();
+            prices[row] = price;
+            counts[row] = count;
+        }
+
+        private Comparator<Integer> comparator(Sort.Order order) {
+            Comparator<Integer> comparator;
+            switch (order.getProperty()) {
+                case "id":
+                    comparator = (a, b) -> Long.compare(ids[a], ids[b]);
+                    break;
+                case "price":
+                    comparator = (a, b) -> Double.compare(prices[a], prices[b]);
+                    break;
+                case "count":
+                    comparator = (a, b) -> Integer.compare(counts[a], counts[b]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown sort property: " + order.getProperty());
+            }
+            return order.isAscending() ? comparator : comparator.reversed();
+        }
+
+        private IntPredicate titlePredicate(StringFilter filter) {
+            if (filter.getEquals() != null) {
+                String equals = filter.getEquals();
+                return row -> titles[row].equals(equals);
+            }
+            if (filter.getIn() != null) {
+                Set<String> in = new HashSet<>(filter.getIn());
+                return row -> in.contains(titles[row]);
+            }
+            if (filter.getContains() != null) {
+                String contains = filter.getContains().toUpperCase();
+                return row -> upperTitles[row].contains(contains);
+            }
+            // The titles are never null
+            return row -> filter.getSpecified() == null || filter.getSpecified();
+        }
+
+        /**
+         * Same precedence as {@link io.github.jhipster.service.QueryService}: {@code equals}, else {@code in}, else
+         * {@code specified} along with the ranges. The columns are never null.
+         */
+        private static LongPredicate longPredicate(Filter<? extends Number> filter) {
+            if (filter.getEquals() != null) {
+                long equals = filter.getEquals().longValue();
+                return value -> value == equals;
+            }
+            if (filter.getIn() != null) {
+                long[] in = filter.getIn().stream().mapToLong(Number::longValue).sorted().toArray();
+                return value -> Arrays.binarySearch(in, value) >= 0;
+            }
+            LongPredicate predicate = value -> filter.getSpecified() == null || filter.getSpecified();
+            if (filter instanceof RangeFilter) {
+                RangeFilter<? extends Number> range = (RangeFilter<? extends Number>) filter;
+                if (range.getGreaterThan() != null) {
+                    long bound = range.getGreaterThan().longValue();
+                    predicate = predicate.and(value -> value > bound);
+                }
+                if (range.getGreaterOrEqualThan() != null) {
+                    long bound = range.getGreaterOrEqualThan().longValue();
+                    predicate = predicate.and(value -> value >= bound);
+                }
+                if (range.getLessThan() != null) {
+                    long bound = range.getLessThan().longValue();
+                    predicate = predicate.and(value -> value < bound);
+                }
+                if (range.getLessOrEqualThan() != null) {
+                    long bound = range.getLessOrEqualThan().longValue();
+                    predicate = predicate.and(value -> value <= bound);
+                }
+            }
+            return predicate;
+        }
+
+        private static DoublePredicate doublePredicate(RangeFilter<Double> filter) {
+            if (filter.getEquals() != null) {
+                double equals = filter.getEquals();
+                return value -> value == equals;
+            }
+            if (filter.getIn() != null) {
+                double[] in = filter.getIn().stream().mapToDouble(Double::doubleValue).sorted().toArray();
+                return value -> Arrays.binarySearch(in, value) >= 0;
+            }
+            DoublePredicate predicate = value -> filter.getSpecified() == null || filter.getSpecified();
+            if (filter.getGreaterThan() != null) {
+                double bound = filter.getGreaterThan();
+                predicate = predicate.and(value -> value > bound);
+            }
+            if (filter.getGreaterOrEqualThan() != null) {
+                double bound = filter.getGreaterOrEqualThan();
+                predicate = predicate.and(value -> value >= bound);
+            }
+            if (filter.getLessThan() != null) {
+                double bound = filter.getLessThan();
+                predicate = predicate.and(value -> value < bound);
+            }
+            if (filter.getLessOrEqualThan() != null) {
+                double bound = filter.getLessOrEqualThan();
+                predicate = predicate.and(value -> value <= bound);
+            }
+            return predicate;
+        }
+
+        private static <A> A insert(A array, int row, IntFunction<A> newArray) {
+            int length = java.lang.reflect.Array.getLength(array);
+            A copy = newArray.apply(length + 1);
+            System.arraycopy(array, 0, copy, 0, row);
+            System.arraycopy(array, row, copy, row + 1, length - row);
+            return copy;
+        }
+
+        private static <A> A delete(A array, int row, IntFunction<A> newArray) {
+            int length = java.lang.reflect.Array.getLength(array);
+            A copy = newArray.apply(length - 1);
+            System.arraycopy(array, 0, copy, 0, row);
+            System.arraycopy(array, row + 1, copy, row, length - row - 1);
+            return copy;
+        }
+
+        /**
+         * Grows the columns of a snapshot, from rows added by ascending id.
+         */
+        static final class Builder {
+
+            private long[] ids = new long[256];
+
+            private String[] titles = new String[256];
+
+            private double[] prices = new double[256];
+
+            private int[] counts = new int[256];
+
+            private int size;
+
+            void add(long id, String title, double price, int count) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    titles = Arrays.copyOf(titles, size * 2);
+                    prices = Arrays.copyOf(prices, size * 2);
+                    counts = Arrays.copyOf(counts, size * 2);
+                }
+                ids[size] = id;
+                titles[size] = title.intern();
+                prices[size] = price;
+                counts[size] = count;
+                size++;
+            }
+
+            Columns build() {
+                String[] builtTitles = Arrays.copyOf(titles, size);
+                String[] upperTitles = new String[size];
+                for (int i = 0; i < size; i++) {
+                    upperTitles[i] = builtTitles[i].toUpperCase();
+                }
+                return new Columns(Arrays.copyOf(ids, size), builtTitles, upperTitles, Arrays.copyOf(prices, size),
+                    Arrays.copyOf(counts, size));
+            }
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.store.service;
+
+import com.store.domain.Item;
+import com.store.repository.ItemRepository;
+import com.store.service.dto.ItemDTO;
+import com.store.service.dto.ItemImportResultDTO;
+import com.store.service.mapper.ItemMapper;
+import com.store.service.util.CsvReader;
+import com.store.service.util.FileFormat;
+import com.store.web.rest.errors.BadRequestAlertException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Service for importing {@link Item}s in bulk, from CSV or newline delimited JSON.
+ * <p>
+ * The file is streamed: the rows are read, validated and written by batches of {@link #BATCH_SIZE}, and only the
+ * current batch is held in memory. The titles of a batch are checked against the database with a single select,
+ * and the batch is inserted in a transaction of its own, with JDBC batching, its ids taken from the pooled sequence.
+ * Invalid rows are reported, and skipped, without aborting the rest of the file.
+ */
+@Service
+public class ItemImportService {
+
+    /**
+     * The number of rows inserted per transaction, and per JDBC batch.
+     */
+    public static final int BATCH_SIZE = 500;
+
+    /**
+     * The number of row errors reported in the result; the following ones are only counted.
+     */
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final String ENTITY_NAME = "item";
+
+    private static final List<String> CSV_COLUMNS = Collections.unmodifiableList(Arrays.asList(
+        "title", "description", "price", "count"));
+
+    private final Logger log = LoggerFactory.getLogger(ItemImportService.class);
+
+    private final ItemRepository itemRepository;
+
+    private final ItemMapper itemMapper;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Validator validator;
+
+    private final ObjectMapper objectMapper;
+
+    private final ItemSearchService itemSearchService;
+
+    private final ItemThumbnailService itemThumbnailService;
+
+    private final ItemCatalogSnapshot itemCatalogSnapshot;
+
+    private final CatalogEpoch catalogEpoch;
+
+    private final ExistenceIndex existenceIndex;
+
+    private final Timer importTimer;
+
+    private final Counter importedCounter;
+
+    private final Counter failedCounter;
+
+    public ItemImportService(ItemRepository itemRepository, ItemMapper itemMapper, EntityManager entityManager,
+                             PlatformTransactionManager transactionManager, Validator validator, ObjectMapper objectMapper,
+                             ItemSearchService itemSearchService, ItemThumbnailService itemThumbnailService,
+                             ItemCatalogSnapshot itemCatalogSnapshot, CatalogEpoch catalogEpoch, ExistenceIndex existenceIndex,
+                             MeterRegistry meterRegistry) {
+        this.itemRepository = itemRepository;
+        this.itemMapper = itemMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.itemSearchService = itemSearchService;
+        this.itemThumbnailService = itemThumbnailService;
+        this.itemCatalogSnapshot = itemCatalogSnapshot;
+        this.catalogEpoch = catalogEpoch;
+        this.existenceIndex = existenceIndex;
+        this.importTimer = Timer.builder("store.item.import")
+            .description("Time spent importing item files")
+            .register(meterRegistry);
+        this.importedCounter = Counter.builder("store.item.import.rows")
+            .description("Number of rows of the imported item files")
+            .tag("result", "imported")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("store.item.import.rows")
+            .description("Number of rows of the imported item files")
+            .tag("result", "failed")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Import the items of a file. Each batch of rows is committed on its own, so the rows imported before a failure
+     * to read the file stay imported.
+     *
+     * @param reader the file.
+     * @param format the format of the file: CSV with a header naming the {@code title}, {@code description},
+     *               {@code price} and {@code count} columns, or one {@link ItemDTO} JSON object per line.
+     * @return the number of imported and failed rows, and the errors of the first failed rows.
+     * @throws IOException if the file can not be read.
+     * @throws BadRequestAlertException if the header of a CSV file does not name the expected columns.
+     */
+    public ItemImportResultDTO importItems(Reader reader, FileFormat format) throws IOException {
+        log.debug("Request to import Items from {}", format);
+        long start = System.nanoTime();
+        ItemImportResultDTO result = new ItemImportResultDTO();
+        RowReader rows = format == FileFormat.CSV ? new CsvRowReader(reader) : new NdjsonRowReader(reader);
+        List<Row> batch = new ArrayList<>(BATCH_SIZE);
+        Row row;
+        while ((row = rows.next()) != null) {
+            String error = row.error != null ? row.error : validate(row.item);
+            if (error != null) {
+                fail(result, row, error);
+            } else {
+                batch.add(row);
+                if (batch.size() == BATCH_SIZE) {
+                    write(batch, result);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, result);
+        }
+        long duration = System.nanoTime() - start;
+        importTimer.record(duration, TimeUnit.NANOSECONDS);
+        result.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(duration));
+        result.setRowsPerSecond((result.getImported() + result.getFailed()) * 1e9 / Math.max(duration, 1));
+        log.info("Imported {} items, {} rows failed, at {} rows/s", result.getImported(), result.getFailed(),
+            Math.round(result.getRowsPerSecond()));
+        return result;
+    }
+
+    private String validate(ItemDTO itemDTO) {
+        if (itemDTO.getId() != null) {
+            return "A new item cannot already have an ID";
+        }
+        Set<ConstraintViolation<ItemDTO>> violations = validator.validate(itemDTO);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Write a batch of valid rows. If a concurrent write inserted one of their titles since they were checked, the
+     * rows are written again one by one, to find which.
+     */
+    private void write(List<Row> batch, ItemImportResultDTO result) {
+        Map<Row, String> errors = new HashMap<>();
+        List<Row> unique = new ArrayList<>();
+        Set<String> titles = new HashSet<>();
+        for (Row row : batch) {
+            if (titles.add(row.item.getTitle())) {
+                unique.add(row);
+            } else {
+                errors.put(row, "Duplicate title in the file");
+            }
+        }
+        try {
+            errors.putAll(transactionTemplate.execute(status -> insert(unique)));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Concurrent write of the imported titles, importing one by one: {}", e.getMessage());
+            for (Row row : unique) {
+                try {
+                    errors.putAll(transactionTemplate.execute(status -> insert(Collections.singletonList(row))));
+                } catch (DataIntegrityViolationException rowException) {
+                    errors.put(row, "Title already exists");
+                }
+            }
+        }
+        for (Row row : batch) {
+            String error = errors.get(row);
+            if (error != null) {
+                fail(result, row, error);
+            } else {
+                result.setImported(result.getImported() + 1);
+                importedCounter.increment();
+            }
+        }
+    }
+
+    /**
+     * Insert the rows whose titles are not taken, within the current transaction. Only the titles which may be taken
+     * are looked up, see {@link ExistenceIndex}.
+     *
+     * @return the errors of the rows which were not inserted.
+     */
+    private Map<Row, String> insert(List<Row> rows) {
+        Set<String> existingTitles = existenceIndex.findExisting(ExistenceIndex.Kind.ITEM_TITLE,
+            rows.stream().map(row -> row.item.getTitle()).collect(Collectors.toList()), itemRepository::findTitlesByTitleIn);
+        entityManager.unwrap(Session.class).setJdbcBatchSize(BATCH_SIZE);
+        Map<Row, String> errors = new HashMap<>();
+        List<Item> items = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            if (existingTitles.contains(row.item.getTitle())) {
+                errors.put(row, "Title already exists");
+            } else {
+                Item item = itemMapper.toEntity(row.item);
+                entityManager.persist(item);
+                items.add(item);
+            }
+        }
+        // Through the repository, which translates a unique constraint violation into a DataIntegrityViolationException
+        itemRepository.flush();
+        for (Item item : items) {
+            existenceIndex.add(ExistenceIndex.Kind.ITEM_TITLE, item.getTitle());
+            itemSearchService.index(item.getId(), item.getTitle(), item.getDescription());
+            itemCatalogSnapshot.put(item.getId(), item.getTitle(), item.getPrice(), item.getCount());
+            if (item.getImage() != null) {
+                itemThumbnailService.generateThumbnails(item.getImage());
+            }
+        }
+        if (!items.isEmpty()) {
+            catalogEpoch.advance();
+        }
+        // The batch is written, let the entities go
+        entityManager.clear();
+        return errors;
+    }
+
+    private void fail(ItemImportResultDTO result, Row row, String error) {
+        result.setFailed(result.getFailed() + 1);
+        failedCounter.increment();
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new ItemImportResultDTO.RowError(row.line, error));
+        }
+    }
+
+    /**
+     * A row of the file, either parsed into an item or in error.
+     */
+    private static final class Row {
+
+        private final long line;
+
+        private final ItemDTO item;
+
+        private final String error;
+
+        Row(long line, ItemDTO item, String error) {
+            this.line = line;
+            this.item = item;
+            this.error = error;
+        }
+    }
+
+    private interface RowReader {
+
+        /**
+         * Return the next row, or {@code null} at the end of the file.
+         */
+        Row next() throws IOException;
+    }
+
+    private static final class CsvRowReader implements RowReader {
+
+        private final CsvReader csvReader;
+
+        private final int[] indexes = new int[CSV_COLUMNS.size()];
+
+        private int fieldCount = -1;
+
+        CsvRowReader(Reader reader) {
+            this.csvReader = new CsvReader(reader);
+        }
+
+        @Override
+        public Row next() throws IOException {
+            if (fieldCount < 0 && !readHeader()) {
+                return null;
+            }
+            List<String> fields;
+            do {
+                fields = csvReader.readRecord();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isEmpty());
+            long line = csvReader.getLineNumber();
+            if (fields.size() != fieldCount) {
+                return new Row(line, null, "Expected " + fieldCount + " fields, found " + fields.size());
+            }
+            ItemDTO itemDTO = new ItemDTO();
+            itemDTO.setTitle(fields.get(indexes[0]));
+            itemDTO.setDescription(fields.get(indexes[1]));
+            String price = fields.get(indexes[2]).trim();
+            String count = fields.get(indexes[3]).trim();
+            try {
+                itemDTO.setPrice(price.isEmpty() ? null : Double.valueOf(price));
+            } catch (NumberFormatException e) {
+                return new Row(line, null, "price: invalid number " + price);
+            }
+            try {
+                itemDTO.setCount(count.isEmpty() ? null : Integer.valueOf(count));
+            } catch (NumberFormatException e) {
+                return new Row(line, null, "count: invalid number " + count);
+            }
+            return new Row(line, itemDTO, null);
+        }
+
+        private boolean readHeader() throws IOException {
+            List<String> header = csvReader.readRecord();
+            if (header == null) {
+                return false;
+            }
+            Arrays.fill(indexes, -1);
+            for (int i = 0; i < header.size(); i++) {
+                String column = header.get(i).trim().toLowerCase(Locale.ROOT);
+                int index = CSV_COLUMNS.indexOf(column);
+                if (index < 0 || indexes[index] >= 0) {
+                    throw new BadRequestAlertException("Unknown or duplicate column: " + column, ENTITY_NAME, "unknowncolumn");
+                }
+                indexes[index] = i;
+            }
+            for (int i = 0; i < indexes.length; i++) {
+                if (indexes[i] < 0) {
+                    throw new BadRequestAlertException("Missing column: " + CSV_COLUMNS.get(i), ENTITY_NAME, "missingcolumn");
+                }
+            }
+            fieldCount = header.size();
+            return true;
+        }
+    }
+
+    private final class NdjsonRowReader implements RowReader {
+
+        private final BufferedReader reader;
+
+        private long lineNumber;
+
+        NdjsonRowReader(Reader reader) {
+            this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null) {
+                    return null;
+                }
+            } while (line.trim().isEmpty());
+            try {
+                return new Row(lineNumber, objectMapper.readValue(line, ItemDTO.class), null);
+            } catch (JsonProcessingException e) {
+                return new Row(lineNumber, null, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+}
@@ -1,45 +1,169 @@
 package com.store.service;
 
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.jhipster.service.QueryService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 
 import com.store.domain.Item;
 import com.store.domain.*; // for static metamodels
 import com.store.repository.ItemRepository;
 import com.store.service.dto.ItemCriteria;
 import com.store.service.dto.ItemDTO;
+import com.store.service.dto.ItemFacetsDTO;
 import com.store.service.mapper.ItemMapper;
+import com.store.service.util.FileFormat;
+import com.store.service.util.KeysetPagination;
+import com.store.service.util.KeysetSlice;
+import com.store.service.util.RowWriter;
+import com.store.service.util.SlicePagination;
+import com.store.service.util.SpecificationQueries;
 
 /**
  * Service for executing complex queries for {@link Item} entities in the database.
  * The main input is a {@link ItemCriteria} which gets converted to {@link Specification},
- * in a way that all the filters must apply.
+ * in a way that all the filters must apply. The entity reads are evaluated against the {@link ItemCatalogSnapshot}
+ * instead when it holds all the filters.
+ * The pages and counts are cached in {@link #RESULTS_CACHE}, for the current {@link CatalogEpoch}.
  * It returns a {@link List} of {@link ItemDTO} or a {@link Page} of {@link ItemDTO} which fulfills the criteria.
  */
 @Service
 @Transactional(readOnly = true)
 public class ItemQueryService extends QueryService<Item> {
 
+    /**
+     * The {@link ItemDTO} fields which can be requested in a projection. The image itself is never part of a
+     * projection, it is served by its own endpoint.
+     */
+    public static final Set<String> PROJECTION_FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+        "id", "title", "description", "price", "count", "imageContentType", "imageHash")));
+
+    /**
+     * The properties a keyset-paginated slice can be sorted on.
+     */
+    public static final Set<String> KEYSET_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        "id", "title", "price", "count")));
+
+    /**
+     * The cache of the pages and counts of matching entities, by criteria, page and {@link CatalogEpoch}.
+     */
+    public static final String RESULTS_CACHE = "itemQueryResults";
+
+    /**
+     * The price breaks of the facets, when none are requested.
+     */
+    public static final List<Double> DEFAULT_PRICE_BREAKS = Collections.unmodifiableList(Arrays.asList(10D, 25D, 50D, 100D));
+
+    /**
+     * The maximum number of price breaks of the facets, each of which adds an aggregate to the query.
+     */
+    public static final int MAX_PRICE_BREAKS = 20;
+
+    /**
+     * The number of rows fetched per round trip by the exports.
+     */
+    public static final int EXPORT_FETCH_SIZE = 500;
+
+    private static final Map<String, Function<ItemDTO, ?>> EXPORT_COLUMNS;
+
+    static {
+        Map<String, Function<ItemDTO, ?>> columns = new LinkedHashMap<>();
+        columns.put("id", ItemDTO::getId);
+        columns.put("title", ItemDTO::getTitle);
+        columns.put("description", ItemDTO::getDescription);
+        columns.put("price", ItemDTO::getPrice);
+        columns.put("count", ItemDTO::getCount);
+        columns.put("imageContentType", ItemDTO::getImageContentType);
+        columns.put("imageHash", ItemDTO::getImageHash);
+        EXPORT_COLUMNS = Collections.unmodifiableMap(columns);
+    }
+
     private final Logger log = LoggerFactory.getLogger(ItemQueryService.class);
 
     private final ItemRepository itemRepository;
 
     private final ItemMapper itemMapper;
 
-    public ItemQueryService(ItemRepository itemRepository, ItemMapper itemMapper) {
+    private final EntityManager entityManager;
+
+    private final CacheManager cacheManager;
+
+    private final CatalogEpoch catalogEpoch;
+
+    private final ItemCatalogSnapshot catalogSnapshot;
+
+    private final ObjectMapper objectMapper;
+
+    private final Counter cacheHitCounter;
+
+    private final Counter cacheMissCounter;
+
+    public ItemQueryService(ItemRepository itemRepository, ItemMapper itemMapper, EntityManager entityManager,
+                            CacheManager cacheManager, CatalogEpoch catalogEpoch, ItemCatalogSnapshot catalogSnapshot,
+                            ObjectMapper objectMapper, MeterRegistry meterRegistry) {
         this.itemRepository = itemRepository;
         this.itemMapper = itemMapper;
+        this.entityManager = entityManager;
+        this.cacheManager = cacheManager;
+        this.catalogEpoch = catalogEpoch;
+        this.catalogSnapshot = catalogSnapshot;
+        this.objectMapper = objectMapper;
+        this.cacheHitCounter = Counter.builder("store.item.query.cache")
+            .description("Number of item pages and counts served from the results cache")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        this.cacheMissCounter = Counter.builder("store.item.query.cache")
+            .description("Number of item pages and counts served from the results cache")
+            .tag("result", "miss")
+            .register(meterRegistry);
     }
 
     /**
@@ -50,12 +174,18 @@ public class ItemQueryService extends QueryService<Item> {
     @Transactional(readOnly = true)
     public List<ItemDTO> findByCriteria(ItemCriteria criteria) {
         log.debug("find by criteria : {}", criteria);
+        if (isInSnapshot(criteria, Sort.unsorted())) {
+            return findSummaries(catalogSnapshot.findIds(criteria, Sort.unsorted()));
+        }
         final Specification<Item> specification = createSpecification(criteria);
-        return itemMapper.toDto(itemRepository.findAll(specification));
+        return itemRepository.findAll(specification).stream()
+            .map(itemMapper::toSummaryDto)
+            .collect(Collectors.toList());
     }
 
     /**
-     * Return a {@link Page} of {@link ItemDTO} which matches the criteria from the database.
+     * Return a {@link Page} of {@link ItemDTO} which matches the criteria from the database, or from the cache when it
+     * was already returned since the last write to the catalog. The page returned must not be modified.
      * @param criteria The object which holds all the filters, which the entities should match.
      * @param page The page, which should be returned.
      * @return the matching entities.
@@ -63,27 +193,323 @@ public class ItemQueryService extends QueryService<Item> {
     @Transactional(readOnly = true)
     public Page<ItemDTO> findByCriteria(ItemCriteria criteria, Pageable page) {
         log.debug("find by criteria : {}, page: {}", criteria, page);
+        return cached("page", criteria, page, () -> {
+            if (isInSnapshot(criteria, page.getSort())) {
+                Page<Long> ids = catalogSnapshot.findIds(criteria, page);
+                return new PageImpl<>(findSummaries(ids.getContent()), page, ids.getTotalElements());
+            }
+            final Specification<Item> specification = createSpecification(criteria);
+            return itemRepository.findAll(specification, page)
+                .map(itemMapper::toSummaryDto);
+        });
+    }
+
+    /**
+     * Return a {@link Page} of {@link ItemDTO} which matches the criteria from the database, with only the given fields
+     * populated. Only the columns of these fields are selected, the entities themselves are never loaded.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param fields The fields to select, among {@link #PROJECTION_FIELDS}. The id and the version are always selected.
+     * @param page The page, which should be returned.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public Page<ItemDTO> findByCriteria(ItemCriteria criteria, Collection<String> fields, Pageable page) {
+        log.debug("find by criteria : {}, fields: {}, page: {}", criteria, fields, page);
+        final Specification<Item> specification = createSpecification(criteria);
+        TypedQuery<Tuple> typedQuery = createProjectionQuery(specification, fields, page);
+        if (page.isPaged()) {
+            typedQuery.setFirstResult((int) page.getOffset());
+            typedQuery.setMaxResults(page.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(toDto(typedQuery.getResultList()), page, () -> itemRepository.count(specification));
+    }
+
+    /**
+     * Return a {@link Slice} of {@link ItemDTO} which matches the criteria from the database.
+     * Unlike a {@link Page}, the matching entities are never counted.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param page The page, which should be returned.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public Slice<ItemDTO> findSliceByCriteria(ItemCriteria criteria, Pageable page) {
+        log.debug("find slice by criteria : {}, page: {}", criteria, page);
         final Specification<Item> specification = createSpecification(criteria);
-        return itemRepository.findAll(specification, page)
-            .map(itemMapper::toDto);
+        return SlicePagination.fetch(entityManager, Item.class, specification, page)
+            .map(itemMapper::toSummaryDto);
     }
 
     /**
-     * Return the number of matching entities in the database.
+     * Return a {@link Slice} of {@link ItemDTO} which matches the criteria from the database, with only the given fields
+     * populated. Unlike a {@link Page}, the matching entities are never counted.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param fields The fields to select, among {@link #PROJECTION_FIELDS}. The id and the version are always selected.
+     * @param page The page, which should be returned.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public Slice<ItemDTO> findSliceByCriteria(ItemCriteria criteria, Collection<String> fields, Pageable page) {
+        log.debug("find slice by criteria : {}, fields: {}, page: {}", criteria, fields, page);
+        final Specification<Item> specification = createSpecification(criteria);
+        TypedQuery<Tuple> typedQuery = SlicePagination.limit(createProjectionQuery(specification, fields, page), page);
+        return SlicePagination.toSlice(toDto(typedQuery.getResultList()), page);
+    }
+
+    /**
+     * Return a {@link KeysetSlice} of {@link ItemDTO} which matches the criteria from the database, starting after
+     * the given cursor. Unlike a {@link Page}, the matching entities are never counted.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param after The cursor returned with the previous slice, empty for the first one.
+     * @param page The size and sort of the slice, sorted on one of {@link #KEYSET_PROPERTIES}. The page number is ignored.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public KeysetSlice<ItemDTO> findByCriteria(ItemCriteria criteria, String after, Pageable page) {
+        log.debug("find by criteria : {}, after: {}, page: {}", criteria, after, page);
+        final Sort.Order order = KeysetPagination.getOrder(page.getSort(), KEYSET_PROPERTIES);
+        final Specification<Item> specification = createSpecification(criteria).and(KeysetPagination.after(after, order));
+        return KeysetPagination.fetch(entityManager, Item.class, specification, order, page.getPageSize())
+            .map(itemMapper::toSummaryDto);
+    }
+
+    /**
+     * Return the number of matching entities in the database, or from the cache when they were already counted
+     * since the last write to the catalog.
      * @param criteria The object which holds all the filters, which the entities should match.
      * @return the number of matching entities.
      */
     @Transactional(readOnly = true)
     public long countByCriteria(ItemCriteria criteria) {
         log.debug("count by criteria : {}", criteria);
+        return cached("count", criteria, Pageable.unpaged(), () -> isInSnapshot(criteria, Sort.unsorted())
+            ? catalogSnapshot.count(criteria)
+            : itemRepository.count(createSpecification(criteria)));
+    }
+
+    /**
+     * Write the entities which match the criteria to a file, by ascending id, without their images. The entities are
+     * read through a forward-only cursor, {@link #EXPORT_FETCH_SIZE} at a time, and written as they are read: only
+     * their columns are selected, so they never enter the persistence context, and the memory used does not depend
+     * on their number.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param format The format of the file.
+     * @param writer The file.
+     * @throws IOException if the file can not be written.
+     */
+    @Transactional(readOnly = true)
+    public void exportByCriteria(ItemCriteria criteria, FileFormat format, Writer writer) throws IOException {
+        log.debug("export by criteria : {}, format: {}", criteria, format);
+        RowWriter<ItemDTO> rowWriter = new RowWriter<>(format, writer, objectMapper, EXPORT_COLUMNS);
         final Specification<Item> specification = createSpecification(criteria);
-        return itemRepository.count(specification);
+        try (Stream<Object[]> rows = SpecificationQueries.stream(SpecificationQueries.createQuery(entityManager, Item.class,
+                specification, ItemQueryService::exportSelection, Sort.by("id")), EXPORT_FETCH_SIZE)) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                rowWriter.write(toExportDto(iterator.next()));
+            }
+        }
+        rowWriter.flush();
+    }
+
+    /**
+     * Return the facets of the entities which match the criteria: their number, in and out of stock, and by price
+     * range. They are all aggregated by a single query, in one pass over the matching entities, and cached like the
+     * counts.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param priceBreaks The prices the ranges are split on, in any order; no more than {@link #MAX_PRICE_BREAKS}.
+     * @return the facets of the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public ItemFacetsDTO findFacetsByCriteria(ItemCriteria criteria, Collection<Double> priceBreaks) {
+        log.debug("find facets by criteria : {}, price breaks: {}", criteria, priceBreaks);
+        final List<Double> breaks = new ArrayList<>(new TreeSet<>(priceBreaks));
+        if (breaks.size() > MAX_PRICE_BREAKS) {
+            throw new IllegalArgumentException("Too many price breaks: " + breaks.size());
+        }
+        return cached("facets " + breaks, criteria, Pageable.unpaged(), () -> {
+            final Specification<Item> specification = createSpecification(criteria);
+            TypedQuery<Object[]> query = SpecificationQueries.createQuery(entityManager, Item.class, specification,
+                (root, cb) -> facetsSelection(root, cb, breaks), Sort.unsorted());
+            return toFacets(query.getSingleResult(), breaks);
+        });
+    }
+
+    /**
+     * The total, the items in stock, then the items of each of the {@code breaks + 1} price ranges.
+     */
+    private static List<Selection<?>> facetsSelection(Root<Item> root, CriteriaBuilder cb, List<Double> breaks) {
+        List<Selection<?>> selection = new ArrayList<>();
+        selection.add(cb.count(root));
+        selection.add(countWhere(cb, cb.gt(root.get(Item_.count), 0)));
+        for (int i = 0; !breaks.isEmpty() && i <= breaks.size(); i++) {
+            List<Predicate> range = new ArrayList<>();
+            if (i > 0) {
+                range.add(cb.ge(root.get(Item_.price), breaks.get(i - 1)));
+            }
+            if (i < breaks.size()) {
+                range.add(cb.lt(root.get(Item_.price), breaks.get(i)));
+            }
+            selection.add(countWhere(cb, cb.and(range.toArray(new Predicate[0]))));
+        }
+        return selection;
+    }
+
+    private static Expression<Integer> countWhere(CriteriaBuilder cb, Predicate predicate) {
+        return cb.sum(cb.<Integer>selectCase().when(predicate, 1).otherwise(0));
+    }
+
+    private static ItemFacetsDTO toFacets(Object[] row, List<Double> breaks) {
+        ItemFacetsDTO facets = new ItemFacetsDTO();
+        facets.setTotal(toLong(row[0]));
+        facets.setInStock(toLong(row[1]));
+        facets.setOutOfStock(facets.getTotal() - facets.getInStock());
+        for (int i = 0; !breaks.isEmpty() && i <= breaks.size(); i++) {
+            facets.getPriceRanges().add(new ItemFacetsDTO.PriceRange(
+                i > 0 ? breaks.get(i - 1) : null,
+                i < breaks.size() ? breaks.get(i) : null,
+                toLong(row[i + 2])));
+        }
+        return facets;
+    }
+
+    /**
+     * The sums are {@code null} when no entity matches.
+     */
+    private static long toLong(Object aggregate) {
+        return aggregate == null ? 0L : ((Number) aggregate).longValue();
+    }
+
+    /**
+     * Return whether the query can be evaluated against the snapshot, which does not see the writes of the current
+     * transaction until it commits.
+     */
+    private boolean isInSnapshot(ItemCriteria criteria, Sort sort) {
+        return !catalogEpoch.isWrittenInTransaction() && catalogSnapshot.canEvaluate(criteria, sort);
+    }
+
+    /**
+     * Load the items of the given ids in one query, in the order of the ids. The items deleted since are skipped.
+     */
+    private List<ItemDTO> findSummaries(List<Long> ids) {
+        Map<Long, Item> items = itemRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(Item::getId, Function.identity()));
+        return ids.stream()
+            .map(items::get)
+            .filter(Objects::nonNull)
+            .map(itemMapper::toSummaryDto)
+            .collect(Collectors.toList());
+    }
+
+    private static List<Selection<?>> exportSelection(Root<Item> root, CriteriaBuilder cb) {
+        return Arrays.asList(root.get(Item_.id), root.get(Item_.title), root.get(Item_.description), root.get(Item_.price),
+            root.get(Item_.count), root.get(Item_.imageContentType), root.get(Item_.imageHash), root.get(Item_.version));
+    }
+
+    private static ItemDTO toExportDto(Object[] row) {
+        ItemDTO itemDTO = new ItemDTO();
+        itemDTO.setId((Long) row[0]);
+        itemDTO.setTitle((String) row[1]);
+        itemDTO.setDescription((String) row[2]);
+        itemDTO.setPrice((Double) row[3]);
+        itemDTO.setCount((Integer) row[4]);
+        itemDTO.setImageContentType((String) row[5]);
+        itemDTO.setImageHash((String) row[6]);
+        itemDTO.setVersion((Integer) row[7]);
+        return itemDTO;
+    }
+
+    /**
+     * Return the result of a query from the cache, or load and cache it. The epoch is read before loading, so a result
+     * loaded while the catalog is written is cached for an epoch which is already over.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String query, ItemCriteria criteria, Pageable page, Supplier<T> loader) {
+        if (catalogEpoch.isWrittenInTransaction()) {
+            return loader.get();
+        }
+        ResultKey key = new ResultKey(catalogEpoch.get(), query, criteria, page);
+        Cache cache = Objects.requireNonNull(cacheManager.getCache(RESULTS_CACHE));
+        Cache.ValueWrapper cached = cache.get(key);
+        if (cached != null) {
+            cacheHitCounter.increment();
+            return (T) cached.get();
+        }
+        cacheMissCounter.increment();
+        T result = loader.get();
+        cache.put(key, result);
+        return result;
+    }
+
+    private TypedQuery<Tuple> createProjectionQuery(Specification<Item> specification, Collection<String> fields, Pageable page) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Item> root = query.from(Item.class);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.multiselect(createSelections(root, fields));
+        query.orderBy(QueryUtils.toOrders(page.getSort(), root, cb));
+        return entityManager.createQuery(query);
+    }
+
+    private List<ItemDTO> toDto(List<Tuple> tuples) {
+        return tuples.stream()
+            .map(this::toDto)
+            .collect(Collectors.toList());
+    }
+
+    private List<Selection<?>> createSelections(Root<Item> root, Collection<String> fields) {
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        selected.add("version");
+        selected.addAll(fields);
+        return selected.stream()
+            .filter(field -> field.equals("version") || PROJECTION_FIELDS.contains(field))
+            .<Selection<?>>map(field -> root.get(field).alias(field))
+            .collect(Collectors.toList());
+    }
+
+    private ItemDTO toDto(Tuple tuple) {
+        ItemDTO itemDTO = new ItemDTO();
+        for (TupleElement<?> element : tuple.getElements()) {
+            Object value = tuple.get(element);
+            switch (element.getAlias()) {
+                case "id":
+                    itemDTO.setId((Long) value);
+                    break;
+                case "title":
+                    itemDTO.setTitle((String) value);
+                    break;
+                case "description":
+                    itemDTO.setDescription((String) value);
+                    break;
+                case "price":
+                    itemDTO.setPrice((Double) value);
+                    break;
+                case "count":
+                    itemDTO.setCount((Integer) value);
+                    break;
+                case "imageContentType":
+                    itemDTO.setImageContentType((String) value);
+                    break;
+                case "imageHash":
+                    itemDTO.setImageHash((String) value);
+                    break;
+                case "version":
+                    itemDTO.setVersion((Integer) value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown projection field: " + element.getAlias());
+            }
+        }
+        return itemDTO;
     }
 
     /**
      * Function to convert ItemCriteria to a {@link Specification}.
      */
-    private Specification<Item> createSpecification(ItemCriteria criteria) {
+    protected Specification<Item> createSpecification(ItemCriteria criteria) {
         Specification<Item> specification = Specification.where(null);
         if (criteria != null) {
             if (criteria.getId() != null) {
@@ -104,4 +530,44 @@ public class ItemQueryService extends QueryService<Item> {
         }
         return specification;
     }
+
+    private static final class ResultKey implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long epoch;
+
+        private final String query;
+
+        private final ItemCriteria criteria;
+
+        private final Pageable page;
+
+        ResultKey(long epoch, String query, ItemCriteria criteria, Pageable page) {
+            this.epoch = epoch;
+            this.query = query;
+            this.criteria = criteria == null ? null : criteria.copy();
+            this.page = page;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ResultKey that = (ResultKey) o;
+            return epoch == that.epoch &&
+                query.equals(that.query) &&
+                Objects.equals(criteria, that.criteria) &&
+                page.equals(that.page);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(epoch, query, criteria, page);
+        }
+    }
 }
@@ -0,0 +1,323 @@
+package com.store.service;
+
+import com.store.repository.ItemRepository;
+import com.store.service.dto.ItemSearchResultDTO;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service for full-text and prefix search of {@link com.store.domain.Item} titles and descriptions.
+ * <p>
+ * Searches are answered from an in-memory inverted index, without hitting the database. The index is built
+ * when the application is ready, and kept up to date by {@link #index} and {@link #remove} once the
+ * surrounding transaction commits; the writes applied while it is rebuilt are applied to the rebuilt index too.
+ */
+@Service
+public class ItemSearchService {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final int TITLE_WEIGHT = 3;
+
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final Logger log = LoggerFactory.getLogger(ItemSearchService.class);
+
+    private final ItemRepository itemRepository;
+
+    private final Timer buildTimer;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Postings of each term: the weight of the term in each item having it.
+     */
+    private NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    private Map<Long, Document> documents = new HashMap<>();
+
+    /**
+     * The writes applied while the index is rebuilt, to replay on the rebuilt index, or {@code null} when it is not
+     * being rebuilt. Guarded by the write lock, like all the writes.
+     */
+    private List<BiConsumer<NavigableMap<String, Map<Long, Integer>>, Map<Long, Document>>> pendingWrites;
+
+    public ItemSearchService(ItemRepository itemRepository, MeterRegistry meterRegistry) {
+        this.itemRepository = itemRepository;
+        this.buildTimer = Timer.builder("store.item.search.index.build")
+            .description("Time spent building the item search index")
+            .register(meterRegistry);
+        Gauge.builder("store.item.search.index.terms", this, ItemSearchService::getTermCount)
+            .description("Number of distinct terms in the item search index")
+            .register(meterRegistry);
+        Gauge.builder("store.item.search.index.documents", this, ItemSearchService::getDocumentCount)
+            .description("Number of items in the item search index")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Rebuild the whole index from the database. The writes committed meanwhile are applied to the rebuilt index
+     * before it is published.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                log.debug("Item search index already being rebuilt");
+                return;
+            }
+            pendingWrites = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        long start = System.nanoTime();
+        try {
+            NavigableMap<String, Map<Long, Integer>> newPostings = new TreeMap<>();
+            Map<Long, Document> newDocuments = new HashMap<>();
+            try (Stream<Object[]> items = itemRepository.streamAllSearchableFields()) {
+                items.forEach(item -> add(newPostings, newDocuments, (Long) item[0], (String) item[1], (String) item[2]));
+            }
+            lock.writeLock().lock();
+            try {
+                for (BiConsumer<NavigableMap<String, Map<Long, Integer>>, Map<Long, Document>> write : pendingWrites) {
+                    write.accept(newPostings, newDocuments);
+                }
+                postings = newPostings;
+                documents = newDocuments;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("Built item search index of {} items and {} terms in {} ms", newDocuments.size(), newPostings.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            lock.writeLock().lock();
+            try {
+                pendingWrites = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            buildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Add or replace an item in the index, once the current transaction, if any, commits.
+     *
+     * @param id the id of the item.
+     * @param title the title of the item.
+     * @param description the description of the item.
+     */
+    public void index(Long id, String title, String description) {
+        write((targetPostings, targetDocuments) -> {
+            removeDocument(targetPostings, targetDocuments, id);
+            add(targetPostings, targetDocuments, id, title, description);
+        });
+    }
+
+    /**
+     * Remove an item from the index, once the current transaction, if any, commits.
+     *
+     * @param id the id of the item.
+     */
+    public void remove(Long id) {
+        write((targetPostings, targetDocuments) -> removeDocument(targetPostings, targetDocuments, id));
+    }
+
+    /**
+     * Search items by title and description. All the words of the query must match, the last one as a prefix,
+     * and the results are ranked by TF-IDF, title matches weighing more than description matches.
+     *
+     * @param query the words to search.
+     * @param limit the maximum number of results.
+     * @return the matching items, best first.
+     */
+    public List<ItemSearchResultDTO> search(String query, int limit) {
+        log.debug("Request to search Items for query : {}", query);
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+            for (int i = 0; i < words.size(); i++) {
+                Map<String, Map<Long, Integer>> matches = i == words.size() - 1
+                    ? postings.subMap(words.get(i), true, words.get(i) + Character.MAX_VALUE, false)
+                    : singleTerm(words.get(i));
+                Map<Long, Double> wordScores = new HashMap<>();
+                matches.values().forEach(posting -> {
+                    double idf = Math.log(1d + (double) documents.size() / posting.size());
+                    posting.forEach((id, weight) -> wordScores.merge(id, weight * idf, Math::max));
+                });
+                if (scores == null) {
+                    scores = wordScores;
+                } else {
+                    scores.keySet().retainAll(wordScores.keySet());
+                    scores.replaceAll((id, score) -> score + wordScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+            return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(entry -> new ItemSearchResultDTO(entry.getKey(), documents.get(entry.getKey()).title, entry.getValue()))
+                .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Complete a prefix with the indexed words starting with it.
+     *
+     * @param prefix the beginning of a word.
+     * @param limit the maximum number of words.
+     * @return the matching words, the ones found in the most items first.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        log.debug("Request to suggest Item words for prefix : {}", prefix);
+        List<String> words = tokenize(prefix);
+        if (words.size() != 1) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            return postings.subMap(words.get(0), true, words.get(0) + Character.MAX_VALUE, false).entrySet().stream()
+                .sorted(Comparator.<Map.Entry<String, Map<Long, Integer>>>comparingInt(entry -> entry.getValue().size()).reversed()
+                    .thenComparing(Map.Entry::getKey))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getDocumentCount() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Map<Long, Integer>> singleTerm(String term) {
+        Map<Long, Integer> posting = postings.get(term);
+        return posting == null ? Collections.emptyMap() : Collections.singletonMap(term, posting);
+    }
+
+    private void write(BiConsumer<NavigableMap<String, Map<Long, Integer>>, Map<Long, Document>> write) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                write.accept(postings, documents);
+                if (pendingWrites != null) {
+                    pendingWrites.add(write);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private static void removeDocument(Map<String, Map<Long, Integer>> postings, Map<Long, Document> documents, Long id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.weights.keySet()) {
+            Map<Long, Integer> posting = postings.get(term);
+            posting.remove(id);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static void add(Map<String, Map<Long, Integer>> postings, Map<Long, Document> documents,
+                            Long id, String title, String description) {
+        Map<String, Integer> weights = new HashMap<>();
+        tokenize(title).forEach(term -> weights.merge(term, TITLE_WEIGHT, Integer::sum));
+        tokenize(description).forEach(term -> weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum));
+        weights.forEach((term, weight) -> postings.computeIfAbsent(term, key -> new HashMap<>()).put(id, weight));
+        documents.put(id, new Document(title, weights));
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text != null) {
+            for (String term : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+                if (!term.isEmpty()) {
+                    terms.add(term);
+                }
+            }
+        }
+        return terms;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static final class Document {
+
+        private final String title;
+
+        private final Map<String, Integer> weights;
+
+        private Document(String title, Map<String, Integer> weights) {
+            this.title = title;
+            this.weights = weights;
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.store.service;
 
 import com.store.service.dto.ItemDTO;
+import com.store.service.dto.ItemImageDTO;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -37,6 +40,30 @@ public interface ItemService {
      */
     Optional<ItemDTO> findOne(Long id);
 
+    /**
+     * Get the version of the "id" item, without loading it.
+     *
+     * @param id the id of the entity.
+     * @return the version, or empty if the item does not exist.
+     */
+    Optional<Integer> findVersion(Long id);
+
+    /**
+     * Get the items of the given ids, without their images, in the order of the ids.
+     *
+     * @param ids the ids of the entities; the duplicates and the ids of missing entities are skipped.
+     * @return the list of entities.
+     */
+    List<ItemDTO> findAllById(Collection<Long> ids);
+
+    /**
+     * Get the image of the "id" item.
+     *
+     * @param id the id of the entity.
+     * @return the image, or empty if the item does not exist or has no image.
+     */
+    Optional<ItemImageDTO> findImage(Long id);
+
     /**
      * Delete the "id" item.
      *
@@ -0,0 +1,189 @@
+package com.store.service;
+
+import com.store.config.ApplicationProperties;
+import com.store.domain.ItemThumbnail;
+import com.store.repository.ItemRepository;
+import com.store.repository.ItemThumbnailRepository;
+import com.store.service.dto.ItemImageDTO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service for generating and serving the thumbnails of {@link com.store.domain.Item} images.
+ * <p>
+ * Thumbnails are keyed by the hash of the original image, so items sharing an image share its thumbnails,
+ * and a thumbnail never changes once created. They are deleted once no item has their image any more.
+ * <p>
+ * We use the {@link Async} annotation to generate thumbnails off the request thread.
+ */
+@Service
+public class ItemThumbnailService {
+
+    private static final String JPEG = "jpeg";
+
+    private static final String PNG = "png";
+
+    private final Logger log = LoggerFactory.getLogger(ItemThumbnailService.class);
+
+    private final ItemThumbnailRepository itemThumbnailRepository;
+
+    private final ItemRepository itemRepository;
+
+    private final ApplicationProperties applicationProperties;
+
+    public ItemThumbnailService(ItemThumbnailRepository itemThumbnailRepository, ItemRepository itemRepository,
+            ApplicationProperties applicationProperties) {
+        this.itemThumbnailRepository = itemThumbnailRepository;
+        this.itemRepository = itemRepository;
+        this.applicationProperties = applicationProperties;
+    }
+
+    /**
+     * Generate the missing thumbnails of an image, asynchronously.
+     *
+     * @param image the original image.
+     */
+    @Async
+    public void generateThumbnails(byte[] image) {
+        createThumbnails(image);
+    }
+
+    /**
+     * Generate the missing thumbnails of an image. Images in a format which cannot be decoded are ignored.
+     *
+     * @param image the original image.
+     */
+    public void createThumbnails(byte[] image) {
+        String hash = DigestUtils.md5DigestAsHex(image);
+        Set<Integer> existing = itemThumbnailRepository.findSizesByHash(hash);
+        List<Integer> missing = applicationProperties.getThumbnail().getSizes().stream()
+            .filter(size -> !existing.contains(size))
+            .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return;
+        }
+        log.debug("Generating thumbnails {} of image {}", missing, hash);
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                log.debug("No thumbnail for image {}, its format is not supported", hash);
+                return;
+            }
+            ImageReader reader = readers.next();
+            BufferedImage source;
+            String formatName;
+            try {
+                reader.setInput(input);
+                formatName = JPEG.equalsIgnoreCase(reader.getFormatName()) ? JPEG : PNG;
+                source = reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+            for (Integer size : missing) {
+                ItemThumbnail thumbnail = new ItemThumbnail()
+                    .hash(hash)
+                    .size(size)
+                    .contentType("image/" + formatName)
+                    .image(resize(source, size, formatName));
+                save(thumbnail);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Thumbnails of image {} could not be generated: {}", hash, e.getMessage());
+        }
+    }
+
+    /**
+     * Delete the thumbnails of an image, if no item has it any more.
+     *
+     * @param hash the hash of the image, replaced or deleted.
+     */
+    @Transactional
+    public void deleteUnusedThumbnails(String hash) {
+        if (itemRepository.findIdsByImageHash(hash).isEmpty()) {
+            int deleted = itemThumbnailRepository.deleteByHash(hash);
+            log.debug("Deleted {} thumbnails of image {}", deleted, hash);
+        }
+    }
+
+    /**
+     * Get a thumbnail.
+     *
+     * @param hash the hash of the original image.
+     * @param size the size of the thumbnail.
+     * @return the thumbnail, or empty if it was not generated (yet).
+     */
+    @Transactional(readOnly = true)
+    public Optional<ItemImageDTO> findThumbnail(String hash, Integer size) {
+        log.debug("Request to get thumbnail {} of image {}", size, hash);
+        return itemThumbnailRepository.findOneByHashAndSize(hash, size)
+            .map(thumbnail -> new ItemImageDTO(thumbnail.getContentType(), thumbnail.getHash(), thumbnail.getImage()));
+    }
+
+    /**
+     * Get the id of an item having the given image.
+     *
+     * @param hash the hash of the image.
+     * @return the id of the item, or empty if no item has this image.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> findItemIdByHash(String hash) {
+        return itemRepository.findIdsByImageHash(hash).stream().findFirst();
+    }
+
+    private void save(ItemThumbnail thumbnail) {
+        try {
+            itemThumbnailRepository.saveAndFlush(thumbnail);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Thumbnail {} of image {} was generated concurrently", thumbnail.getSize(), thumbnail.getHash());
+        }
+    }
+
+    /**
+     * Scale an image down to fit in a square of the given size, halving it step by step to keep a smooth result.
+     */
+    private byte[] resize(BufferedImage source, int size, String formatName) throws IOException {
+        double scale = Math.min(1d, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        int type = JPEG.equals(formatName) ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage current = source;
+        do {
+            int stepWidth = Math.max(width, current.getWidth() / 2);
+            int stepHeight = Math.max(height, current.getHeight() / 2);
+            BufferedImage step = new BufferedImage(stepWidth, stepHeight, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (current.getWidth() > width || current.getHeight() > height);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(current, formatName, output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,146 @@
+package com.store.service;
+
+import com.store.config.ApplicationProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Coalescer of the concurrent loads of the same key: the first one runs, and the others wait for its result instead of
+ * running the same query at once, as they do when a hot entry expires or is evicted from the cache.
+ * <p>
+ * A load waits for the one in flight for up to {@code application.cache.coalescing.timeout}, then runs on its own. The
+ * failure of a load is the failure of all those waiting for it. Their result is shared, and must not be modified.
+ * The loads in a read-write transaction always run on their own: they may need to see the writes of the transaction.
+ */
+@Service
+public class LoadCoalescer {
+
+    private final Logger log = LoggerFactory.getLogger(LoadCoalescer.class);
+
+    private final boolean enabled;
+
+    private final long timeout;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public LoadCoalescer(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.enabled = applicationProperties.getCache().getCoalescing().isEnabled();
+        this.timeout = applicationProperties.getCache().getCoalescing().getTimeout().toMillis();
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("store.load.coalescing.in.flight", inFlight, Map::size)
+            .description("Number of loads in flight, which the same loads wait for")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Load the value of a key, or wait for the load of the same key in flight.
+     *
+     * @param name the name of the loads, such as the entity loaded.
+     * @param key the key loaded.
+     * @param loader the load.
+     * @param <T> the type of the value.
+     * @return the value loaded.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(String name, Object key, Supplier<T> loader) {
+        if (!enabled || (TransactionSynchronizationManager.isActualTransactionActive()
+            && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+            return loader.get();
+        }
+        Key inFlightKey = new Key(name, key);
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(inFlightKey, load);
+        if (running != null) {
+            return (T) await(name, key, running, loader);
+        }
+        count(name, "executed");
+        try {
+            T value = loader.get();
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(inFlightKey, load);
+        }
+    }
+
+    private Object await(String name, Object key, CompletableFuture<Object> running, Supplier<?> loader) {
+        try {
+            Object value = running.get(timeout, TimeUnit.MILLISECONDS);
+            count(name, "coalesced");
+            return value;
+        } catch (ExecutionException e) {
+            count(name, "coalesced");
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            log.debug("Timed out waiting for the load of {} {}, loading it", name, key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        count(name, "timeout");
+        return loader.get();
+    }
+
+    private void count(String name, String result) {
+        Counter.builder("store.load.coalescing")
+            .description("Number of loads executed, coalesced with the same load in flight, or executed after waiting for it too long")
+            .tag("name", name)
+            .tag("result", result)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static final class Key {
+
+        private final String name;
+
+        private final Object key;
+
+        private Key(String name, Object key) {
+            this.name = name;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return name.equals(other.name) && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, key);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import io.github.jhipster.config.JHipsterProperties;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
+import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 
 import org.slf4j.Logger;
@@ -53,19 +54,8 @@ public class MailService {
 
     @Async
     public void sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
-        log.debug("Send email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
-            isMultipart, isHtml, to, subject, content);
-
-        // Prepare message using a Spring helper
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
         try {
-            MimeMessageHelper message = new MimeMessageHelper(mimeMessage, isMultipart, StandardCharsets.UTF_8.name());
-            message.setTo(to);
-            message.setFrom(jHipsterProperties.getMail().getFrom());
-            message.setSubject(subject);
-            message.setText(content, isHtml);
-            javaMailSender.send(mimeMessage);
-            log.debug("Sent email to User '{}'", to);
+            deliverEmail(to, subject, content, isMultipart, isHtml);
         } catch (Exception e) {
             if (log.isDebugEnabled()) {
                 log.warn("Email could not be sent to user '{}'", to, e);
@@ -105,12 +95,36 @@ public class MailService {
         sendEmailFromTemplate(user, "mail/passwordResetEmail", "email.reset.title");
     }
 
-    public void sendTicket(Cart cart) {
+    /**
+     * Send the ticket of a closed cart, in the calling thread.
+     * <p>
+     * Unlike the other emails, failures are not swallowed, so that the caller can retry.
+     *
+     * @param cart the closed cart, with its orders and their items.
+     * @throws MessagingException if the email could not be prepared.
+     * @throws org.springframework.mail.MailException if the email could not be sent.
+     */
+    public void sendTicket(Cart cart) throws MessagingException {
         log.debug("Sending ticket email to '{}'", cart.getEmail());
         Context context = new Context();
         context.setVariable(CART, cart);
         context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
         String content = templateEngine.process("mail/ticketEmail", context);
-        sendEmail(cart.getEmail(), "thanks for your order", content, false, true);
+        deliverEmail(cart.getEmail(), "thanks for your order", content, false, true);
+    }
+
+    private void deliverEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) throws MessagingException {
+        log.debug("Send email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
+            isMultipart, isHtml, to, subject, content);
+
+        // Prepare message using a Spring helper
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper message = new MimeMessageHelper(mimeMessage, isMultipart, StandardCharsets.UTF_8.name());
+        message.setTo(to);
+        message.setFrom(jHipsterProperties.getMail().getFrom());
+        message.setSubject(subject);
+        message.setText(content, isHtml);
+        javaMailSender.send(mimeMessage);
+        log.debug("Sent email to User '{}'", to);
     }
 }
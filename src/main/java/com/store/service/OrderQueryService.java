@@ -1,17 +1,38 @@
 package com.store.service;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.jhipster.service.QueryService;
 
 import com.store.domain.Order;
@@ -20,6 +41,12 @@ import com.store.repository.OrderRepository;
 import com.store.service.dto.OrderCriteria;
 import com.store.service.dto.OrderDTO;
 import com.store.service.mapper.OrderMapper;
+import com.store.service.util.FileFormat;
+import com.store.service.util.KeysetPagination;
+import com.store.service.util.KeysetSlice;
+import com.store.service.util.RowWriter;
+import com.store.service.util.SlicePagination;
+import com.store.service.util.SpecificationQueries;
 
 /**
  * Service for executing complex queries for {@link Order} entities in the database.
@@ -31,19 +58,50 @@ import com.store.service.mapper.OrderMapper;
 @Transactional(readOnly = true)
 public class OrderQueryService extends QueryService<Order> {
 
+    /**
+     * The properties a keyset-paginated slice can be sorted on.
+     */
+    public static final Set<String> KEYSET_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        "id", "quantity")));
+
+    /**
+     * The number of rows fetched per round trip by the exports.
+     */
+    public static final int EXPORT_FETCH_SIZE = 500;
+
+    private static final Map<String, Function<OrderDTO, ?>> EXPORT_COLUMNS;
+
+    static {
+        Map<String, Function<OrderDTO, ?>> columns = new LinkedHashMap<>();
+        columns.put("id", OrderDTO::getId);
+        columns.put("quantity", OrderDTO::getQuantity);
+        columns.put("cartId", OrderDTO::getCartId);
+        columns.put("itemId", OrderDTO::getItemId);
+        columns.put("itemTitle", OrderDTO::getItemTitle);
+        EXPORT_COLUMNS = Collections.unmodifiableMap(columns);
+    }
+
     private final Logger log = LoggerFactory.getLogger(OrderQueryService.class);
 
     private final OrderRepository orderRepository;
 
     private final OrderMapper orderMapper;
 
-    public OrderQueryService(OrderRepository orderRepository, OrderMapper orderMapper) {
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    public OrderQueryService(OrderRepository orderRepository, OrderMapper orderMapper, EntityManager entityManager,
+                            ObjectMapper objectMapper) {
         this.orderRepository = orderRepository;
         this.orderMapper = orderMapper;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * Return a {@link List} of {@link OrderDTO} which matches the criteria from the database.
+     * Only the columns of the DTOs are selected: the orders, their carts and items are never loaded.
      * @param criteria The object which holds all the filters, which the entities should match.
      * @return the matching entities.
      */
@@ -51,11 +109,14 @@ public class OrderQueryService extends QueryService<Order> {
     public List<OrderDTO> findByCriteria(OrderCriteria criteria) {
         log.debug("find by criteria : {}", criteria);
         final Specification<Order> specification = createSpecification(criteria);
-        return orderMapper.toDto(orderRepository.findAll(specification));
+        return createDtoQuery(specification, Sort.unsorted()).getResultList().stream()
+            .map(OrderQueryService::toDto)
+            .collect(Collectors.toList());
     }
 
     /**
      * Return a {@link Page} of {@link OrderDTO} which matches the criteria from the database.
+     * Only the columns of the DTOs are selected: the orders, their carts and items are never loaded.
      * @param criteria The object which holds all the filters, which the entities should match.
      * @param page The page, which should be returned.
      * @return the matching entities.
@@ -64,7 +125,46 @@ public class OrderQueryService extends QueryService<Order> {
     public Page<OrderDTO> findByCriteria(OrderCriteria criteria, Pageable page) {
         log.debug("find by criteria : {}, page: {}", criteria, page);
         final Specification<Order> specification = createSpecification(criteria);
-        return orderRepository.findAll(specification, page)
+        TypedQuery<Object[]> query = createDtoQuery(specification, page.getSort());
+        if (page.isPaged()) {
+            query.setFirstResult((int) page.getOffset());
+            query.setMaxResults(page.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(query.getResultList(), page, () -> orderRepository.count(specification))
+            .map(OrderQueryService::toDto);
+    }
+
+    /**
+     * Return a {@link Slice} of {@link OrderDTO} which matches the criteria from the database.
+     * Unlike a {@link Page}, the matching entities are never counted.
+     * Only the columns of the DTOs are selected: the orders, their carts and items are never loaded.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param page The page, which should be returned.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public Slice<OrderDTO> findSliceByCriteria(OrderCriteria criteria, Pageable page) {
+        log.debug("find slice by criteria : {}, page: {}", criteria, page);
+        final Specification<Order> specification = createSpecification(criteria);
+        TypedQuery<Object[]> query = SlicePagination.limit(createDtoQuery(specification, page.getSort()), page);
+        return SlicePagination.toSlice(query.getResultList(), page)
+            .map(OrderQueryService::toDto);
+    }
+
+    /**
+     * Return a {@link KeysetSlice} of {@link OrderDTO} which matches the criteria from the database, starting after
+     * the given cursor. Unlike a {@link Page}, the matching entities are never counted.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param after The cursor returned with the previous slice, empty for the first one.
+     * @param page The size and sort of the slice, sorted on one of {@link #KEYSET_PROPERTIES}. The page number is ignored.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public KeysetSlice<OrderDTO> findByCriteria(OrderCriteria criteria, String after, Pageable page) {
+        log.debug("find by criteria : {}, after: {}, page: {}", criteria, after, page);
+        final Sort.Order order = KeysetPagination.getOrder(page.getSort(), KEYSET_PROPERTIES);
+        final Specification<Order> specification = createSpecification(criteria).and(KeysetPagination.after(after, order));
+        return KeysetPagination.fetch(entityManager, Order.class, specification, order, page.getPageSize())
             .map(orderMapper::toDto);
     }
 
@@ -80,6 +180,52 @@ public class OrderQueryService extends QueryService<Order> {
         return orderRepository.count(specification);
     }
 
+    /**
+     * Write the entities which match the criteria to a file, by ascending id. The entities are read through a
+     * forward-only cursor, {@link #EXPORT_FETCH_SIZE} at a time, and written as they are read: only their columns are
+     * selected, so they never enter the persistence context, and the memory used does not depend on their number.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param format The format of the file.
+     * @param writer The file.
+     * @throws IOException if the file can not be written.
+     */
+    @Transactional(readOnly = true)
+    public void exportByCriteria(OrderCriteria criteria, FileFormat format, Writer writer) throws IOException {
+        log.debug("export by criteria : {}, format: {}", criteria, format);
+        RowWriter<OrderDTO> rowWriter = new RowWriter<>(format, writer, objectMapper, EXPORT_COLUMNS);
+        final Specification<Order> specification = createSpecification(criteria);
+        try (Stream<Object[]> rows = SpecificationQueries.stream(createDtoQuery(specification, Sort.by("id")), EXPORT_FETCH_SIZE)) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                rowWriter.write(toDto(iterator.next()));
+            }
+        }
+        rowWriter.flush();
+    }
+
+    private TypedQuery<Object[]> createDtoQuery(Specification<Order> specification, Sort sort) {
+        return SpecificationQueries.createQuery(entityManager, Order.class, specification, OrderQueryService::dtoSelection, sort);
+    }
+
+    /**
+     * The columns of an {@link OrderDTO}: the id of the cart is read from the order, and only the item is joined,
+     * for its title.
+     */
+    private static List<Selection<?>> dtoSelection(Root<Order> root, CriteriaBuilder cb) {
+        return Arrays.asList(root.get(Order_.id), root.get(Order_.quantity), root.get(Order_.cart).get(Cart_.id),
+            root.get(Order_.item).get(Item_.id), root.get(Order_.item).get(Item_.title));
+    }
+
+    private static OrderDTO toDto(Object[] row) {
+        OrderDTO orderDTO = new OrderDTO();
+        orderDTO.setId((Long) row[0]);
+        orderDTO.setQuantity((Integer) row[1]);
+        orderDTO.setCartId((Long) row[2]);
+        orderDTO.setItemId((Long) row[3]);
+        orderDTO.setItemTitle((String) row[4]);
+        return orderDTO;
+    }
+
     /**
      * Function to convert OrderCriteria to a {@link Specification}.
      */
@@ -1,10 +1,12 @@
 package com.store.service;
 
 import com.store.service.dto.OrderDTO;
+import com.store.service.dto.OrderLinesDTO;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -20,6 +22,15 @@ public interface OrderService {
      */
     OrderDTO save(OrderDTO orderDTO);
 
+    /**
+     * Add, update and remove many orders of a cart at once.
+     *
+     * @param cartId the id of the cart.
+     * @param orderLinesDTO the lines to add or update, and the ids of the orders to remove.
+     * @return the added and updated entities, in the order of the lines.
+     */
+    List<OrderDTO> saveLines(Long cartId, OrderLinesDTO orderLinesDTO);
+
     /**
      * Get all the orders.
      *
@@ -0,0 +1,142 @@
+package com.store.service;
+
+import com.store.domain.Item;
+import com.store.web.rest.errors.InsufficientStockException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service for reserving the stock of {@link Item}s when a cart is closed.
+ * <p>
+ * The stock is decremented in the database with conditional updates ({@code count >= quantity}), all sent in a
+ * single JDBC batch, so concurrent reservations of the same item can never oversell it nor lose an update. The
+ * updates are sent by ascending item id, so that two reservations always lock their rows in the same order and
+ * can not deadlock each other. The version of the items is incremented along, as by any other update.
+ */
+@Service
+public class StockReservationService {
+
+    private static final String DECREMENT_SQL = "update store_item set count = count - ?, version = version + 1 where id = ? and count >= ?";
+
+    private final Logger log = LoggerFactory.getLogger(StockReservationService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter shortageCounter;
+
+    private final Counter conflictCounter;
+
+    public StockReservationService(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                                   CacheInvalidationBus cacheInvalidationBus, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.meterRegistry = meterRegistry;
+        this.shortageCounter = Counter.builder("store.stock.reservation.shortages")
+            .description("Number of items which were not in stock when reserved")
+            .register(meterRegistry);
+        this.conflictCounter = Counter.builder("store.stock.reservation.conflicts")
+            .description("Number of reservations which failed on a lock timeout or deadlock, and should be retried")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Reserve the given quantities of items, within the current transaction.
+     * <p>
+     * Either all the items are reserved, or none of them is: if any item is short of stock, the transaction is
+     * rolled back. The reserved items are evicted from the second level cache once the transaction commits, on this
+     * node and, through the {@link CacheInvalidationBus}, on the others.
+     *
+     * @param quantities the quantity to reserve of each item, by item id.
+     * @throws InsufficientStockException if any item is short of stock.
+     * @throws PessimisticLockingFailureException if a lock could not be acquired, the whole transaction may be retried.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Map<Long, Integer> quantities) {
+        log.debug("Request to reserve items : {}", quantities);
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "conflict";
+        try {
+            int[] updateCounts = jdbcTemplate.batchUpdate(DECREMENT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    Map.Entry<Long, Integer> line = lines.get(i);
+                    ps.setInt(1, line.getValue());
+                    ps.setLong(2, line.getKey());
+                    ps.setInt(3, line.getValue());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return lines.size();
+                }
+            });
+            List<Long> shortItemIds = new ArrayList<>();
+            for (int i = 0; i < updateCounts.length; i++) {
+                if (updateCounts[i] == 0) {
+                    shortItemIds.add(lines.get(i).getKey());
+                }
+            }
+            if (!shortItemIds.isEmpty()) {
+                outcome = "insufficient";
+                shortageCounter.increment(shortItemIds.size());
+                throw new InsufficientStockException(shortItemIds);
+            }
+            outcome = "reserved";
+            afterCommit(() -> lines.forEach(line -> entityManagerFactory.getCache().evict(Item.class, line.getKey())));
+            // The updates bypass Hibernate, which can not tell the other nodes
+            lines.forEach(line -> cacheInvalidationBus.evictEntity(Item.class.getName(), line.getKey()));
+        } catch (PessimisticLockingFailureException e) {
+            conflictCounter.increment();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("store.stock.reservation")
+                .description("Time spent reserving the items of a cart, including waiting for row locks")
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.store.service;
+
+import com.store.config.ApplicationProperties;
+import com.store.domain.Cart;
+import com.store.domain.TicketOutboxEntry;
+import com.store.domain.enumeration.DeliveryStatus;
+import com.store.repository.CartRepository;
+import com.store.repository.TicketOutboxEntryRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service for sending the ticket emails of closed carts through a transactional outbox.
+ * <p>
+ * Closing a cart only writes a {@link TicketOutboxEntry}, in the same transaction. The entries are drained in
+ * batches by {@link #dispatch()}, which renders and sends the tickets outside of any transaction, so that neither
+ * the checkout nor a database connection ever waits on the template engine or the mail server. Failed tickets are
+ * retried with an exponential backoff, until they are given up on.
+ * <p>
+ * Tickets are sent at least once: a node dying between sending a ticket and recording it will have it sent again
+ * once its claim expires.
+ */
+@Service
+public class TicketOutboxService {
+
+    private final Logger log = LoggerFactory.getLogger(TicketOutboxService.class);
+
+    private final TicketOutboxEntryRepository ticketOutboxEntryRepository;
+
+    private final CartRepository cartRepository;
+
+    private final MailService mailService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationProperties.TicketOutbox properties;
+
+    private final MeterRegistry meterRegistry;
+
+    public TicketOutboxService(TicketOutboxEntryRepository ticketOutboxEntryRepository, CartRepository cartRepository,
+                               MailService mailService, PlatformTransactionManager transactionManager,
+                               ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.ticketOutboxEntryRepository = ticketOutboxEntryRepository;
+        this.cartRepository = cartRepository;
+        this.mailService = mailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = applicationProperties.getTicketOutbox();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Queue the ticket of a closed cart, within the transaction closing it.
+     *
+     * @param cart the closed cart.
+     * @return the persisted entry.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public TicketOutboxEntry enqueue(Cart cart) {
+        log.debug("Request to queue the ticket of Cart : {}", cart.getId());
+        Instant now = Instant.now();
+        return ticketOutboxEntryRepository.save(new TicketOutboxEntry()
+            .cart(cart)
+            .status(DeliveryStatus.PENDING)
+            .attempts(0)
+            .createdAt(now)
+            .nextAttemptAt(now));
+    }
+
+    /**
+     * Send the tickets due, one batch at a time, until there is none left.
+     */
+    @Scheduled(fixedDelayString = "${application.ticket-outbox.poll-interval:5000}")
+    public void dispatch() {
+        int sent;
+        do {
+            sent = dispatchBatch();
+        } while (sent == properties.getBatchSize());
+    }
+
+    /**
+     * Send one batch of tickets due.
+     *
+     * @return the number of tickets attempted.
+     */
+    public int dispatchBatch() {
+        List<Claim> claims = transactionTemplate.execute(status -> claim());
+        if (claims.isEmpty()) {
+            return 0;
+        }
+        Map<Long, String> errors = new HashMap<>();
+        for (Claim claim : claims) {
+            try {
+                mailService.sendTicket(claim.cart);
+            } catch (Exception e) {
+                log.warn("Ticket of Cart {} could not be sent: {}", claim.cart.getId(), e.getMessage());
+                errors.put(claim.entryId, StringUtils.defaultIfEmpty(StringUtils.abbreviate(e.getMessage(), 255), e.getClass().getName()));
+            }
+        }
+        transactionTemplate.execute(status -> {
+            record(claims, errors);
+            return null;
+        });
+        return claims.size();
+    }
+
+    /**
+     * Lock the entries due, push back their next attempt by the lease so that no other node claims them meanwhile,
+     * and load their carts with everything the ticket shows.
+     */
+    private List<Claim> claim() {
+        Instant now = Instant.now();
+        List<TicketOutboxEntry> entries = ticketOutboxEntryRepository.findDueForUpdate(DeliveryStatus.PENDING, now,
+            PageRequest.of(0, properties.getBatchSize()));
+        if (entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        for (TicketOutboxEntry entry : entries) {
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setNextAttemptAt(now.plus(properties.getLease()));
+        }
+        Map<Long, Cart> carts = cartRepository.findAllWithOrdersByIdIn(entries.stream()
+            .map(entry -> entry.getCart().getId())
+            .collect(Collectors.toSet())).stream()
+            .collect(Collectors.toMap(Cart::getId, Function.identity()));
+        return entries.stream()
+            .map(entry -> new Claim(entry.getId(), carts.get(entry.getCart().getId())))
+            .collect(Collectors.toList());
+    }
+
+    private void record(List<Claim> claims, Map<Long, String> errors) {
+        Instant now = Instant.now();
+        for (TicketOutboxEntry entry : ticketOutboxEntryRepository.findAllById(claims.stream()
+            .map(claim -> claim.entryId)
+            .collect(Collectors.toList()))) {
+            String error = errors.get(entry.getId());
+            String outcome;
+            if (error == null) {
+                entry.status(DeliveryStatus.SENT).sentAt(now).lastError(null);
+                outcome = "sent";
+            } else if (entry.getAttempts() >= properties.getMaxAttempts()) {
+                log.error("Giving up on the ticket of Cart {} after {} attempts", entry.getCart().getId(), entry.getAttempts());
+                entry.status(DeliveryStatus.FAILED).lastError(error);
+                outcome = "failed";
+            } else {
+                entry.nextAttemptAt(now.plus(backoff(entry.getAttempts()))).lastError(error);
+                outcome = "retried";
+            }
+            meterRegistry.counter("store.ticket.outbox.deliveries", "outcome", outcome).increment();
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        Duration backoff = properties.getInitialBackoff().multipliedBy(1L << Math.min(attempts - 1, 30));
+        return backoff.compareTo(properties.getMaxBackoff()) > 0 ? properties.getMaxBackoff() : backoff;
+    }
+
+    private static class Claim {
+
+        private final Long entryId;
+
+        private final Cart cart;
+
+        Claim(Long entryId, Cart cart) {
+            this.entryId = entryId;
+            this.cart = cart;
+        }
+    }
+}
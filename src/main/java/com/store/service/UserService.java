@@ -8,12 +8,14 @@ import com.store.repository.UserRepository;
 import com.store.security.AuthoritiesConstants;
 import com.store.security.SecurityUtils;
 import com.store.service.dto.UserDTO;
+import com.store.service.util.ConstraintViolations;
 import com.store.service.util.RandomUtil;
 import com.store.web.rest.errors.*;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -43,11 +45,21 @@ public class UserService {
 
     private final CacheManager cacheManager;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthorityRepository authorityRepository, CacheManager cacheManager) {
+    private final CacheWarmupService cacheWarmupService;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final ExistenceIndex existenceIndex;
+
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthorityRepository authorityRepository, CacheManager cacheManager,
+                       CacheWarmupService cacheWarmupService, CacheInvalidationBus cacheInvalidationBus, ExistenceIndex existenceIndex) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authorityRepository = authorityRepository;
         this.cacheManager = cacheManager;
+        this.cacheWarmupService = cacheWarmupService;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.existenceIndex = existenceIndex;
     }
 
     public Optional<User> activateRegistration(String key) {
@@ -87,14 +99,23 @@ public class UserService {
             });
     }
 
+    /**
+     * Register a new user, not activated yet. The login and email are only looked up if they may already be used,
+     * see {@link ExistenceIndex}; when they were taken meanwhile, or by another node the index did not hear from yet,
+     * the unique constraints reject the user alike.
+     *
+     * @param userDTO the user.
+     * @param password the password of the user.
+     * @return the user created.
+     */
     public User registerUser(UserDTO userDTO, String password) {
-        userRepository.findOneByLogin(userDTO.getLogin().toLowerCase()).ifPresent(existingUser -> {
+        existenceIndex.find(ExistenceIndex.Kind.LOGIN, userDTO.getLogin().toLowerCase(), userRepository::findOneByLogin).ifPresent(existingUser -> {
             boolean removed = removeNonActivatedUser(existingUser);
             if (!removed) {
                 throw new LoginAlreadyUsedException();
             }
         });
-        userRepository.findOneByEmailIgnoreCase(userDTO.getEmail()).ifPresent(existingUser -> {
+        existenceIndex.find(ExistenceIndex.Kind.EMAIL, userDTO.getEmail(), userRepository::findOneByEmailIgnoreCase).ifPresent(existingUser -> {
             boolean removed = removeNonActivatedUser(existingUser);
             if (!removed) {
                 throw new EmailAlreadyUsedException();
@@ -117,7 +138,18 @@ public class UserService {
         Set<Authority> authorities = new HashSet<>();
         authorityRepository.findById(AuthoritiesConstants.USER).ifPresent(authorities::add);
         newUser.setAuthorities(authorities);
-        userRepository.save(newUser);
+        try {
+            userRepository.saveAndFlush(newUser);
+        } catch (DataIntegrityViolationException e) {
+            if (ConstraintViolations.violates(e, "ux_user_login")) {
+                throw new LoginAlreadyUsedException();
+            }
+            if (ConstraintViolations.violates(e, "ux_user_email")) {
+                throw new EmailAlreadyUsedException();
+            }
+            throw e;
+        }
+        this.indexUser(newUser);
         this.clearUserCaches(newUser);
         log.debug("Created Information for User: {}", newUser);
         return newUser;
@@ -159,6 +191,7 @@ public class UserService {
             user.setAuthorities(authorities);
         }
         userRepository.save(user);
+        this.indexUser(user);
         this.clearUserCaches(user);
         log.debug("Created Information for User: {}", user);
         return user;
@@ -182,6 +215,7 @@ public class UserService {
                 user.setEmail(email.toLowerCase());
                 user.setLangKey(langKey);
                 user.setImageUrl(imageUrl);
+                this.indexUser(user);
                 this.clearUserCaches(user);
                 log.debug("Changed Information for User: {}", user);
             });
@@ -214,6 +248,7 @@ public class UserService {
                     .filter(Optional::isPresent)
                     .map(Optional::get)
                     .forEach(managedAuthorities::add);
+                this.indexUser(user);
                 this.clearUserCaches(user);
                 log.debug("Changed Information for User: {}", user);
                 return user;
@@ -251,6 +286,7 @@ public class UserService {
 
     @Transactional(readOnly = true)
     public Optional<User> getUserWithAuthoritiesByLogin(String login) {
+        cacheWarmupService.recordHit(UserRepository.USERS_BY_LOGIN_CACHE, login);
         return userRepository.findOneWithAuthoritiesByLogin(login);
     }
 
@@ -261,7 +297,10 @@ public class UserService {
 
     @Transactional(readOnly = true)
     public Optional<User> getUserWithAuthorities() {
-        return SecurityUtils.getCurrentUserLogin().flatMap(userRepository::findOneWithAuthoritiesByLogin);
+        return SecurityUtils.getCurrentUserLogin().flatMap(login -> {
+            cacheWarmupService.recordHit(UserRepository.USERS_BY_LOGIN_CACHE, login);
+            return userRepository.findOneWithAuthoritiesByLogin(login);
+        });
     }
 
     /**
@@ -288,8 +327,15 @@ public class UserService {
         return authorityRepository.findAll().stream().map(Authority::getName).collect(Collectors.toList());
     }
 
+    private void indexUser(User user) {
+        existenceIndex.add(ExistenceIndex.Kind.LOGIN, user.getLogin());
+        existenceIndex.add(ExistenceIndex.Kind.EMAIL, user.getEmail());
+    }
+
     private void clearUserCaches(User user) {
         Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE)).evict(user.getLogin());
         Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE)).evict(user.getEmail());
+        cacheInvalidationBus.evictCache(UserRepository.USERS_BY_LOGIN_CACHE, user.getLogin());
+        cacheInvalidationBus.evictCache(UserRepository.USERS_BY_EMAIL_CACHE, user.getEmail());
     }
 }
@@ -0,0 +1,119 @@
+package com.store.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.io.Serializable;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A DTO for a batch of cache evictions broadcast by a node to the others, with the keys grouped by region.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class CacheInvalidationDTO implements Serializable {
+
+    private String node;
+
+    private Map<String, Set<Long>> entities = new TreeMap<>();
+
+    private Map<String, Set<Long>> collections = new TreeMap<>();
+
+    private Map<String, Set<String>> caches = new TreeMap<>();
+
+    /**
+     * The id of the node which evicted the keys.
+     *
+     * @return the id of the node.
+     */
+    public String getNode() {
+        return node;
+    }
+
+    public void setNode(String node) {
+        this.node = node;
+    }
+
+    /**
+     * The ids of the entities evicted, by entity name.
+     *
+     * @return the ids.
+     */
+    public Map<String, Set<Long>> getEntities() {
+        return entities;
+    }
+
+    public void setEntities(Map<String, Set<Long>> entities) {
+        this.entities = entities;
+    }
+
+    /**
+     * The ids of the owners of the collections evicted, by collection role.
+     *
+     * @return the ids.
+     */
+    public Map<String, Set<Long>> getCollections() {
+        return collections;
+    }
+
+    public void setCollections(Map<String, Set<Long>> collections) {
+        this.collections = collections;
+    }
+
+    /**
+     * The keys evicted from the Spring caches, by cache name.
+     *
+     * @return the keys.
+     */
+    public Map<String, Set<String>> getCaches() {
+        return caches;
+    }
+
+    public void setCaches(Map<String, Set<String>> caches) {
+        this.caches = caches;
+    }
+
+    public CacheInvalidationDTO entity(String entityName, Long id) {
+        entities.computeIfAbsent(entityName, name -> new LinkedHashSet<>()).add(id);
+        return this;
+    }
+
+    public CacheInvalidationDTO collection(String role, Long ownerId) {
+        collections.computeIfAbsent(role, name -> new LinkedHashSet<>()).add(ownerId);
+        return this;
+    }
+
+    public CacheInvalidationDTO cache(String cacheName, String key) {
+        caches.computeIfAbsent(cacheName, name -> new LinkedHashSet<>()).add(key);
+        return this;
+    }
+
+    /**
+     * The number of keys evicted.
+     *
+     * @return the number of keys.
+     */
+    @JsonIgnore
+    public int size() {
+        return entities.values().stream().mapToInt(Set::size).sum()
+            + collections.values().stream().mapToInt(Set::size).sum()
+            + caches.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheInvalidationDTO{" +
+            "node='" + getNode() + "'" +
+            ", entities=" + getEntities() +
+            ", collections=" + getCollections() +
+            ", caches=" + getCaches() +
+            "}";
+    }
+}
@@ -17,6 +17,12 @@ public class CartDTO implements Serializable {
 
     private LocalDate closedAt;
 
+    private Double total;
+
+    private Integer lineCount;
+
+    private Integer version;
+
     public Long getId() {
         return id;
     }
@@ -41,6 +47,30 @@ public class CartDTO implements Serializable {
         this.closedAt = closedAt;
     }
 
+    public Double getTotal() {
+        return total;
+    }
+
+    public void setTotal(Double total) {
+        this.total = total;
+    }
+
+    public Integer getLineCount() {
+        return lineCount;
+    }
+
+    public void setLineCount(Integer lineCount) {
+        this.lineCount = lineCount;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -68,6 +98,9 @@ public class CartDTO implements Serializable {
             "id=" + getId() +
             ", email='" + getEmail() + "'" +
             ", closedAt='" + getClosedAt() + "'" +
+            ", total=" + getTotal() +
+            ", lineCount=" + getLineCount() +
+            ", version=" + getVersion() +
             "}";
     }
 }
@@ -0,0 +1,27 @@
+package com.store.service.dto;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO for the {@link com.store.domain.Cart} entity, with its orders and their items.
+ */
+public class CartFullDTO extends CartDTO {
+
+    private List<CartLineDTO> lines = new ArrayList<>();
+
+    public List<CartLineDTO> getLines() {
+        return lines;
+    }
+
+    public void setLines(List<CartLineDTO> lines) {
+        this.lines = lines;
+    }
+
+    @Override
+    public String toString() {
+        return "CartFullDTO{" +
+            "cart=" + super.toString() +
+            ", lines=" + getLines() +
+            "}";
+    }
+}
@@ -0,0 +1,80 @@
+package com.store.service.dto;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A DTO for a {@link com.store.domain.Order} within its cart, with a summary of its item.
+ */
+public class CartLineDTO implements Serializable {
+
+    private Long id;
+
+    private Integer quantity;
+
+    private Double total;
+
+    private ItemDTO item;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public Double getTotal() {
+        return total;
+    }
+
+    public void setTotal(Double total) {
+        this.total = total;
+    }
+
+    public ItemDTO getItem() {
+        return item;
+    }
+
+    public void setItem(ItemDTO item) {
+        this.item = item;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        CartLineDTO cartLineDTO = (CartLineDTO) o;
+        if (cartLineDTO.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), cartLineDTO.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "CartLineDTO{" +
+            "id=" + getId() +
+            ", quantity=" + getQuantity() +
+            ", total=" + getTotal() +
+            ", item=" + getItem() +
+            "}";
+    }
+}
@@ -32,6 +32,10 @@ public class ItemDTO implements Serializable {
 
     private String imageContentType;
 
+    private String imageHash;
+
+    private Integer version;
+
     public Long getId() {
         return id;
     }
@@ -88,6 +92,34 @@ public class ItemDTO implements Serializable {
         this.imageContentType = imageContentType;
     }
 
+    public String getImageHash() {
+        return imageHash;
+    }
+
+    public void setImageHash(String imageHash) {
+        this.imageHash = imageHash;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    /**
+     * The URL the image of this item is served from, versioned with the image hash.
+     *
+     * @return the image URL, or {@code null} if the item has no image.
+     */
+    public String getImageUrl() {
+        if (id == null || imageContentType == null) {
+            return null;
+        }
+        return "api/items/" + id + "/image" + (imageHash == null ? "" : "?v=" + imageHash);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -118,6 +150,8 @@ public class ItemDTO implements Serializable {
             ", price=" + getPrice() +
             ", count=" + getCount() +
             ", image='" + getImage() + "'" +
+            ", imageHash='" + getImageHash() + "'" +
+            ", version=" + getVersion() +
             "}";
     }
 }
@@ -0,0 +1,115 @@
+package com.store.service.dto;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO for the facets of the {@link com.store.domain.Item}s matching a criteria.
+ */
+public class ItemFacetsDTO implements Serializable {
+
+    private long total;
+
+    private long inStock;
+
+    private long outOfStock;
+
+    private List<PriceRange> priceRanges = new ArrayList<>();
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getInStock() {
+        return inStock;
+    }
+
+    public void setInStock(long inStock) {
+        this.inStock = inStock;
+    }
+
+    public long getOutOfStock() {
+        return outOfStock;
+    }
+
+    public void setOutOfStock(long outOfStock) {
+        this.outOfStock = outOfStock;
+    }
+
+    public List<PriceRange> getPriceRanges() {
+        return priceRanges;
+    }
+
+    public void setPriceRanges(List<PriceRange> priceRanges) {
+        this.priceRanges = priceRanges;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemFacetsDTO{" +
+            "total=" + getTotal() +
+            ", inStock=" + getInStock() +
+            ", outOfStock=" + getOutOfStock() +
+            ", priceRanges=" + getPriceRanges() +
+            "}";
+    }
+
+    /**
+     * The number of items priced from {@code from}, included, to {@code to}, excluded. The first range has no lower
+     * bound, and the last one no upper bound.
+     */
+    public static class PriceRange implements Serializable {
+
+        private Double from;
+
+        private Double to;
+
+        private long count;
+
+        public PriceRange() {
+        }
+
+        public PriceRange(Double from, Double to, long count) {
+            this.from = from;
+            this.to = to;
+            this.count = count;
+        }
+
+        public Double getFrom() {
+            return from;
+        }
+
+        public void setFrom(Double from) {
+            this.from = from;
+        }
+
+        public Double getTo() {
+            return to;
+        }
+
+        public void setTo(Double to) {
+            this.to = to;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+
+        @Override
+        public String toString() {
+            return "PriceRange{" +
+                "from=" + getFrom() +
+                ", to=" + getTo() +
+                ", count=" + getCount() +
+                "}";
+        }
+    }
+}
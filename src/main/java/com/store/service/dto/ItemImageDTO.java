@@ -0,0 +1,40 @@
+package com.store.service.dto;
+
+/**
+ * A DTO representing the image of an {@link com.store.domain.Item}, served on its own endpoint.
+ */
+public class ItemImageDTO {
+
+    private final String contentType;
+
+    private final String hash;
+
+    private final byte[] content;
+
+    public ItemImageDTO(String contentType, String hash, byte[] content) {
+        this.contentType = contentType;
+        this.hash = hash;
+        this.content = content;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemImageDTO{" +
+            "contentType='" + contentType + "'" +
+            ", hash='" + hash + "'" +
+            ", length=" + content.length +
+            "}";
+    }
+}
@@ -0,0 +1,117 @@
+package com.store.service.dto;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO for the outcome of a bulk import of {@link com.store.domain.Item}s.
+ */
+public class ItemImportResultDTO implements Serializable {
+
+    private long imported;
+
+    private long failed;
+
+    private long durationMillis;
+
+    private double rowsPerSecond;
+
+    private List<RowError> errors = new ArrayList<>();
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    /**
+     * The errors of the first failed rows; {@link #getFailed()} counts them all.
+     *
+     * @return the errors, by row.
+     */
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemImportResultDTO{" +
+            "imported=" + getImported() +
+            ", failed=" + getFailed() +
+            ", durationMillis=" + getDurationMillis() +
+            ", rowsPerSecond=" + getRowsPerSecond() +
+            "}";
+    }
+
+    /**
+     * The reason a row, starting on the given line of the file, was not imported.
+     */
+    public static class RowError implements Serializable {
+
+        private long line;
+
+        private String message;
+
+        public RowError() {
+        }
+
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public void setLine(long line) {
+            this.line = line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return "RowError{" +
+                "line=" + getLine() +
+                ", message='" + getMessage() + "'" +
+                "}";
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.store.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO for an {@link com.store.domain.Item} found by a full-text search, with its relevance score.
+ */
+public class ItemSearchResultDTO implements Serializable {
+
+    private Long id;
+
+    private String title;
+
+    private Double score;
+
+    public ItemSearchResultDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public ItemSearchResultDTO(Long id, String title, Double score) {
+        this.id = id;
+        this.title = title;
+        this.score = score;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public void setScore(Double score) {
+        this.score = score;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemSearchResultDTO{" +
+            "id=" + getId() +
+            ", title='" + getTitle() + "'" +
+            ", score=" + getScore() +
+            "}";
+    }
+}
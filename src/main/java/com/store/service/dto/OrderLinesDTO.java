@@ -0,0 +1,55 @@
+package com.store.service.dto;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A DTO for changing many {@link com.store.domain.Order}s of one cart at once.
+ */
+public class OrderLinesDTO implements Serializable {
+
+    @NotNull
+    @Valid
+    private List<OrderDTO> lines = new ArrayList<>();
+
+    @NotNull
+    private Set<Long> removedIds = new LinkedHashSet<>();
+
+    /**
+     * The lines to add, without id, or to update, with the id of the order.
+     *
+     * @return the lines.
+     */
+    public List<OrderDTO> getLines() {
+        return lines;
+    }
+
+    public void setLines(List<OrderDTO> lines) {
+        this.lines = lines;
+    }
+
+    /**
+     * The ids of the orders to remove.
+     *
+     * @return the ids.
+     */
+    public Set<Long> getRemovedIds() {
+        return removedIds;
+    }
+
+    public void setRemovedIds(Set<Long> removedIds) {
+        this.removedIds = removedIds;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderLinesDTO{" +
+            "lines=" + getLines().size() +
+            ", removedIds=" + getRemovedIds() +
+            "}";
+    }
+}
@@ -1,14 +1,20 @@
 package com.store.service.impl;
 
-import com.store.domain.Item;
-import com.store.domain.Order;
-import com.store.repository.ItemRepository;
+import com.store.repository.OrderRepository;
 import com.store.service.CartService;
+import com.store.service.CacheWarmupService;
+import com.store.service.LoadCoalescer;
+import com.store.service.CatalogEpoch;
+import com.store.service.ItemCatalogSnapshot;
 import com.store.domain.Cart;
 import com.store.repository.CartRepository;
-import com.store.service.MailService;
+import com.store.service.StockReservationService;
+import com.store.service.TicketOutboxService;
 import com.store.service.dto.CartDTO;
+import com.store.service.dto.CartFullDTO;
+import com.store.service.dto.CartLineDTO;
 import com.store.service.mapper.CartMapper;
+import com.store.web.rest.errors.BadRequestAlertException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,8 +24,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -31,22 +38,44 @@ public class CartServiceImpl implements CartService {
 
     private final Logger log = LoggerFactory.getLogger(CartServiceImpl.class);
 
-    private final MailService mailService;
-    private final ItemRepository itemRepository;
+    private final StockReservationService stockReservationService;
+
+    private final TicketOutboxService ticketOutboxService;
 
     private final CartRepository cartRepository;
 
+    private final OrderRepository orderRepository;
+
     private final CartMapper cartMapper;
 
-    public CartServiceImpl(MailService mailService, ItemRepository itemRepository, CartRepository cartRepository, CartMapper cartMapper) {
-        this.mailService = mailService;
-        this.itemRepository = itemRepository;
+    private final CatalogEpoch catalogEpoch;
+
+    private final ItemCatalogSnapshot itemCatalogSnapshot;
+
+    private final CacheWarmupService cacheWarmupService;
+
+    private final LoadCoalescer loadCoalescer;
+
+    public CartServiceImpl(StockReservationService stockReservationService, TicketOutboxService ticketOutboxService,
+                           CartRepository cartRepository, OrderRepository orderRepository, CartMapper cartMapper,
+                           CatalogEpoch catalogEpoch, ItemCatalogSnapshot itemCatalogSnapshot,
+                           CacheWarmupService cacheWarmupService, LoadCoalescer loadCoalescer) {
+        this.stockReservationService = stockReservationService;
+        this.ticketOutboxService = ticketOutboxService;
         this.cartRepository = cartRepository;
+        this.orderRepository = orderRepository;
         this.cartMapper = cartMapper;
+        this.catalogEpoch = catalogEpoch;
+        this.itemCatalogSnapshot = itemCatalogSnapshot;
+        this.cacheWarmupService = cacheWarmupService;
+        this.loadCoalescer = loadCoalescer;
     }
 
     /**
      * Save a cart.
+     * <p>
+     * An update of a cart changed since the version it was read at fails with an
+     * {@link org.springframework.orm.ObjectOptimisticLockingFailureException}.
      *
      * @param cartDTO the entity to save.
      * @return the persisted entity.
@@ -55,32 +84,46 @@ public class CartServiceImpl implements CartService {
     public CartDTO save(CartDTO cartDTO) {
         log.debug("Request to save Cart : {}", cartDTO);
         if (cartDTO.getClosedAt() == null) return close(cartDTO);
-        Cart cart = cartMapper.toEntity(cartDTO);
-        cart = cartRepository.save(cart);
+        Cart cart = toEntity(cartDTO);
+        // Flushed to fail on a concurrent update right away, and to return the new version
+        cart = cartRepository.saveAndFlush(cart);
         return cartMapper.toDto(cart);
     }
 
     /**
      * close a cart.
+     * <p>
+     * The cart is marked closed and the stock of its items is reserved atomically, so that a cart is never
+     * closed twice, and concurrent closes never oversell an item. Its ticket is queued, to be sent once committed.
      *
      * @param cartDTO the entity to close.
      * @return the persisted entity.
+     * @throws com.store.web.rest.errors.InsufficientStockException if an item of the cart is short of stock.
      */
     @Override
     public CartDTO close(CartDTO cartDTO) {
         log.debug("Request to close Cart : {}", cartDTO);
-        Cart cart = cartMapper.toEntity(cartDTO);
+        Cart cart = toEntity(cartDTO);
         if (cart.getClosedAt() == null) {
-            List<Item> modified = new ArrayList<>();
-            for (Order order : cart.getOrders()) {
-                Item item = order.getItem();
-                item.setCount(item.getCount() - order.getQuantity());
-                modified.add(item);
+            LocalDate closedAt = LocalDate.now();
+            if (cart.getId() != null) {
+                if (cartRepository.closeById(cart.getId(), closedAt) == 0 && cartRepository.existsById(cart.getId())) {
+                    throw new BadRequestAlertException("Cart already closed", "cart", "cartclosed");
+                }
+                Map<Long, Integer> quantities = new HashMap<>();
+                for (Object[] line : orderRepository.sumQuantitiesByItemIdForCartId(cart.getId())) {
+                    quantities.put((Long) line[0], ((Number) line[1]).intValue());
+                }
+                stockReservationService.reserve(quantities);
+                if (!quantities.isEmpty()) {
+                    // The stock of the items changed
+                    catalogEpoch.advance();
+                    itemCatalogSnapshot.refreshCounts(quantities.keySet());
+                }
             }
-            itemRepository.saveAll(modified);
-            cart.setClosedAt(LocalDate.now());
-            cart = cartRepository.save(cart);
-            mailService.sendTicket(cart);
+            cart.setClosedAt(closedAt);
+            cart = cartRepository.saveAndFlush(cart);
+            ticketOutboxService.enqueue(cart);
         }
         return cartMapper.toDto(cart);
     }
@@ -102,6 +145,9 @@ public class CartServiceImpl implements CartService {
 
     /**
      * Get one cart by id.
+     * <p>
+     * The concurrent loads of the same cart share one query, see {@link LoadCoalescer}: the cart returned must not be
+     * modified.
      *
      * @param id the id of the entity.
      * @return the entity.
@@ -110,8 +156,40 @@ public class CartServiceImpl implements CartService {
     @Transactional(readOnly = true)
     public Optional<CartDTO> findOne(Long id) {
         log.debug("Request to get Cart : {}", id);
-        return cartRepository.findById(id)
-            .map(cartMapper::toDto);
+        cacheWarmupService.recordHit(Cart.class.getName(), id);
+        return loadCoalescer.load(Cart.class.getName(), id, () -> cartRepository.findById(id)
+            .map(cartMapper::toDto));
+    }
+
+    /**
+     * Get the version of one cart by id, without loading it.
+     *
+     * @param id the id of the entity.
+     * @return the version.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Integer> findVersion(Long id) {
+        log.debug("Request to get the version of Cart : {}", id);
+        return cartRepository.findVersionById(id);
+    }
+
+    /**
+     * Get one cart by id, with its orders and their items, in a single query.
+     *
+     * @param id the id of the entity.
+     * @return the entity.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<CartFullDTO> findOneFull(Long id) {
+        log.debug("Request to get Cart with its orders : {}", id);
+        return cartRepository.findOneWithOrdersById(id)
+            .map(cartMapper::toFullDto)
+            .map(cart -> {
+                cart.getLines().sort(Comparator.comparing(CartLineDTO::getId));
+                return cart;
+            });
     }
 
     /**
@@ -124,4 +202,23 @@ public class CartServiceImpl implements CartService {
         log.debug("Request to delete Cart : {}", id);
         cartRepository.deleteById(id);
     }
+
+    /**
+     * Map the cart, keeping the totals maintained from its orders, which are not part of the DTO, and the version of
+     * the cart when the DTO has none.
+     */
+    private Cart toEntity(CartDTO cartDTO) {
+        Cart cart = cartMapper.toEntity(cartDTO);
+        if (cart.getId() != null) {
+            cartRepository.findById(cart.getId())
+                .ifPresent(existing -> {
+                    cart.total(existing.getTotal()).lineCount(existing.getLineCount());
+                    if (cart.getVersion() == null) {
+                        // Clients unaware of versions overwrite the cart, as they always did
+                        cart.setVersion(existing.getVersion());
+                    }
+                });
+        }
+        return cart;
+    }
 }
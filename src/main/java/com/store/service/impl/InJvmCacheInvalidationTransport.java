@@ -0,0 +1,53 @@
+package com.store.service.impl;
+
+import com.store.service.CacheInvalidationTransport;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link CacheInvalidationTransport} between the application contexts of one JVM: the messages published on a
+ * channel are delivered synchronously to the subscribers of all the transports of the channel.
+ * <p>
+ * It lets tests run several nodes in one JVM.
+ */
+public class InJvmCacheInvalidationTransport implements CacheInvalidationTransport {
+
+    private static final Map<String, List<Consumer<String>>> SUBSCRIBERS = new ConcurrentHashMap<>();
+
+    private final String channel;
+
+    private final List<Consumer<String>> subscribers = new CopyOnWriteArrayList<>();
+
+    public InJvmCacheInvalidationTransport(String channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public int getMaxMessageSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void publish(String message) {
+        for (Consumer<String> subscriber : SUBSCRIBERS.getOrDefault(channel, Collections.emptyList())) {
+            subscriber.accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> onMessage, Runnable onGap) {
+        subscribers.add(onMessage);
+        SUBSCRIBERS.computeIfAbsent(channel, name -> new CopyOnWriteArrayList<>()).add(onMessage);
+    }
+
+    @Override
+    public void close() {
+        SUBSCRIBERS.getOrDefault(channel, Collections.emptyList()).removeAll(subscribers);
+        subscribers.clear();
+    }
+}
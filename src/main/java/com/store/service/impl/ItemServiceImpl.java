@@ -1,19 +1,44 @@
 package com.store.service.impl;
 
+import com.store.service.CacheWarmupService;
+import com.store.service.ExistenceIndex;
+import com.store.service.LoadCoalescer;
+import com.store.service.CatalogEpoch;
+import com.store.service.ItemCatalogSnapshot;
+import com.store.service.ItemSearchService;
 import com.store.service.ItemService;
+import com.store.service.ItemThumbnailService;
 import com.store.domain.Item;
+import com.store.domain.Order;
 import com.store.repository.ItemRepository;
+import com.store.repository.OrderRepository;
 import com.store.service.dto.ItemDTO;
+import com.store.service.dto.ItemImageDTO;
 import com.store.service.mapper.ItemMapper;
+import com.store.service.util.ConstraintViolations;
+import com.store.web.rest.errors.BadRequestAlertException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Service Implementation for managing {@link Item}.
@@ -26,15 +51,51 @@ public class ItemServiceImpl implements ItemService {
 
     private final ItemRepository itemRepository;
 
+    private final OrderRepository orderRepository;
+
     private final ItemMapper itemMapper;
 
-    public ItemServiceImpl(ItemRepository itemRepository, ItemMapper itemMapper) {
+    private final ItemThumbnailService itemThumbnailService;
+
+    private final ItemSearchService itemSearchService;
+
+    private final CatalogEpoch catalogEpoch;
+
+    private final ItemCatalogSnapshot itemCatalogSnapshot;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final CacheWarmupService cacheWarmupService;
+
+    private final LoadCoalescer loadCoalescer;
+
+    private final ExistenceIndex existenceIndex;
+
+    public ItemServiceImpl(ItemRepository itemRepository, OrderRepository orderRepository, ItemMapper itemMapper,
+                           ItemThumbnailService itemThumbnailService, ItemSearchService itemSearchService,
+                           CatalogEpoch catalogEpoch, ItemCatalogSnapshot itemCatalogSnapshot,
+                           EntityManagerFactory entityManagerFactory, CacheWarmupService cacheWarmupService,
+                           LoadCoalescer loadCoalescer, ExistenceIndex existenceIndex) {
         this.itemRepository = itemRepository;
+        this.orderRepository = orderRepository;
         this.itemMapper = itemMapper;
+        this.itemThumbnailService = itemThumbnailService;
+        this.itemSearchService = itemSearchService;
+        this.catalogEpoch = catalogEpoch;
+        this.itemCatalogSnapshot = itemCatalogSnapshot;
+        this.entityManagerFactory = entityManagerFactory;
+        this.cacheWarmupService = cacheWarmupService;
+        this.loadCoalescer = loadCoalescer;
+        this.existenceIndex = existenceIndex;
     }
 
     /**
      * Save a item.
+     * <p>
+     * A price change is carried over to the totals of the open carts ordering the item; closed carts keep the
+     * totals they were closed with. An update of an item changed since the version it was read at fails with an
+     * {@link org.springframework.orm.ObjectOptimisticLockingFailureException}. A title already used by another item
+     * is rejected before the item is written; it is only looked up if it may be used, see {@link ExistenceIndex}.
      *
      * @param itemDTO the entity to save.
      * @return the persisted entity.
@@ -43,7 +104,47 @@ public class ItemServiceImpl implements ItemService {
     public ItemDTO save(ItemDTO itemDTO) {
         log.debug("Request to save Item : {}", itemDTO);
         Item item = itemMapper.toEntity(itemDTO);
-        item = itemRepository.save(item);
+        Item previous = item.getId() == null ? null : itemRepository.findById(item.getId()).orElse(null);
+        Double previousPrice = previous == null ? null : previous.getPrice();
+        String previousImageHash = previous == null ? null : previous.getImageHash();
+        if (previous == null || !previous.getTitle().equals(item.getTitle())) {
+            Long itemId = item.getId();
+            existenceIndex.find(ExistenceIndex.Kind.ITEM_TITLE, item.getTitle(), itemRepository::findIdByTitle)
+                .filter(id -> !id.equals(itemId))
+                .ifPresent(id -> {
+                    throw new BadRequestAlertException("Title already used", "item", "titleexists");
+                });
+        }
+        if (previous != null && item.getVersion() == null) {
+            // Clients unaware of versions overwrite the item, as they always did
+            item.setVersion(previous.getVersion());
+        }
+        // Flushed to fail on a concurrent update right away, and to return the new version
+        try {
+            item = itemRepository.saveAndFlush(item);
+        } catch (DataIntegrityViolationException e) {
+            // A title taken meanwhile, or by another node the index did not hear from yet
+            if (ConstraintViolations.violates(e, "ux_store_item_title")) {
+                throw new BadRequestAlertException("Title already used", "item", "titleexists");
+            }
+            throw e;
+        }
+        existenceIndex.add(ExistenceIndex.Kind.ITEM_TITLE, item.getTitle());
+        catalogEpoch.advance();
+        if (previousPrice != null && !previousPrice.equals(item.getPrice())) {
+            double change = item.getPrice() - previousPrice;
+            for (Order order : orderRepository.findAllWithOpenCartByItemId(item.getId())) {
+                order.getCart().addToTotals(0, change * order.getQuantity());
+            }
+        }
+        itemSearchService.index(item.getId(), item.getTitle(), item.getDescription());
+        itemCatalogSnapshot.put(item.getId(), item.getTitle(), item.getPrice(), item.getCount());
+        if (item.getImage() != null) {
+            itemThumbnailService.generateThumbnails(item.getImage());
+        }
+        if (previousImageHash != null && !previousImageHash.equals(item.getImageHash())) {
+            itemThumbnailService.deleteUnusedThumbnails(previousImageHash);
+        }
         return itemMapper.toDto(item);
     }
 
@@ -58,12 +159,15 @@ public class ItemServiceImpl implements ItemService {
     public Page<ItemDTO> findAll(Pageable pageable) {
         log.debug("Request to get all Items");
         return itemRepository.findAll(pageable)
-            .map(itemMapper::toDto);
+            .map(itemMapper::toSummaryDto);
     }
 
 
     /**
      * Get one item by id.
+     * <p>
+     * The concurrent loads of the same item share one query, see {@link LoadCoalescer}: the item returned must not be
+     * modified.
      *
      * @param id the id of the entity.
      * @return the entity.
@@ -72,8 +176,73 @@ public class ItemServiceImpl implements ItemService {
     @Transactional(readOnly = true)
     public Optional<ItemDTO> findOne(Long id) {
         log.debug("Request to get Item : {}", id);
+        cacheWarmupService.recordHit(Item.class.getName(), id);
+        return loadCoalescer.load(Item.class.getName(), id, () -> itemRepository.findById(id)
+            .map(itemMapper::toDto));
+    }
+
+    /**
+     * Get the version of one item by id, without loading it.
+     *
+     * @param id the id of the entity.
+     * @return the version.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Integer> findVersion(Long id) {
+        log.debug("Request to get the version of Item : {}", id);
+        return itemRepository.findVersionById(id);
+    }
+
+    /**
+     * Get the items of the given ids, in the order of the ids.
+     * <p>
+     * The items in the second level cache are assembled from it, and all the others are loaded with a single
+     * select, which puts them in the cache.
+     *
+     * @param ids the ids of the entities.
+     * @return the list of entities.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemDTO> findAllById(Collection<Long> ids) {
+        log.debug("Request to get Items : {}", ids);
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        Cache cache = entityManagerFactory.getCache();
+        Map<Long, Item> items = new HashMap<>();
+        List<Long> missedIds = new ArrayList<>();
+        for (Long id : distinctIds) {
+            if (cache.contains(Item.class, id)) {
+                itemRepository.findById(id).ifPresent(item -> items.put(id, item));
+            } else {
+                missedIds.add(id);
+            }
+        }
+        if (!missedIds.isEmpty()) {
+            itemRepository.findAllById(missedIds).forEach(item -> items.put(item.getId(), item));
+        }
+        return distinctIds.stream()
+            .map(items::get)
+            .filter(Objects::nonNull)
+            .map(itemMapper::toSummaryDto)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the image of one item by id.
+     *
+     * @param id the id of the entity.
+     * @return the image.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ItemImageDTO> findImage(Long id) {
+        log.debug("Request to get the image of Item : {}", id);
         return itemRepository.findById(id)
-            .map(itemMapper::toDto);
+            .filter(item -> item.getImage() != null && item.getImageContentType() != null)
+            .map(item -> new ItemImageDTO(item.getImageContentType(),
+                item.getImageHash() != null ? item.getImageHash() : DigestUtils.md5DigestAsHex(item.getImage()),
+                item.getImage()));
     }
 
     /**
@@ -84,6 +253,11 @@ public class ItemServiceImpl implements ItemService {
     @Override
     public void delete(Long id) {
         log.debug("Request to delete Item : {}", id);
+        Optional<String> imageHash = itemRepository.findImageHashById(id);
         itemRepository.deleteById(id);
+        catalogEpoch.advance();
+        itemSearchService.remove(id);
+        itemCatalogSnapshot.remove(id);
+        imageHash.ifPresent(itemThumbnailService::deleteUnusedThumbnails);
     }
 }
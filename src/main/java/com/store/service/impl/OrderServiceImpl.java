@@ -1,10 +1,16 @@
 package com.store.service.impl;
 
 import com.store.service.OrderService;
+import com.store.domain.Cart;
+import com.store.domain.Item;
 import com.store.domain.Order;
+import com.store.repository.CartRepository;
+import com.store.repository.ItemRepository;
 import com.store.repository.OrderRepository;
 import com.store.service.dto.OrderDTO;
+import com.store.service.dto.OrderLinesDTO;
 import com.store.service.mapper.OrderMapper;
+import com.store.web.rest.errors.BadRequestAlertException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,7 +19,15 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service Implementation for managing {@link Order}.
@@ -22,19 +36,31 @@ import java.util.Optional;
 @Transactional
 public class OrderServiceImpl implements OrderService {
 
+    private static final String ENTITY_NAME = "order";
+
     private final Logger log = LoggerFactory.getLogger(OrderServiceImpl.class);
 
     private final OrderRepository orderRepository;
 
+    private final CartRepository cartRepository;
+
+    private final ItemRepository itemRepository;
+
     private final OrderMapper orderMapper;
 
-    public OrderServiceImpl(OrderRepository orderRepository, OrderMapper orderMapper) {
+    public OrderServiceImpl(OrderRepository orderRepository, CartRepository cartRepository, ItemRepository itemRepository,
+                            OrderMapper orderMapper) {
         this.orderRepository = orderRepository;
+        this.cartRepository = cartRepository;
+        this.itemRepository = itemRepository;
         this.orderMapper = orderMapper;
     }
 
     /**
      * Save a order.
+     * <p>
+     * The totals of its cart are updated along: an updated order is first taken out of the totals of the cart it
+     * belonged to.
      *
      * @param orderDTO the entity to save.
      * @return the persisted entity.
@@ -43,10 +69,100 @@ public class OrderServiceImpl implements OrderService {
     public OrderDTO save(OrderDTO orderDTO) {
         log.debug("Request to save Order : {}", orderDTO);
         Order order = orderMapper.toEntity(orderDTO);
+        if (order.getId() != null) {
+            orderRepository.findById(order.getId()).ifPresent(previous -> addToCartTotals(previous, -1));
+        }
+        // The cart and item mapped from their ids have no version, which would take them for new entities
+        if (order.getCart() != null) {
+            order.setCart(cartRepository.getOne(order.getCart().getId()));
+        }
+        if (order.getItem() != null) {
+            order.setItem(itemRepository.getOne(order.getItem().getId()));
+        }
         order = orderRepository.save(order);
+        addToCartTotals(order, 1);
         return orderMapper.toDto(order);
     }
 
+    /**
+     * Add, update and remove many orders of a cart at once.
+     * <p>
+     * The orders and items the lines refer to are validated up front, with one query each, so that nothing is
+     * changed unless all the lines are valid. The changes are then flushed in JDBC batches, and the totals of the
+     * cart are updated once.
+     *
+     * @param cartId the id of the cart.
+     * @param orderLinesDTO the lines to add or update, and the ids of the orders to remove.
+     * @return the added and updated entities, in the order of the lines.
+     */
+    @Override
+    public List<OrderDTO> saveLines(Long cartId, OrderLinesDTO orderLinesDTO) {
+        log.debug("Request to save Order lines of Cart {} : {}", cartId, orderLinesDTO);
+        Cart cart = cartRepository.findById(cartId)
+            .orElseThrow(() -> new BadRequestAlertException("Cart not found", ENTITY_NAME, "cartnotfound"));
+        if (cart.getClosedAt() != null) {
+            throw new BadRequestAlertException("Cart already closed", ENTITY_NAME, "cartclosed");
+        }
+        Set<Long> orderIds = new HashSet<>(orderLinesDTO.getRemovedIds());
+        Set<Long> itemIds = new HashSet<>();
+        for (OrderDTO line : orderLinesDTO.getLines()) {
+            if (line.getCartId() != null && !line.getCartId().equals(cartId)) {
+                throw new BadRequestAlertException("A line belongs to another cart", ENTITY_NAME, "cartmismatch");
+            }
+            if (line.getId() != null && !orderIds.add(line.getId())) {
+                throw new BadRequestAlertException("An order is changed twice", ENTITY_NAME, "duplicateline");
+            }
+            if (line.getItemId() != null) {
+                itemIds.add(line.getItemId());
+            } else if (line.getId() == null) {
+                throw new BadRequestAlertException("A new line has no item", ENTITY_NAME, "itemidnull");
+            }
+        }
+        Map<Long, Order> orders = orderIds.isEmpty() ? Collections.emptyMap()
+            : orderRepository.findAllWithItemByIdIn(orderIds).stream()
+                .filter(order -> order.getCart().getId().equals(cartId))
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        if (orders.size() != orderIds.size()) {
+            throw new BadRequestAlertException("Order not found in the cart", ENTITY_NAME, "ordernotfound");
+        }
+        Map<Long, Item> items = itemIds.isEmpty() ? Collections.emptyMap()
+            : itemRepository.findAllById(itemIds).stream().collect(Collectors.toMap(Item::getId, Function.identity()));
+        if (items.size() != itemIds.size()) {
+            throw new BadRequestAlertException("Item not found", ENTITY_NAME, "itemnotfound");
+        }
+
+        int lines = 0;
+        double amount = 0;
+        List<Order> saved = new ArrayList<>(orderLinesDTO.getLines().size());
+        for (OrderDTO line : orderLinesDTO.getLines()) {
+            Order order;
+            if (line.getId() == null) {
+                order = new Order().cart(cart);
+                lines++;
+            } else {
+                order = orders.get(line.getId());
+                amount -= order.getTotal();
+            }
+            if (line.getItemId() != null) {
+                order.setItem(items.get(line.getItemId()));
+            }
+            order.setQuantity(line.getQuantity());
+            amount += order.getTotal();
+            saved.add(order);
+        }
+        List<Order> removed = new ArrayList<>(orderLinesDTO.getRemovedIds().size());
+        for (Long id : orderLinesDTO.getRemovedIds()) {
+            Order order = orders.get(id);
+            amount -= order.getTotal();
+            lines--;
+            removed.add(order);
+        }
+        orderRepository.deleteAll(removed);
+        saved = orderRepository.saveAll(saved);
+        cart.addToTotals(lines, amount);
+        return saved.stream().map(orderMapper::toDto).collect(Collectors.toList());
+    }
+
     /**
      * Get all the orders.
      *
@@ -84,6 +200,21 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public void delete(Long id) {
         log.debug("Request to delete Order : {}", id);
+        orderRepository.findById(id).ifPresent(order -> addToCartTotals(order, -1));
         orderRepository.deleteById(id);
     }
+
+    /**
+     * Add an order to, or take it out of, the totals of its cart.
+     *
+     * @param order the order, whose item and cart may only be references.
+     * @param sign {@code 1} to add the order, {@code -1} to take it out.
+     */
+    private void addToCartTotals(Order order, int sign) {
+        if (order.getCart() == null || order.getItem() == null) {
+            return;
+        }
+        double amount = itemRepository.getOne(order.getItem().getId()).getPrice() * order.getQuantity();
+        cartRepository.getOne(order.getCart().getId()).addToTotals(sign, sign * amount);
+    }
 }
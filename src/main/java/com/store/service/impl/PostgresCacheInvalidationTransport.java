@@ -0,0 +1,144 @@
+package com.store.service.impl;
+
+import com.store.service.CacheInvalidationTransport;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * {@link CacheInvalidationTransport} over PostgreSQL LISTEN/NOTIFY, so that the nodes sharing a database need no
+ * other infrastructure.
+ * <p>
+ * The messages are published with {@code pg_notify}, and received on a connection of the pool dedicated to listening
+ * by a daemon thread. When this connection fails, the messages published until the next one listens are lost: the
+ * subscribers are told once it listens again.
+ */
+public class PostgresCacheInvalidationTransport implements CacheInvalidationTransport {
+
+    /**
+     * The NOTIFY payloads are shorter than 8000 bytes: with room for non-ASCII characters, up to 4 bytes each.
+     */
+    private static final int MAX_MESSAGE_SIZE = 1999;
+
+    private static final Pattern CHANNEL_PATTERN = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private static final int POLL_TIMEOUT = 500;
+
+    private static final long RECONNECT_DELAY = 5000;
+
+    private final Logger log = LoggerFactory.getLogger(PostgresCacheInvalidationTransport.class);
+
+    private final DataSource dataSource;
+
+    private final String channel;
+
+    private final List<Consumer<String>> onMessages = new CopyOnWriteArrayList<>();
+
+    private final List<Runnable> onGaps = new CopyOnWriteArrayList<>();
+
+    private final Thread listener;
+
+    private volatile boolean running = true;
+
+    public PostgresCacheInvalidationTransport(DataSource dataSource, String channel) {
+        if (!CHANNEL_PATTERN.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid channel name: " + channel);
+        }
+        this.dataSource = dataSource;
+        this.channel = channel;
+        this.listener = new Thread(this::listen, "store-cache-invalidation-listener");
+        this.listener.setDaemon(true);
+        this.listener.start();
+    }
+
+    @Override
+    public int getMaxMessageSize() {
+        return MAX_MESSAGE_SIZE;
+    }
+
+    @Override
+    public void publish(String message) {
+        try (Connection connection = dataSource.getConnection()) {
+            // A notification is sent when its transaction commits: right away, in auto-commit
+            connection.setAutoCommit(true);
+            try (PreparedStatement statement = connection.prepareStatement("select pg_notify(?, ?)")) {
+                statement.setString(1, channel);
+                statement.setString(2, message);
+                statement.execute();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not publish the cache evictions on " + channel, e);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> onMessage, Runnable onGap) {
+        onMessages.add(onMessage);
+        onGaps.add(onGap);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        listener.interrupt();
+    }
+
+    private void listen() {
+        boolean listened = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                if (listened) {
+                    log.info("Listening to the cache evictions on {} again", channel);
+                    onGaps.forEach(Runnable::run);
+                }
+                listened = true;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            deliver(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Lost the connection listening to the cache evictions on {}: {}", channel, e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(String message) {
+        for (Consumer<String> onMessage : onMessages) {
+            try {
+                onMessage.accept(message);
+            } catch (RuntimeException e) {
+                log.warn("Could not apply the cache evictions received on {}: {}", channel, e.getMessage());
+            }
+        }
+    }
+}
@@ -2,19 +2,33 @@ package com.store.service.mapper;
 
 import com.store.domain.*;
 import com.store.service.dto.CartDTO;
+import com.store.service.dto.CartFullDTO;
+import com.store.service.dto.CartLineDTO;
 
 import org.mapstruct.*;
 
 /**
  * Mapper for the entity {@link Cart} and its DTO {@link CartDTO}.
  */
-@Mapper(componentModel = "spring", uses = {})
+@Mapper(componentModel = "spring", uses = {ItemMapper.class})
 public interface CartMapper extends EntityMapper<CartDTO, Cart> {
 
 
     @Mapping(target = "orders", ignore = true)
+    @Mapping(target = "total", ignore = true)
+    @Mapping(target = "lineCount", ignore = true)
     Cart toEntity(CartDTO cartDTO);
 
+    /**
+     * Map a cart with its orders, which must have been fetched along with their items.
+     */
+    @Named("full")
+    @Mapping(source = "orders", target = "lines")
+    CartFullDTO toFullDto(Cart cart);
+
+    @Mapping(target = "item", qualifiedByName = "summary")
+    CartLineDTO toLineDto(Order order);
+
     default Cart fromId(Long id) {
         if (id == null) {
             return null;
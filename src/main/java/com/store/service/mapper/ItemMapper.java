@@ -11,7 +11,15 @@ import org.mapstruct.*;
 @Mapper(componentModel = "spring", uses = {})
 public interface ItemMapper extends EntityMapper<ItemDTO, Item> {
 
+    @Mapping(target = "imageHash", ignore = true)
+    Item toEntity(ItemDTO itemDTO);
 
+    /**
+     * Map an item for list responses: the image is left out, clients load it through {@link ItemDTO#getImageUrl()}.
+     */
+    @Named("summary")
+    @Mapping(target = "image", ignore = true)
+    ItemDTO toSummaryDto(Item item);
 
     default Item fromId(Long id) {
         if (id == null) {
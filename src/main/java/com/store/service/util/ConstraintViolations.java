@@ -0,0 +1,33 @@
+package com.store.service.util;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+/**
+ * Utility class for telling which database constraint a write violated.
+ */
+public final class ConstraintViolations {
+
+    private ConstraintViolations() {
+    }
+
+    /**
+     * Return whether a write failed on the given constraint. The names reported by the databases differ in case,
+     * and may be decorated, such as the index names of H2.
+     *
+     * @param e the failure of the write.
+     * @param constraintName the name of the constraint, in lower case.
+     * @return {@code true} if the constraint was violated.
+     */
+    public static boolean violates(DataIntegrityViolationException e, String constraintName) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String violated = ((ConstraintViolationException) cause).getConstraintName();
+                return violated != null && violated.toLowerCase(Locale.ROOT).contains(constraintName);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package com.store.service.util;
+
+/**
+ * The formats of the files of rows imported and exported in bulk.
+ */
+public enum FileFormat {
+
+    /**
+     * Comma separated values, with a header row naming the columns.
+     */
+    CSV("text/csv", "csv"),
+
+    /**
+     * One JSON object per line.
+     */
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+
+    private final String extension;
+
+    FileFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
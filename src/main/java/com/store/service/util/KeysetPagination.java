@@ -0,0 +1,163 @@
+package com.store.service.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import com.store.web.rest.errors.InvalidCursorException;
+
+/**
+ * Utility class for keyset (seek) pagination.
+ * <p>
+ * Instead of skipping {@code page * size} rows, each slice starts right after the last row of the previous one,
+ * using an opaque cursor made of the sort key and the id of that row. The id breaks ties between equal sort keys,
+ * so only a single, non-null sort property is supported. No count query is ever run: one more row than requested
+ * is fetched to know whether there is a next slice.
+ */
+public final class KeysetPagination {
+
+    private static final String ID = "id";
+
+    private static final String SEPARATOR = ":";
+
+    private KeysetPagination() {
+    }
+
+    /**
+     * Return the sort order to paginate on.
+     *
+     * @param sort the requested sort, either unsorted, a single order, or a single order followed by an order on the id
+     *             in the same direction.
+     * @param properties the properties which can be sorted on, they must be non-null columns.
+     * @return the sort order, by ascending id if unsorted.
+     * @throws InvalidCursorException if the requested sort can not be used for keyset pagination.
+     */
+    public static Sort.Order getOrder(Sort sort, Set<String> properties) {
+        Iterator<Sort.Order> orders = sort.iterator();
+        if (!orders.hasNext()) {
+            return Sort.Order.asc(ID);
+        }
+        Sort.Order order = orders.next();
+        if (!properties.contains(order.getProperty())) {
+            throw new InvalidCursorException("Keyset pagination is not supported on " + order.getProperty());
+        }
+        if (orders.hasNext()) {
+            Sort.Order tieBreaker = orders.next();
+            if (!ID.equals(tieBreaker.getProperty()) || orders.hasNext()) {
+                throw new InvalidCursorException("Keyset pagination supports a single sort property");
+            }
+            if (tieBreaker.getDirection() != order.getDirection()) {
+                // The ties are always broken in the direction of the sort, which the seek predicate relies on
+                throw new InvalidCursorException("The id must be sorted in the direction of " + order.getProperty());
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Return a {@link Specification} matching the rows after the given cursor, in the given order.
+     *
+     * @param cursor the cursor returned with the previous slice, {@code null} or empty for the first slice.
+     * @param order the sort order, which must be the one the cursor was created with.
+     * @param <E> the type of the entity.
+     * @return the specification.
+     * @throws InvalidCursorException if the cursor is malformed or was created for another order.
+     */
+    public static <E> Specification<E> after(String cursor, Sort.Order order) {
+        if (cursor == null || cursor.isEmpty()) {
+            return Specification.where(null);
+        }
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, 4);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+        if (parts.length != 4 || !parts[0].equals(order.getDirection().name()) || !parts[1].equals(order.getProperty())) {
+            throw new InvalidCursorException("Cursor does not match the requested sort");
+        }
+        String id = parts[2];
+        String value = parts[3];
+        return (root, query, cb) -> {
+            Path<Comparable<Object>> idPath = root.get(ID);
+            Path<Comparable<Object>> keyPath = root.get(order.getProperty());
+            Comparable<Object> lastId = convert(id, idPath.getJavaType());
+            Comparable<Object> lastValue = convert(value, keyPath.getJavaType());
+            if (ID.equals(order.getProperty())) {
+                return greaterThan(cb, order, idPath, lastId);
+            }
+            return cb.or(
+                greaterThan(cb, order, keyPath, lastValue),
+                cb.and(cb.equal(keyPath, lastValue), greaterThan(cb, order, idPath, lastId)));
+        };
+    }
+
+    /**
+     * Fetch a slice of the entities matching the specification, in the given order.
+     *
+     * @param entityManager the entity manager.
+     * @param domainClass the type of the entity.
+     * @param specification the specification, including the one returned by {@link #after(String, Sort.Order)}.
+     * @param order the sort order.
+     * @param size the maximum number of entities to return.
+     * @param <E> the type of the entity.
+     * @return the slice, with the cursor of the next one.
+     */
+    public static <E> KeysetSlice<E> fetch(EntityManager entityManager, Class<E> domainClass, Specification<E> specification,
+                                           Sort.Order order, int size) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<E> query = cb.createQuery(domainClass);
+        Root<E> root = query.from(domainClass);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        Sort sort = ID.equals(order.getProperty()) ? Sort.by(order) : Sort.by(order, new Sort.Order(order.getDirection(), ID));
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        List<E> content = entityManager.createQuery(query)
+            .setMaxResults(size + 1)
+            .getResultList();
+        if (content.size() <= size) {
+            return new KeysetSlice<>(content, null);
+        }
+        content = content.subList(0, size);
+        return new KeysetSlice<>(content, encode(order, content.get(size - 1)));
+    }
+
+    private static String encode(Sort.Order order, Object last) {
+        BeanWrapperImpl wrapper = new BeanWrapperImpl(last);
+        String cursor = order.getDirection().name() + SEPARATOR + order.getProperty() + SEPARATOR +
+            wrapper.getPropertyValue(ID) + SEPARATOR + wrapper.getPropertyValue(order.getProperty());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> convert(String value, Class<?> type) {
+        try {
+            return (Comparable<Object>) DefaultConversionService.getSharedInstance().convert(value, type);
+        } catch (ConversionException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+    }
+
+    private static Predicate greaterThan(CriteriaBuilder cb, Sort.Order order, Path<Comparable<Object>> path,
+                                         Comparable<Object> value) {
+        return order.isAscending() ? cb.greaterThan(path, value) : cb.lessThan(path, value);
+    }
+}
@@ -0,0 +1,43 @@
+package com.store.service.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A slice of a keyset-paginated result: the content, and the opaque cursor to pass as {@code after}
+ * to get the next slice, if there is one.
+ *
+ * @param <T> the type of the content.
+ */
+public class KeysetSlice<T> {
+
+    private final List<T> content;
+
+    private final String nextCursor;
+
+    public KeysetSlice(List<T> content, String nextCursor) {
+        this.content = Collections.unmodifiableList(content);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * @return the cursor of the next slice, or {@code null} if this is the last one.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public <U> KeysetSlice<U> map(Function<? super T, ? extends U> converter) {
+        return new KeysetSlice<>(content.stream().map(converter).collect(Collectors.toList()), nextCursor);
+    }
+}
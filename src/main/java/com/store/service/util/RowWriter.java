@@ -0,0 +1,107 @@
+package com.store.service.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Writer of rows to a {@link FileFormat#CSV} or {@link FileFormat#NDJSON} file, one row at a time, without holding
+ * them in memory. The CSV fields are quoted as of RFC 4180, when needed.
+ *
+ * @param <T> the type of the rows.
+ */
+public class RowWriter<T> implements Flushable {
+
+    private final FileFormat format;
+
+    private final Writer writer;
+
+    private final ObjectWriter jsonWriter;
+
+    private final Map<String, Function<T, ?>> columns;
+
+    private boolean headerWritten;
+
+    /**
+     * Create a writer.
+     *
+     * @param format the format of the file.
+     * @param writer the file.
+     * @param objectMapper the mapper of the rows to JSON objects.
+     * @param columns the CSV columns, by name, in order.
+     */
+    public RowWriter(FileFormat format, Writer writer, ObjectMapper objectMapper, Map<String, Function<T, ?>> columns) {
+        this.format = format;
+        this.writer = writer;
+        this.jsonWriter = objectMapper.writer();
+        this.columns = new LinkedHashMap<>(columns);
+    }
+
+    /**
+     * Write a row.
+     *
+     * @param row the row.
+     * @throws IOException if the file can not be written.
+     */
+    public void write(T row) throws IOException {
+        if (format == FileFormat.NDJSON) {
+            writer.write(jsonWriter.writeValueAsString(row));
+            writer.write('\n');
+            return;
+        }
+        writeHeader();
+        List<Object> record = new ArrayList<>(columns.size());
+        for (Function<T, ?> column : columns.values()) {
+            record.add(column.apply(row));
+        }
+        writeRecord(record);
+    }
+
+    /**
+     * Flush the rows written, and the CSV header if there were none.
+     *
+     * @throws IOException if the file can not be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (format == FileFormat.CSV) {
+            writeHeader();
+        }
+        writer.flush();
+    }
+
+    private void writeHeader() throws IOException {
+        if (!headerWritten) {
+            headerWritten = true;
+            writeRecord(new ArrayList<>(columns.keySet()));
+        }
+    }
+
+    private void writeRecord(List<?> record) throws IOException {
+        for (int i = 0; i < record.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = record.get(i);
+            if (value != null) {
+                String field = value.toString();
+                if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\r') >= 0 || field.indexOf('\n') >= 0) {
+                    writer.write('"');
+                    writer.write(field.replace("\"", "\"\""));
+                    writer.write('"');
+                } else {
+                    writer.write(field);
+                }
+            }
+        }
+        writer.write("\r\n");
+    }
+}
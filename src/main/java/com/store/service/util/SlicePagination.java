@@ -0,0 +1,80 @@
+package com.store.service.util;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+/**
+ * Utility class for offset pagination without a count query.
+ * <p>
+ * One more row than requested is fetched to know whether there is a next page, so a {@link Slice} costs a single
+ * query where a {@link org.springframework.data.domain.Page} costs two.
+ */
+public final class SlicePagination {
+
+    private SlicePagination() {
+    }
+
+    /**
+     * Fetch a slice of the entities matching the specification.
+     *
+     * @param entityManager the entity manager.
+     * @param domainClass the type of the entity.
+     * @param specification the specification.
+     * @param page the page, which should be returned.
+     * @param <E> the type of the entity.
+     * @return the slice.
+     */
+    public static <E> Slice<E> fetch(EntityManager entityManager, Class<E> domainClass, Specification<E> specification,
+                                     Pageable page) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<E> query = cb.createQuery(domainClass);
+        Root<E> root = query.from(domainClass);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(page.getSort(), root, cb));
+        return toSlice(limit(entityManager.createQuery(query), page).getResultList(), page);
+    }
+
+    /**
+     * Restrict a query to the rows of the given page, plus one to know whether there is a next page.
+     *
+     * @param query the query.
+     * @param page the page, which should be returned.
+     * @param <T> the type of the rows.
+     * @return the query.
+     */
+    public static <T> TypedQuery<T> limit(TypedQuery<T> query, Pageable page) {
+        if (page.isPaged()) {
+            query.setFirstResult((int) page.getOffset());
+            query.setMaxResults(page.getPageSize() + 1);
+        }
+        return query;
+    }
+
+    /**
+     * Create a slice from the rows of a query restricted with {@link #limit(TypedQuery, Pageable)}.
+     *
+     * @param content the rows.
+     * @param page the page, which was requested.
+     * @param <T> the type of the rows.
+     * @return the slice.
+     */
+    public static <T> Slice<T> toSlice(List<T> content, Pageable page) {
+        boolean hasNext = page.isPaged() && content.size() > page.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, page.getPageSize()) : content, page, hasNext);
+    }
+}
@@ -0,0 +1,73 @@
+package com.store.service.util;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+
+import org.hibernate.jpa.QueryHints;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+/**
+ * Utility class for the queries selecting columns or aggregates of the entities matching a {@link Specification},
+ * rather than the entities themselves, so that they never enter the persistence context.
+ */
+public final class SpecificationQueries {
+
+    private SpecificationQueries() {
+    }
+
+    /**
+     * Create the query selecting the given expressions over the entities matching the specification.
+     *
+     * @param entityManager the entity manager.
+     * @param domainClass the type of the entity.
+     * @param specification the specification.
+     * @param selection the expressions to select, on the root of the query.
+     * @param sort the order of the rows.
+     * @param <E> the type of the entity.
+     * @return the query, whose rows hold the values of the expressions.
+     */
+    public static <E> TypedQuery<Object[]> createQuery(EntityManager entityManager, Class<E> domainClass,
+                                                       Specification<E> specification,
+                                                       BiFunction<Root<E>, CriteriaBuilder, List<Selection<?>>> selection,
+                                                       Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<E> root = query.from(domainClass);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.multiselect(selection.apply(root, cb));
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        return entityManager.createQuery(query);
+    }
+
+    /**
+     * Stream the rows of a query through a forward-only cursor: they are fetched from the database
+     * {@code fetchSize} at a time, as the stream is consumed, and never all held in memory. The stream must be
+     * closed, within the transaction it was opened in.
+     *
+     * @param query the query.
+     * @param fetchSize the number of rows fetched per round trip.
+     * @param <T> the type of the rows.
+     * @return the rows.
+     */
+    public static <T> Stream<T> stream(TypedQuery<T> query, int fetchSize) {
+        return query
+            .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+            .setHint(QueryHints.HINT_READONLY, true)
+            .getResultStream();
+    }
+}
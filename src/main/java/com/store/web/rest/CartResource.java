@@ -4,8 +4,14 @@ import com.store.security.AuthoritiesConstants;
 import com.store.service.CartService;
 import com.store.web.rest.errors.BadRequestAlertException;
 import com.store.service.dto.CartDTO;
+import com.store.service.dto.CartFullDTO;
 import com.store.service.dto.CartCriteria;
 import com.store.service.CartQueryService;
+import com.store.service.util.FileFormat;
+import com.store.service.util.KeysetSlice;
+import com.store.web.rest.util.ETagUtil;
+import com.store.web.rest.util.ExportUtil;
+import com.store.web.rest.util.SlicePaginationUtil;
 
 import io.github.jhipster.web.util.HeaderUtil;
 import io.github.jhipster.web.util.PaginationUtil;
@@ -15,15 +21,19 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.web.util.UriComponentsBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 
@@ -98,11 +108,26 @@ public class CartResource {
      *
      * @param pageable the pagination information.
      * @param criteria the criteria which the requested entities should match.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of carts in body.
+     * @param after the keyset pagination cursor, empty for the first slice, or absent for offset pagination.
+     * @param total whether to count the matching carts, or only tell whether there is a next page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of carts in body,
+     * or with status {@code 400 (Bad Request)} if the cursor is invalid.
      */
     @GetMapping("/carts")
-    public ResponseEntity<List<CartDTO>> getAllCarts(CartCriteria criteria, Pageable pageable, @RequestParam MultiValueMap<String, String> queryParams, UriComponentsBuilder uriBuilder) {
-        log.debug("REST request to get Carts by criteria: {}", criteria);
+    public ResponseEntity<List<CartDTO>> getAllCarts(CartCriteria criteria, Pageable pageable, @RequestParam(required = false) String after,
+                                                     @RequestParam(defaultValue = "true") boolean total,
+                                                     @RequestParam MultiValueMap<String, String> queryParams, UriComponentsBuilder uriBuilder) {
+        log.debug("REST request to get Carts by criteria: {}, after: {}, total: {}", criteria, after, total);
+        if (after != null) {
+            KeysetSlice<CartDTO> slice = cartQueryService.findByCriteria(criteria, after, pageable);
+            HttpHeaders headers = SlicePaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+            return ResponseEntity.ok().headers(headers).body(slice.getContent());
+        }
+        if (!total) {
+            Slice<CartDTO> slice = cartQueryService.findSliceByCriteria(criteria, pageable);
+            HttpHeaders headers = SlicePaginationUtil.generateSliceHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+            return ResponseEntity.ok().headers(headers).body(slice.getContent());
+        }
         Page<CartDTO> page = cartQueryService.findByCriteria(criteria, pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(uriBuilder.queryParams(queryParams), page);
         return ResponseEntity.ok().headers(headers).body(page.getContent());
@@ -120,17 +145,58 @@ public class CartResource {
         return ResponseEntity.ok().body(cartQueryService.countByCriteria(criteria));
     }
 
+    /**
+     * {@code GET  /carts/export} : export all the carts, as a CSV or newline delimited JSON file, streamed as it is read.
+     *
+     * @param criteria the criteria which the exported entities should match.
+     * @param format the format of the file, {@code CSV} by default.
+     * @param response the response the file is written to.
+     * @throws IOException if the file can not be written.
+     */
+    @GetMapping("/carts/export")
+    public void exportCarts(CartCriteria criteria, @RequestParam(defaultValue = "CSV") FileFormat format,
+                        HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Carts by criteria: {}, format: {}", criteria, format);
+        cartQueryService.exportByCriteria(criteria, format, ExportUtil.prepareExport(response, "carts", format));
+    }
+
     /**
      * {@code GET  /carts/:id} : get the "id" cart.
+     * <p>
+     * Its entity tag is its version. When the client sends the tags it has, the version is checked before the cart
+     * is loaded.
      *
      * @param id the id of the cartDTO to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the cartDTO, or with status {@code 404 (Not Found)}.
+     * @param ifNoneMatch the entity tags of the versions of the cart the client has, if any.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the cartDTO,
+     * or with status {@code 304 (Not Modified)} if the client has its version, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/carts/{id}")
-    public ResponseEntity<CartDTO> getCart(@PathVariable Long id) {
+    public ResponseEntity<CartDTO> getCart(@PathVariable Long id,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("REST request to get Cart : {}", id);
+        if (ifNoneMatch != null) {
+            Optional<String> eTag = cartService.findVersion(id).map(ETagUtil::eTag);
+            if (eTag.isPresent() && ETagUtil.isNotModified(ifNoneMatch, eTag.get())) {
+                return ETagUtil.notModified(eTag.get());
+            }
+        }
         Optional<CartDTO> cartDTO = cartService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(cartDTO);
+        return ResponseUtil.wrapOrNotFound(cartDTO,
+            cartDTO.map(cart -> ETagUtil.withETag(new HttpHeaders(), ETagUtil.eTag(cart.getVersion()))).orElse(null));
+    }
+
+    /**
+     * {@code GET  /carts/:id/full} : get the "id" cart, with its orders and their items.
+     *
+     * @param id the id of the cartDTO to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the cartDTO, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/carts/{id}/full")
+    public ResponseEntity<CartFullDTO> getCartFull(@PathVariable Long id) {
+        log.debug("REST request to get Cart with its orders : {}", id);
+        Optional<CartFullDTO> cartFullDTO = cartService.findOneFull(id);
+        return ResponseUtil.wrapOrNotFound(cartFullDTO);
     }
 
     /**
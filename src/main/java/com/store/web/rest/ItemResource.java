@@ -1,11 +1,23 @@
 package com.store.web.rest;
 
 import com.store.security.AuthoritiesConstants;
+import com.store.service.ItemImportService;
+import com.store.service.ItemSearchService;
 import com.store.service.ItemService;
+import com.store.service.ItemThumbnailService;
 import com.store.web.rest.errors.BadRequestAlertException;
 import com.store.service.dto.ItemDTO;
+import com.store.service.dto.ItemFacetsDTO;
+import com.store.service.dto.ItemImportResultDTO;
+import com.store.service.dto.ItemImageDTO;
+import com.store.service.dto.ItemSearchResultDTO;
 import com.store.service.dto.ItemCriteria;
 import com.store.service.ItemQueryService;
+import com.store.service.util.FileFormat;
+import com.store.service.util.KeysetSlice;
+import com.store.web.rest.util.ETagUtil;
+import com.store.web.rest.util.ExportUtil;
+import com.store.web.rest.util.SlicePaginationUtil;
 
 import io.github.jhipster.web.util.HeaderUtil;
 import io.github.jhipster.web.util.PaginationUtil;
@@ -13,22 +25,36 @@ import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.web.util.UriComponentsBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * REST controller for managing {@link com.store.domain.Item}.
@@ -41,6 +67,16 @@ public class ItemResource {
 
     private static final String ENTITY_NAME = "item";
 
+    /**
+     * The maximum number of items which can be requested at once by id.
+     */
+    public static final int MAX_BATCH_SIZE = 100;
+
+    /**
+     * The maximum number of search results or suggested words which can be requested at once.
+     */
+    public static final int MAX_SEARCH_SIZE = 100;
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -48,9 +84,19 @@ public class ItemResource {
 
     private final ItemQueryService itemQueryService;
 
-    public ItemResource(ItemService itemService, ItemQueryService itemQueryService) {
+    private final ItemThumbnailService itemThumbnailService;
+
+    private final ItemSearchService itemSearchService;
+
+    private final ItemImportService itemImportService;
+
+    public ItemResource(ItemService itemService, ItemQueryService itemQueryService, ItemThumbnailService itemThumbnailService,
+                        ItemSearchService itemSearchService, ItemImportService itemImportService) {
         this.itemService = itemService;
         this.itemQueryService = itemQueryService;
+        this.itemThumbnailService = itemThumbnailService;
+        this.itemSearchService = itemSearchService;
+        this.itemImportService = itemImportService;
     }
 
     /**
@@ -73,6 +119,27 @@ public class ItemResource {
             .body(result);
     }
 
+    /**
+     * {@code POST  /items/import} : Import items in bulk, from a CSV ({@code text/csv}) or newline delimited JSON
+     * ({@code application/x-ndjson}) file, streamed in the request body.
+     *
+     * @param contentType the format of the file, and its charset, UTF-8 by default.
+     * @param body the file.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of imported and failed
+     * rows, with the errors of the failed rows, or with status {@code 400 (Bad Request)} if the CSV header is invalid.
+     * @throws IOException if the file can not be read.
+     */
+    @PostMapping(value = "/items/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<ItemImportResultDTO> importItems(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                           InputStream body) throws IOException {
+        log.debug("REST request to import Items from {}", contentType);
+        FileFormat format = contentType.isCompatibleWith(MediaType.valueOf(FileFormat.CSV.getContentType()))
+            ? FileFormat.CSV : FileFormat.NDJSON;
+        Reader reader = new InputStreamReader(body, contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8);
+        return ResponseEntity.ok().body(itemImportService.importItems(reader, format));
+    }
+
     /**
      * {@code PUT  /items} : Updates an existing item.
      *
@@ -100,14 +167,54 @@ public class ItemResource {
      *
      * @param pageable the pagination information.
      * @param criteria the criteria which the requested entities should match.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of items in body.
+     * @param fields the fields to return, or all the fields if absent.
+     * @param after the keyset pagination cursor, empty for the first slice, or absent for offset pagination.
+     * @param total whether to count the matching items, or only tell whether there is a next page.
+     * @param ifNoneMatch the entity tags of the lists the client has, if any.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of items in body,
+     * or with status {@code 304 (Not Modified)} if the client has the list, from the same parameters and with the same
+     * items in the same versions,
+     * or with status {@code 400 (Bad Request)} if an unknown field is requested or the cursor is invalid.
      */
     @GetMapping("/items")
-    public ResponseEntity<List<ItemDTO>> getAllItems(ItemCriteria criteria, Pageable pageable, @RequestParam MultiValueMap<String, String> queryParams, UriComponentsBuilder uriBuilder) {
-        log.debug("REST request to get Items by criteria: {}", criteria);
-        Page<ItemDTO> page = itemQueryService.findByCriteria(criteria, pageable);
+    public ResponseEntity<List<ItemDTO>> getAllItems(ItemCriteria criteria, Pageable pageable, @RequestParam(required = false) List<String> fields,
+                                                     @RequestParam(required = false) String after, @RequestParam(defaultValue = "true") boolean total,
+                                                     @RequestParam MultiValueMap<String, String> queryParams, UriComponentsBuilder uriBuilder,
+                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        log.debug("REST request to get Items by criteria: {}, fields: {}, after: {}, total: {}", criteria, fields, after, total);
+        if (fields != null && !ItemQueryService.PROJECTION_FIELDS.containsAll(fields)) {
+            throw new BadRequestAlertException("Unknown field requested", ENTITY_NAME, "unknownfield");
+        }
+        if (after != null && fields != null) {
+            throw new BadRequestAlertException("Fields can not be requested with keyset pagination", ENTITY_NAME, "fieldsnotsupported");
+        }
+        if (after != null) {
+            KeysetSlice<ItemDTO> slice = itemQueryService.findByCriteria(criteria, after, pageable);
+            String eTag = listETag(queryParams, slice.getContent(), slice.getNextCursor());
+            if (ETagUtil.isNotModified(ifNoneMatch, eTag)) {
+                return ETagUtil.notModified(eTag);
+            }
+            HttpHeaders headers = SlicePaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+            return ResponseEntity.ok().headers(ETagUtil.withETag(headers, eTag)).body(slice.getContent());
+        }
+        if (!total) {
+            Slice<ItemDTO> slice = fields == null ? itemQueryService.findSliceByCriteria(criteria, pageable)
+                : itemQueryService.findSliceByCriteria(criteria, fields, pageable);
+            String eTag = listETag(queryParams, slice.getContent(), slice.hasNext());
+            if (ETagUtil.isNotModified(ifNoneMatch, eTag)) {
+                return ETagUtil.notModified(eTag);
+            }
+            HttpHeaders headers = SlicePaginationUtil.generateSliceHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+            return ResponseEntity.ok().headers(ETagUtil.withETag(headers, eTag)).body(slice.getContent());
+        }
+        Page<ItemDTO> page = fields == null ? itemQueryService.findByCriteria(criteria, pageable)
+            : itemQueryService.findByCriteria(criteria, fields, pageable);
+        String eTag = listETag(queryParams, page.getContent(), page.getTotalElements());
+        if (ETagUtil.isNotModified(ifNoneMatch, eTag)) {
+            return ETagUtil.notModified(eTag);
+        }
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(uriBuilder.queryParams(queryParams), page);
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        return ResponseEntity.ok().headers(ETagUtil.withETag(headers, eTag)).body(page.getContent());
     }
 
     /**
@@ -122,17 +229,162 @@ public class ItemResource {
         return ResponseEntity.ok().body(itemQueryService.countByCriteria(criteria));
     }
 
+    /**
+     * {@code GET  /items/export} : export all the items, as a CSV or newline delimited JSON file, streamed as it is read.
+     *
+     * @param criteria the criteria which the exported entities should match.
+     * @param format the format of the file, {@code CSV} by default.
+     * @param response the response the file is written to.
+     * @throws IOException if the file can not be written.
+     */
+    @GetMapping("/items/export")
+    public void exportItems(ItemCriteria criteria, @RequestParam(defaultValue = "CSV") FileFormat format,
+                        HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Items by criteria: {}, format: {}", criteria, format);
+        itemQueryService.exportByCriteria(criteria, format, ExportUtil.prepareExport(response, "items", format));
+    }
+
+    /**
+    * {@code GET  /items/facets} : get the facets of all the items: their count, in and out of stock, and by price range.
+    *
+    * @param criteria the criteria which the requested entities should match.
+    * @param priceBreaks the prices the ranges are split on, {@link ItemQueryService#DEFAULT_PRICE_BREAKS} by default.
+    * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the facets in body,
+    * or with status {@code 400 (Bad Request)} if more than {@link ItemQueryService#MAX_PRICE_BREAKS} prices are given.
+    */
+    @GetMapping("/items/facets")
+    public ResponseEntity<ItemFacetsDTO> getItemFacets(ItemCriteria criteria, @RequestParam(required = false) List<Double> priceBreaks) {
+        log.debug("REST request to get Item facets by criteria: {}, price breaks: {}", criteria, priceBreaks);
+        if (priceBreaks != null && priceBreaks.size() > ItemQueryService.MAX_PRICE_BREAKS) {
+            throw new BadRequestAlertException("Too many price breaks", ENTITY_NAME, "toomanypricebreaks");
+        }
+        return ResponseEntity.ok().body(itemQueryService.findFacetsByCriteria(criteria,
+            priceBreaks == null ? ItemQueryService.DEFAULT_PRICE_BREAKS : priceBreaks));
+    }
+
+    /**
+     * {@code SEARCH  /_search/items?query=:query} : search for the items matching the query,
+     * by title and description.
+     *
+     * @param query the query of the item search.
+     * @param size the maximum number of results.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the ranked list of matching items in body,
+     * or with status {@code 400 (Bad Request)} if the size is not between 1 and {@link #MAX_SEARCH_SIZE}.
+     */
+    @GetMapping("/_search/items")
+    public ResponseEntity<List<ItemSearchResultDTO>> searchItems(@RequestParam String query, @RequestParam(defaultValue = "20") int size) {
+        log.debug("REST request to search Items for query {}", query);
+        checkSearchSize(size);
+        return ResponseEntity.ok().body(itemSearchService.search(query, size));
+    }
+
+    /**
+     * {@code GET  /_search/items/suggest?prefix=:prefix} : complete a prefix with the words of the item titles and descriptions.
+     *
+     * @param prefix the beginning of the word to complete.
+     * @param size the maximum number of words.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of words in body,
+     * or with status {@code 400 (Bad Request)} if the size is not between 1 and {@link #MAX_SEARCH_SIZE}.
+     */
+    @GetMapping("/_search/items/suggest")
+    public ResponseEntity<List<String>> suggestItemWords(@RequestParam String prefix, @RequestParam(defaultValue = "10") int size) {
+        log.debug("REST request to suggest Item words for prefix {}", prefix);
+        checkSearchSize(size);
+        return ResponseEntity.ok().body(itemSearchService.suggest(prefix, size));
+    }
+
+    /**
+     * {@code GET  /items/batch?ids=:ids} : get the items of the given ids, without their images.
+     *
+     * @param ids the ids of the items to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of items in body, in the order of
+     * the ids, or with status {@code 400 (Bad Request)} if more than {@link #MAX_BATCH_SIZE} ids are given.
+     * The ids of items which do not exist are skipped.
+     */
+    @GetMapping("/items/batch")
+    public ResponseEntity<List<ItemDTO>> getItemsById(@RequestParam List<Long> ids) {
+        log.debug("REST request to get Items : {}", ids);
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestAlertException("Too many items requested", ENTITY_NAME, "toomanyids");
+        }
+        return ResponseEntity.ok().body(itemService.findAllById(ids));
+    }
+
     /**
      * {@code GET  /items/:id} : get the "id" item.
+     * <p>
+     * Its entity tag is its version. When the client sends the tags it has, the version is checked before the item
+     * is loaded.
      *
      * @param id the id of the itemDTO to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the itemDTO, or with status {@code 404 (Not Found)}.
+     * @param ifNoneMatch the entity tags of the versions of the item the client has, if any.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the itemDTO,
+     * or with status {@code 304 (Not Modified)} if the client has its version, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/items/{id}")
-    public ResponseEntity<ItemDTO> getItem(@PathVariable Long id) {
+    public ResponseEntity<ItemDTO> getItem(@PathVariable Long id,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("REST request to get Item : {}", id);
+        if (ifNoneMatch != null) {
+            Optional<String> eTag = itemService.findVersion(id).map(ETagUtil::eTag);
+            if (eTag.isPresent() && ETagUtil.isNotModified(ifNoneMatch, eTag.get())) {
+                return ETagUtil.notModified(eTag.get());
+            }
+        }
         Optional<ItemDTO> itemDTO = itemService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(itemDTO);
+        return ResponseUtil.wrapOrNotFound(itemDTO,
+            itemDTO.map(item -> ETagUtil.withETag(new HttpHeaders(), ETagUtil.eTag(item.getVersion()))).orElse(null));
+    }
+
+    /**
+     * {@code GET  /items/:id/image} : get the image of the "id" item.
+     * <p>
+     * The image bytes are written as is with their stored content type. Range requests are answered
+     * with {@code 206 (Partial Content)}, and requests whose {@code If-None-Match} header matches the
+     * image hash with {@code 304 (Not Modified)}.
+     *
+     * @param id the id of the item whose image to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the image, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/items/{id}/image")
+    public ResponseEntity<Resource> getItemImage(@PathVariable Long id) {
+        log.debug("REST request to get the image of Item : {}", id);
+        return itemService.findImage(id)
+            .map(image -> ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(image.getContentType()))
+                .eTag(image.getHash())
+                .cacheControl(CacheControl.noCache())
+                .<Resource>body(new ByteArrayResource(image.getContent())))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * {@code GET  /item-thumbnails/:hash/:size} : get a thumbnail of the image with the given hash.
+     * <p>
+     * A thumbnail never changes, so it is served with immutable cache headers. While it is not generated yet,
+     * the client is temporarily redirected to the original image.
+     *
+     * @param hash the hash of the original image.
+     * @param size the size of the thumbnail.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the thumbnail,
+     * or with status {@code 307 (Temporary Redirect)} to the original image, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/item-thumbnails/{hash}/{size}")
+    public ResponseEntity<Resource> getItemThumbnail(@PathVariable String hash, @PathVariable Integer size) {
+        log.debug("REST request to get thumbnail {} of image : {}", size, hash);
+        Optional<ItemImageDTO> thumbnail = itemThumbnailService.findThumbnail(hash, size);
+        if (thumbnail.isPresent()) {
+            return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(thumbnail.get().getContentType()))
+                .header(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue() + ", immutable")
+                .body(new ByteArrayResource(thumbnail.get().getContent()));
+        }
+        return itemThumbnailService.findItemIdByHash(hash)
+            .map(id -> ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
+                .location(URI.create("/api/items/" + id + "/image"))
+                .cacheControl(CacheControl.noStore())
+                .<Resource>build())
+            .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
@@ -148,4 +400,22 @@ public class ItemResource {
         itemService.delete(id);
         return ResponseEntity.noContent().headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString())).build();
     }
+
+    /**
+     * Return the entity tag of a list of items: a digest of the parameters of the request, of the ids and versions of
+     * the items listed, and of the paging state sent in the headers. It is computed from the items already fetched,
+     * without querying the versions of the other matching items.
+     */
+    private static String listETag(MultiValueMap<String, String> queryParams, List<ItemDTO> items, Object paging) {
+        String versions = items.stream()
+            .map(item -> item.getId() + ":" + item.getVersion())
+            .collect(Collectors.joining(","));
+        return ETagUtil.digestETag(queryParams, paging, versions);
+    }
+
+    private static void checkSearchSize(int size) {
+        if (size < 1 || size > MAX_SEARCH_SIZE) {
+            throw new BadRequestAlertException("Invalid search size", ENTITY_NAME, "invalidsearchsize");
+        }
+    }
 }
@@ -4,8 +4,13 @@ import com.store.security.AuthoritiesConstants;
 import com.store.service.OrderService;
 import com.store.web.rest.errors.BadRequestAlertException;
 import com.store.service.dto.OrderDTO;
+import com.store.service.dto.OrderLinesDTO;
 import com.store.service.dto.OrderCriteria;
 import com.store.service.OrderQueryService;
+import com.store.service.util.FileFormat;
+import com.store.service.util.KeysetSlice;
+import com.store.web.rest.util.ExportUtil;
+import com.store.web.rest.util.SlicePaginationUtil;
 
 import io.github.jhipster.web.util.HeaderUtil;
 import io.github.jhipster.web.util.PaginationUtil;
@@ -15,15 +20,19 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.web.util.UriComponentsBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 
@@ -41,6 +50,11 @@ public class OrderResource {
 
     private static final String ENTITY_NAME = "order";
 
+    /**
+     * The maximum number of lines added, updated and removed by a bulk request.
+     */
+    public static final int MAX_BULK_LINES = 500;
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -72,6 +86,25 @@ public class OrderResource {
             .body(result);
     }
 
+    /**
+     * {@code POST  /carts/:cartId/orders/bulk} : Add, update and remove many orders of the "cartId" cart, in one
+     * transaction.
+     *
+     * @param cartId the id of the cart.
+     * @param orderLinesDTO the lines to add, without id, or to update, with id, and the ids of the orders to remove.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the added and updated orderDTOs,
+     * or with status {@code 400 (Bad Request)} if a line is not valid, or if there are more than
+     * {@link #MAX_BULK_LINES} lines: then no order is changed.
+     */
+    @PostMapping("/carts/{cartId}/orders/bulk")
+    public ResponseEntity<List<OrderDTO>> saveOrderLines(@PathVariable Long cartId, @Valid @RequestBody OrderLinesDTO orderLinesDTO) {
+        log.debug("REST request to save Order lines of Cart {} : {}", cartId, orderLinesDTO);
+        if (orderLinesDTO.getLines().size() + orderLinesDTO.getRemovedIds().size() > MAX_BULK_LINES) {
+            throw new BadRequestAlertException("Too many lines", ENTITY_NAME, "toomanylines");
+        }
+        return ResponseEntity.ok().body(orderService.saveLines(cartId, orderLinesDTO));
+    }
+
     /**
      * {@code PUT  /orders} : Updates an existing order.
      *
@@ -98,11 +131,26 @@ public class OrderResource {
      *
      * @param pageable the pagination information.
      * @param criteria the criteria which the requested entities should match.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of orders in body.
+     * @param after the keyset pagination cursor, empty for the first slice, or absent for offset pagination.
+     * @param total whether to count the matching orders, or only tell whether there is a next page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of orders in body,
+     * or with status {@code 400 (Bad Request)} if the cursor is invalid.
      */
     @GetMapping("/orders")
-    public ResponseEntity<List<OrderDTO>> getAllOrders(OrderCriteria criteria, Pageable pageable, @RequestParam MultiValueMap<String, String> queryParams, UriComponentsBuilder uriBuilder) {
-        log.debug("REST request to get Orders by criteria: {}", criteria);
+    public ResponseEntity<List<OrderDTO>> getAllOrders(OrderCriteria criteria, Pageable pageable, @RequestParam(required = false) String after,
+                                                       @RequestParam(defaultValue = "true") boolean total,
+                                                       @RequestParam MultiValueMap<String, String> queryParams, UriComponentsBuilder uriBuilder) {
+        log.debug("REST request to get Orders by criteria: {}, after: {}, total: {}", criteria, after, total);
+        if (after != null) {
+            KeysetSlice<OrderDTO> slice = orderQueryService.findByCriteria(criteria, after, pageable);
+            HttpHeaders headers = SlicePaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+            return ResponseEntity.ok().headers(headers).body(slice.getContent());
+        }
+        if (!total) {
+            Slice<OrderDTO> slice = orderQueryService.findSliceByCriteria(criteria, pageable);
+            HttpHeaders headers = SlicePaginationUtil.generateSliceHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+            return ResponseEntity.ok().headers(headers).body(slice.getContent());
+        }
         Page<OrderDTO> page = orderQueryService.findByCriteria(criteria, pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(uriBuilder.queryParams(queryParams), page);
         return ResponseEntity.ok().headers(headers).body(page.getContent());
@@ -120,6 +168,21 @@ public class OrderResource {
         return ResponseEntity.ok().body(orderQueryService.countByCriteria(criteria));
     }
 
+    /**
+     * {@code GET  /orders/export} : export all the orders, as a CSV or newline delimited JSON file, streamed as it is read.
+     *
+     * @param criteria the criteria which the exported entities should match.
+     * @param format the format of the file, {@code CSV} by default.
+     * @param response the response the file is written to.
+     * @throws IOException if the file can not be written.
+     */
+    @GetMapping("/orders/export")
+    public void exportOrders(OrderCriteria criteria, @RequestParam(defaultValue = "CSV") FileFormat format,
+                        HttpServletResponse response) throws IOException {
+        log.debug("REST request to export Orders by criteria: {}, format: {}", criteria, format);
+        orderQueryService.exportByCriteria(criteria, format, ExportUtil.prepareExport(response, "orders", format));
+    }
+
     /**
      * {@code GET  /orders/:id} : get the "id" order.
      *
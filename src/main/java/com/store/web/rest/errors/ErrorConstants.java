@@ -14,6 +14,8 @@ public final class ErrorConstants {
     public static final URI EMAIL_ALREADY_USED_TYPE = URI.create(PROBLEM_BASE_URL + "/email-already-used");
     public static final URI LOGIN_ALREADY_USED_TYPE = URI.create(PROBLEM_BASE_URL + "/login-already-used");
     public static final URI EMAIL_NOT_FOUND_TYPE = URI.create(PROBLEM_BASE_URL + "/email-not-found");
+    public static final URI INVALID_CURSOR_TYPE = URI.create(PROBLEM_BASE_URL + "/invalid-cursor");
+    public static final URI INSUFFICIENT_STOCK_TYPE = URI.create(PROBLEM_BASE_URL + "/insufficient-stock");
 
     private ErrorConstants() {
     }
@@ -0,0 +1,12 @@
+package com.store.web.rest.errors;
+
+import java.util.Collection;
+
+public class InsufficientStockException extends BadRequestAlertException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InsufficientStockException(Collection<Long> itemIds) {
+        super(ErrorConstants.INSUFFICIENT_STOCK_TYPE, "Not enough items in stock: " + itemIds, "item", "insufficientstock");
+    }
+}
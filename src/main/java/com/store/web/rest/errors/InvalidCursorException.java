@@ -0,0 +1,10 @@
+package com.store.web.rest.errors;
+
+public class InvalidCursorException extends BadRequestAlertException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidCursorException(String defaultMessage) {
+        super(ErrorConstants.INVALID_CURSOR_TYPE, defaultMessage, "pagination", "invalidcursor");
+    }
+}
@@ -0,0 +1,91 @@
+package com.store.web.rest.util;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Utility class for answering conditional requests from the version of the resources, before they are loaded.
+ */
+public final class ETagUtil {
+
+    private ETagUtil() {
+    }
+
+    /**
+     * Return the strong entity tag of a version.
+     *
+     * @param version The version of the resource.
+     * @return the entity tag, quoted.
+     */
+    public static String eTag(Object version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Return the strong entity tag of a resource identified by several parts, such as the parameters of a query and
+     * the versions of the entities it returns.
+     *
+     * @param parts The parts identifying the state of the resource.
+     * @return the entity tag, quoted.
+     */
+    public static String digestETag(Object... parts) {
+        StringBuilder content = new StringBuilder();
+        for (Object part : parts) {
+            content.append(part).append('\n');
+        }
+        return eTag(DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Return whether an {@code If-None-Match} header matches an entity tag, so that the resource is not modified.
+     * The tags are compared weakly, as they should for a {@code GET}.
+     *
+     * @param ifNoneMatch The value of the {@code If-None-Match} header, or {@code null} without one.
+     * @param eTag The entity tag of the resource.
+     * @return {@code true} if the client has the current state of the resource.
+     */
+    public static boolean isNotModified(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Build the {@code 304 (Not Modified)} response of a resource.
+     *
+     * @param eTag The entity tag of the resource.
+     * @param <T> The type of the body the resource would have.
+     * @return the response, without body.
+     */
+    public static <T> ResponseEntity<T> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(eTag)
+            .cacheControl(CacheControl.noCache())
+            .build();
+    }
+
+    /**
+     * Build the headers of a {@code 200 (OK)} response of a resource, which the client should revalidate before use.
+     *
+     * @param headers The other headers of the response.
+     * @param eTag The entity tag of the resource.
+     * @return the headers.
+     */
+    public static HttpHeaders withETag(HttpHeaders headers, String eTag) {
+        headers.setETag(eTag);
+        headers.setCacheControl(CacheControl.noCache().getHeaderValue());
+        return headers;
+    }
+}
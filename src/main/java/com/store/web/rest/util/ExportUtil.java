@@ -0,0 +1,38 @@
+package com.store.web.rest.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import com.store.service.util.FileFormat;
+
+/**
+ * Utility class for streaming exported files to the response, as they are written, instead of buffering them.
+ */
+public final class ExportUtil {
+
+    private ExportUtil() {
+    }
+
+    /**
+     * Set the headers of an exported file download, and open the response body for writing it, in UTF-8.
+     *
+     * @param response The response.
+     * @param name The name of the file, without extension.
+     * @param format The format of the file.
+     * @return the writer of the response body, which the caller should flush.
+     * @throws IOException if the response body can not be opened.
+     */
+    public static Writer prepareExport(HttpServletResponse response, String name, FileFormat format) throws IOException {
+        response.setContentType(new MediaType(MediaType.valueOf(format.getContentType()), StandardCharsets.UTF_8).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "." + format.getExtension() + "\"");
+        return new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,72 @@
+package com.store.web.rest.util;
+
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.store.service.util.KeysetSlice;
+
+/**
+ * Utility class for handling pagination without a total count.
+ *
+ * <p>
+ * Like {@link io.github.jhipster.web.util.PaginationUtil}, it uses the
+ * <a href="https://developer.github.com/v3/#pagination">GitHub API</a> {@code Link} header, but without a
+ * {@code last} link nor {@code X-Total-Count}: an {@code X-Has-Next-Page} header tells whether there is a next page.
+ * </p>
+ */
+public final class SlicePaginationUtil {
+
+    public static final String HEADER_HAS_NEXT_PAGE = "X-Has-Next-Page";
+
+    private SlicePaginationUtil() {
+    }
+
+    /**
+     * Generate pagination headers for a Spring Data {@link Slice} object.
+     *
+     * @param uriBuilder The URI builder of the current request, with its query parameters.
+     * @param slice The slice.
+     * @param <T> The type of object.
+     * @return http header.
+     */
+    public static <T> HttpHeaders generateSliceHttpHeaders(UriComponentsBuilder uriBuilder, Slice<T> slice) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HEADER_HAS_NEXT_PAGE, Boolean.toString(slice.hasNext()));
+        StringBuilder link = new StringBuilder();
+        if (slice.hasNext()) {
+            link.append(prepareLink(uriBuilder, slice.getNumber() + 1, slice.getSize(), "next")).append(",");
+        }
+        if (slice.hasPrevious()) {
+            link.append(prepareLink(uriBuilder, slice.getNumber() - 1, slice.getSize(), "prev")).append(",");
+        }
+        link.append(prepareLink(uriBuilder, 0, slice.getSize(), "first"));
+        headers.add(HttpHeaders.LINK, link.toString());
+        return headers;
+    }
+
+    /**
+     * Generate pagination headers for a {@link KeysetSlice} object.
+     *
+     * @param uriBuilder The URI builder of the current request, with its query parameters.
+     * @param slice The slice.
+     * @param <T> The type of object.
+     * @return http header.
+     */
+    public static <T> HttpHeaders generateKeysetHttpHeaders(UriComponentsBuilder uriBuilder, KeysetSlice<T> slice) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HEADER_HAS_NEXT_PAGE, Boolean.toString(slice.hasNext()));
+        if (slice.hasNext()) {
+            String next = uriBuilder.replaceQueryParam("after", slice.getNextCursor()).toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return headers;
+    }
+
+    private static String prepareLink(UriComponentsBuilder uriBuilder, int pageNumber, int pageSize, String relType) {
+        String page = uriBuilder.replaceQueryParam("page", pageNumber)
+            .replaceQueryParam("size", pageSize)
+            .toUriString();
+        return "<" + page + ">; rel=\"" + relType + "\"";
+    }
+}
@@ -1,13 +1,13 @@
 import React from 'react';
 import { connect } from 'react-redux';
 import { Link, RouteComponentProps } from 'react-router-dom';
-import { Button, Row, Col } from 'reactstrap';
+import { Button, Row, Col, Table } from 'reactstrap';
 // tslint:disable-next-line:no-unused-variable
 import { Translate, ICrudGetAction, TextFormat } from 'react-jhipster';
 import { FontAwesomeIcon } from '@fortawesome/react-fontawesome';
 
 import { IRootState } from 'app/shared/reducers';
-import { getEntity } from './cart.reducer';
+import { getFullEntity } from './cart.reducer';
 import { ICart } from 'app/shared/model/cart.model';
 // tslint:disable-next-line:no-unused-variable
 import { APP_DATE_FORMAT, APP_LOCAL_DATE_FORMAT } from 'app/config/constants';
@@ -16,7 +16,7 @@ export interface ICartDetailProps extends StateProps, DispatchProps, RouteCompon
 
 export class CartDetail extends React.Component<ICartDetailProps> {
   componentDidMount() {
-    this.props.getEntity(this.props.match.params.id);
+    this.props.getFullEntity(this.props.match.params.id);
   }
 
   render() {
@@ -42,7 +42,55 @@ export class CartDetail extends React.Component<ICartDetailProps> {
             <dd>
               <TextFormat value={cartEntity.closedAt} type="date" format={APP_LOCAL_DATE_FORMAT} />
             </dd>
+            <dt>
+              <span id="lineCount">
+                <Translate contentKey="storeApp.cart.lineCount">Line Count</Translate>
+              </span>
+            </dt>
+            <dd>{cartEntity.lineCount}</dd>
+            <dt>
+              <span id="total">
+                <Translate contentKey="storeApp.cart.total">Total</Translate>
+              </span>
+            </dt>
+            <dd>
+              <TextFormat value={cartEntity.total} type="number" format="0,0.00" />
+            </dd>
           </dl>
+          {cartEntity.lines && cartEntity.lines.length > 0 ? (
+            <Table responsive>
+              <thead>
+                <tr>
+                  <th>
+                    <Translate contentKey="storeApp.order.item">Item</Translate>
+                  </th>
+                  <th>
+                    <Translate contentKey="storeApp.item.price">Price</Translate>
+                  </th>
+                  <th>
+                    <Translate contentKey="storeApp.order.quantity">Quantity</Translate>
+                  </th>
+                  <th>
+                    <Translate contentKey="storeApp.cart.total">Total</Translate>
+                  </th>
+                </tr>
+              </thead>
+              <tbody>
+                {cartEntity.lines.map((line, i) => (
+                  <tr key={`line-${i}`}>
+                    <td>{line.item ? <Link to={`/entity/item/${line.item.id}`}>{line.item.title}</Link> : ''}</td>
+                    <td>
+                      <TextFormat value={line.item ? line.item.price : null} type="number" format="0,0.00" />
+                    </td>
+                    <td>{line.quantity}</td>
+                    <td>
+                      <TextFormat value={line.total} type="number" format="0,0.00" />
+                    </td>
+                  </tr>
+                ))}
+              </tbody>
+            </Table>
+          ) : null}
           <Button tag={Link} to="/entity/cart" replace color="info">
             <FontAwesomeIcon icon="arrow-left" />{' '}
             <span className="d-none d-md-inline">
@@ -66,7 +114,7 @@ const mapStateToProps = ({ cart }: IRootState) => ({
   cartEntity: cart.entity
 });
 
-const mapDispatchToProps = { getEntity };
+const mapDispatchToProps = { getFullEntity };
 
 type StateProps = ReturnType<typeof mapStateToProps>;
 type DispatchProps = typeof mapDispatchToProps;
@@ -127,6 +127,14 @@ export const getEntity: ICrudGetAction<ICart> = id => {
   };
 };
 
+export const getFullEntity: ICrudGetAction<ICart> = id => {
+  const requestUrl = `${apiUrl}/${id}/full`;
+  return {
+    type: ACTION_TYPES.FETCH_CART,
+    payload: axios.get<ICart>(requestUrl)
+  };
+};
+
 export const createEntity: ICrudPutAction<ICart> = entity => async dispatch => {
   const result = await dispatch({
     type: ACTION_TYPES.CREATE_CART,
@@ -13,6 +13,7 @@ import { IItem } from 'app/shared/model/item.model';
 // tslint:disable-next-line:no-unused-variable
 import { APP_DATE_FORMAT, APP_LOCAL_DATE_FORMAT } from 'app/config/constants';
 import { ITEMS_PER_PAGE } from 'app/shared/util/pagination.constants';
+import { getThumbnailUrl } from 'app/shared/util/thumbnail-utils';
 
 export interface IItemProps extends StateProps, DispatchProps, RouteComponentProps<{ url: string }> {}
 
@@ -121,15 +122,16 @@ export class Item extends React.Component<IItemProps, IItemState> {
                     <td>{item.price}</td>
                     <td>{item.count}</td>
                     <td>
-                      {item.image ? (
+                      {item.imageUrl ? (
                         <div>
-                          <a onClick={openFile(item.imageContentType, item.image)}>
-                            <img src={`data:${item.imageContentType};base64,${item.image}`} style={{ maxHeight: '30px' }} />
+                          <a href={item.imageUrl} target="_blank">
+                            <img
+                              src={getThumbnailUrl(item, 64, this.props.thumbnailSizes)}
+                              style={{ maxHeight: '30px' }}
+                            />
                             &nbsp;
                           </a>
-                          <span>
-                            {item.imageContentType}, {byteSize(item.image)}
-                          </span>
+                          <span>{item.imageContentType}</span>
                         </div>
                       ) : null}
                     </td>
@@ -166,12 +168,13 @@ export class Item extends React.Component<IItemProps, IItemState> {
   }
 }
 
-const mapStateToProps = ({ item }: IRootState) => ({
+const mapStateToProps = ({ item, applicationProfile }: IRootState) => ({
   itemList: item.entities,
   totalItems: item.totalItems,
   links: item.links,
   entity: item.entity,
-  updateSuccess: item.updateSuccess
+  updateSuccess: item.updateSuccess,
+  thumbnailSizes: applicationProfile.thumbnailSizes
 });
 
 const mapDispatchToProps = {
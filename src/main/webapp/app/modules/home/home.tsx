@@ -26,6 +26,7 @@ import {
 
 import { getSession } from 'app/shared/reducers/authentication';
 import { ITEMS_PER_PAGE } from 'app/shared/util/pagination.constants';
+import { getThumbnailUrl } from 'app/shared/util/thumbnail-utils';
 import { getEntities, reset } from 'app/entities/item/item.reducer';
 import { IItem } from 'app/shared/model/item.model';
 import { ICart } from 'app/shared/model/cart.model';
@@ -198,8 +199,13 @@ export class Home extends React.Component<IItemProps, IItemState, IRootState> {
               {itemList.map((item, i) => (
                 <Col lg="3" md="4" sm="6" key={`entity-${i}`}>
                   <Card onClick={this.toggle(item)}>
-                    {item.image ? (
-                      <CardImg top width="100%" src={`data:${item.imageContentType};base64,${item.image}`} alt={`${item.title} image`} />
+                    {item.imageUrl ? (
+                      <CardImg
+                        top
+                        width="100%"
+                        src={getThumbnailUrl(item, 256, this.props.thumbnailSizes)}
+                        alt={`${item.title} image`}
+                      />
                     ) : null}
                     <CardBody>
                       <CardTitle>
@@ -222,12 +228,8 @@ export class Home extends React.Component<IItemProps, IItemState, IRootState> {
                 <CardBody>
                   <Row>
                     <Col md="6">
-                      {this.state.selected ? (
-                        <CardImg
-                          width="100%"
-                          src={`data:${this.state.selected.imageContentType};base64,${this.state.selected.image}`}
-                          alt={`${this.state.selected.title} image`}
-                        />
+                      {this.state.selected.imageUrl ? (
+                        <CardImg width="100%" src={this.state.selected.imageUrl} alt={`${this.state.selected.title} image`} />
                       ) : null}
                     </Col>
                     <Col md="6">
@@ -273,7 +275,8 @@ const mapStateToProps = storeState => ({
   totalItems: storeState.item.totalItems,
   links: storeState.item.links,
   entity: storeState.item.entity,
-  updateSuccess: storeState.item.updateSuccess
+  updateSuccess: storeState.item.updateSuccess,
+  thumbnailSizes: storeState.applicationProfile.thumbnailSizes
 });
 
 const mapDispatchToProps = {
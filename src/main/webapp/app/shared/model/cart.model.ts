@@ -1,11 +1,23 @@
 import { Moment } from 'moment';
 import { IOrder } from 'app/shared/model/order.model';
+import { IItem } from 'app/shared/model/item.model';
+
+export interface ICartLine {
+  id?: number;
+  quantity?: number;
+  total?: number;
+  item?: IItem;
+}
 
 export interface ICart {
   id?: number;
   email?: string;
   closedAt?: Moment;
+  total?: number;
+  lineCount?: number;
   orders?: IOrder[];
+  lines?: ICartLine[];
+  version?: number;
 }
 
 export const defaultValue: Readonly<ICart> = {};
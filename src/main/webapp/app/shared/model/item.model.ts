@@ -6,6 +6,9 @@ export interface IItem {
   count?: number;
   imageContentType?: string;
   image?: any;
+  imageHash?: string;
+  imageUrl?: string;
+  version?: number;
 }
 
 export const defaultValue: Readonly<IItem> = {};
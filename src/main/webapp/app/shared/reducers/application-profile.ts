@@ -9,7 +9,8 @@ export const ACTION_TYPES = {
 const initialState = {
   ribbonEnv: '',
   inProduction: true,
-  isSwaggerEnabled: false
+  isSwaggerEnabled: false,
+  thumbnailSizes: [] as ReadonlyArray<number>
 };
 
 export type ApplicationProfileState = Readonly<typeof initialState>;
@@ -22,7 +23,8 @@ export default (state: ApplicationProfileState = initialState, action): Applicat
         ...state,
         ribbonEnv: data['display-ribbon-on-profiles'],
         inProduction: data.activeProfiles.includes('prod'),
-        isSwaggerEnabled: data.activeProfiles.includes('swagger')
+        isSwaggerEnabled: data.activeProfiles.includes('swagger'),
+        thumbnailSizes: data['thumbnail-sizes'] || []
       };
     default:
       return state;
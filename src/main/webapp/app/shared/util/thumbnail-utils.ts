@@ -0,0 +1,14 @@
+import { IItem } from 'app/shared/model/item.model';
+
+/**
+ * Returns the URL of the smallest thumbnail of the image of an item which is at least as large as the given size,
+ * or of the image itself when no thumbnail is that large.
+ *
+ * @param item Item having an image.
+ * @param size Smallest size of the thumbnail, in pixels.
+ * @param thumbnailSizes Sizes of the thumbnails generated by the server.
+ */
+export const getThumbnailUrl = (item: IItem, size: number, thumbnailSizes: ReadonlyArray<number>) => {
+  const largeEnough = thumbnailSizes.filter(thumbnailSize => thumbnailSize >= size);
+  return item.imageHash && largeEnough.length > 0 ? `api/item-thumbnails/${item.imageHash}/${Math.min(...largeEnough)}` : item.imageUrl;
+};
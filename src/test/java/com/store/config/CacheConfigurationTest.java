@@ -0,0 +1,120 @@
+package com.store.config;
+
+import io.github.jhipster.config.JHipsterProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ehcache.config.ResourceType;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.SizedResourcePool;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the cache regions built by {@link CacheConfiguration}, and their {@link CacheRegionMetrics}.
+ */
+public class CacheConfigurationTest {
+
+    private JHipsterProperties.Cache.Ehcache defaults;
+
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void setup() {
+        defaults = new JHipsterProperties().getCache().getEhcache();
+        defaults.setMaxEntries(100);
+        defaults.setTimeToLiveSeconds(3600);
+        EhcacheCachingProvider cachingProvider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        cacheManager = cachingProvider.getCacheManager(URI.create("urn:store:cache-configuration-test"),
+            ConfigurationBuilder.newConfigurationBuilder().build());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        cacheManager.close();
+    }
+
+    @Test
+    public void testDefaults() {
+        org.ehcache.config.CacheConfiguration<Object, Object> configuration = CacheConfiguration.createCacheConfiguration(null, defaults);
+
+        SizedResourcePool heap = configuration.getResourcePools().getPoolForResource(ResourceType.Core.HEAP);
+        assertThat(heap.getSize()).isEqualTo(100);
+        assertThat(heap.getUnit()).isEqualTo(EntryUnit.ENTRIES);
+        assertThat(configuration.getResourcePools().getResourceTypeSet()).containsExactly(ResourceType.Core.HEAP);
+        assertThat(configuration.getExpiryPolicy().getExpiryForCreation(1, 1)).isEqualTo(Duration.ofHours(1));
+    }
+
+    @Test
+    public void testRegionSettings() {
+        ApplicationProperties.Cache.Region region = new ApplicationProperties.Cache.Region();
+        region.setMaxEntries(10L);
+        region.setOffHeapSize(DataSize.ofMegabytes(2));
+        region.setTimeToIdle(Duration.ofMinutes(5));
+
+        org.ehcache.config.CacheConfiguration<Object, Object> configuration = CacheConfiguration.createCacheConfiguration(region, defaults);
+
+        assertThat(configuration.getResourcePools().getPoolForResource(ResourceType.Core.HEAP).getSize()).isEqualTo(10);
+        SizedResourcePool offHeap = configuration.getResourcePools().getPoolForResource(ResourceType.Core.OFFHEAP);
+        assertThat(offHeap.getSize()).isEqualTo(DataSize.ofMegabytes(2).toBytes());
+        assertThat(offHeap.getUnit()).isEqualTo(MemoryUnit.B);
+        assertThat(configuration.getExpiryPolicy().getExpiryForAccess(1, () -> 1)).isEqualTo(Duration.ofMinutes(5));
+
+        // The off-heap tier serializes the entries
+        Cache<Object, Object> cache = cacheManager.createCache("offHeap", Eh107Configuration.fromEhcacheCacheConfiguration(configuration));
+        for (long i = 0; i < 20; i++) {
+            cache.put(i, "value " + i);
+        }
+        assertThat(cache.get(0L)).isEqualTo("value 0");
+    }
+
+    @Test
+    public void testBothHeapBounds() {
+        ApplicationProperties.Cache.Region region = new ApplicationProperties.Cache.Region();
+        region.setMaxEntries(10L);
+        region.setHeapSize(DataSize.ofMegabytes(1));
+
+        assertThatThrownBy(() -> CacheConfiguration.createCacheConfiguration(region, defaults))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testRegionMetrics() {
+        ApplicationProperties.Cache.Region region = new ApplicationProperties.Cache.Region();
+        region.setMaxEntries(2L);
+        Cache<Object, Object> cache = cacheManager.createCache("metrics", Eh107Configuration.fromEhcacheCacheConfiguration(
+            CacheConfiguration.createCacheConfiguration(region, defaults)));
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        new CacheRegionMetrics(cache).bindTo(meterRegistry);
+        Supplier<Double> size = () -> meterRegistry.get("store.cache.size").tags("cache", "metrics", "tier", "OnHeap").gauge().value();
+
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.put(3L, "three");
+        cache.get(3L);
+        cache.get(4L);
+
+        assertThat(size.get()).isEqualTo(2);
+        assertThat(meterRegistry.get("store.cache.evictions").tag("cache", "metrics").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("store.cache.hit.ratio").tag("cache", "metrics").gauge().value()).isEqualTo(0.5);
+
+        // Clearing the cache, as Hibernate evicts its regions, is seen too
+        cache.clear();
+        assertThat(size.get()).isZero();
+    }
+}
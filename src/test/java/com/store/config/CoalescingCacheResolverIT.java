@@ -0,0 +1,127 @@
+package com.store.config;
+
+import com.store.StoreApp;
+import com.store.domain.User;
+import com.store.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the refresh ahead of the {@link CoalescingCacheResolver}, on the
+ * {@link UserRepository#USERS_BY_LOGIN_CACHE} cache.
+ */
+@SpringBootTest(classes = StoreApp.class)
+public class CoalescingCacheResolverIT {
+
+    private static final String LOGIN = "user";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache cache;
+
+    @BeforeEach
+    public void setup() {
+        cache = cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE);
+        cache.clear();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        cache.clear();
+    }
+
+    @Test
+    public void staleUserIsServedAndRefreshed() throws Exception {
+        long loadedAt = staleLoadedAt();
+        cache.put(LOGIN, new CoalescingCacheResolver.LoadedValue(staleUser(), loadedAt));
+        double refreshed = count("refreshed");
+        double refreshes = countRefreshes();
+
+        Optional<User> user = userRepository.findOneWithAuthoritiesByLogin(LOGIN);
+
+        assertThat(user).hasValueSatisfying(value -> assertThat(value.getFirstName()).isEqualTo("Stale"));
+        awaitRefresh(refreshes);
+        assertThat(count("refreshed")).isEqualTo(refreshed + 1);
+        CoalescingCacheResolver.LoadedValue loaded = (CoalescingCacheResolver.LoadedValue) cache.get(LOGIN).get();
+        assertThat(loaded.getLoadedAt()).isGreaterThan(loadedAt);
+        assertThat(((User) loaded.getValue()).getFirstName()).isNotEqualTo("Stale");
+        assertThat(((User) loaded.getValue()).getAuthorities()).isNotEmpty();
+        assertThat(userRepository.findOneWithAuthoritiesByLogin(LOGIN))
+            .hasValueSatisfying(value -> assertThat(value.getFirstName()).isNotEqualTo("Stale"));
+    }
+
+    @Test
+    public void freshUserIsNotRefreshed() {
+        cache.put(LOGIN, new CoalescingCacheResolver.LoadedValue(staleUser(), System.currentTimeMillis()));
+        double refreshes = countRefreshes();
+
+        assertThat(userRepository.findOneWithAuthoritiesByLogin(LOGIN))
+            .hasValueSatisfying(value -> assertThat(value.getFirstName()).isEqualTo("Stale"));
+
+        assertThat(countRefreshes()).isEqualTo(refreshes);
+    }
+
+    @Test
+    public void evictionDuringRefreshWins() throws Exception {
+        cache.put(LOGIN, new CoalescingCacheResolver.LoadedValue(staleUser(), staleLoadedAt()));
+        double refreshes = countRefreshes();
+
+        userRepository.findOneWithAuthoritiesByLogin(LOGIN);
+        // Evicted before or after the refresh completes, the user stays evicted
+        cache.evict(LOGIN);
+        awaitRefresh(refreshes);
+
+        assertThat(cache.get(LOGIN)).isNull();
+    }
+
+    private long staleLoadedAt() {
+        return System.currentTimeMillis() - Duration.ofMinutes(50).toMillis();
+    }
+
+    private User staleUser() {
+        User user = new User();
+        user.setLogin(LOGIN);
+        user.setFirstName("Stale");
+        return user;
+    }
+
+    /**
+     * Wait for the refresh in the background to be over, whatever its result.
+     */
+    private void awaitRefresh(double refreshes) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (countRefreshes() == refreshes && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private double countRefreshes() {
+        return count("refreshed") + count("evicted") + count("failed");
+    }
+
+    private double count(String result) {
+        return meterRegistry.find("store.cache.refresh")
+            .tags("cache", UserRepository.USERS_BY_LOGIN_CACHE, "result", result).counters().stream()
+            .mapToDouble(counter -> counter.count())
+            .sum();
+    }
+}
@@ -0,0 +1,350 @@
+package com.store.service;
+
+import com.store.StoreApp;
+import com.store.config.ApplicationProperties;
+import com.store.domain.Item;
+import com.store.domain.User;
+import com.store.repository.ItemRepository;
+import com.store.repository.UserRepository;
+import com.store.service.dto.CacheInvalidationDTO;
+import com.store.service.dto.ItemSearchResultDTO;
+import com.store.service.impl.InJvmCacheInvalidationTransport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the {@link CacheInvalidationBus}, with a peer node on the in-JVM transport.
+ */
+@SpringBootTest(classes = StoreApp.class)
+public class CacheInvalidationBusIT {
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CatalogEpoch catalogEpoch;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private ItemCatalogSnapshot itemCatalogSnapshot;
+
+    @Autowired
+    private ItemSearchService itemSearchService;
+
+    @Autowired
+    private ExistenceIndex existenceIndex;
+
+    private TransactionTemplate transactionTemplate;
+
+    private InJvmCacheInvalidationTransport peer;
+
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        cacheInvalidationBus.flush();
+        peer = new InJvmCacheInvalidationTransport(applicationProperties.getCache().getInvalidation().getChannel());
+        peer.subscribe(received::add, () -> { });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        peer.close();
+    }
+
+    @Test
+    public void committedEvictionsAreCoalescedAndBroadcast() throws Exception {
+        transactionTemplate.execute(status -> {
+            cacheInvalidationBus.evictEntity(Item.class.getName(), 1L);
+            cacheInvalidationBus.evictEntity(Item.class.getName(), 2L);
+            cacheInvalidationBus.evictCollection("com.store.domain.Cart.orders", 3L);
+            return null;
+        });
+        transactionTemplate.execute(status -> {
+            cacheInvalidationBus.evictEntity(Item.class.getName(), 1L);
+            cacheInvalidationBus.evictCache(UserRepository.USERS_BY_LOGIN_CACHE, "peer");
+            return null;
+        });
+        assertThat(received).isEmpty();
+
+        cacheInvalidationBus.flush();
+
+        assertThat(received).hasSize(1);
+        CacheInvalidationDTO evictions = objectMapper.readValue(received.get(0), CacheInvalidationDTO.class);
+        assertThat(evictions.getEntities().get(Item.class.getName())).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(evictions.getCollections().get("com.store.domain.Cart.orders")).containsExactly(3L);
+        assertThat(evictions.getCaches().get(UserRepository.USERS_BY_LOGIN_CACHE)).containsExactly("peer");
+        assertThat(evictions.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void rolledBackEvictionsAreNotBroadcast() {
+        transactionTemplate.execute(status -> {
+            cacheInvalidationBus.evictEntity(Item.class.getName(), 1L);
+            status.setRollbackOnly();
+            return null;
+        });
+
+        cacheInvalidationBus.flush();
+
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    public void evictionsAreSentInBatches() {
+        int maxBatchSize = applicationProperties.getCache().getInvalidation().getMaxBatchSize();
+        for (long id = 0; id <= 2 * maxBatchSize; id++) {
+            cacheInvalidationBus.evictEntity(Item.class.getName(), id);
+        }
+
+        cacheInvalidationBus.flush();
+
+        assertThat(received).hasSize(3);
+    }
+
+    @Test
+    public void userChangesAreBroadcast() throws Exception {
+        User user = new User();
+        user.setLogin("invalidation");
+        user.setEmail("invalidation@localhost");
+        user.setPassword("$2a$10$VEjxo0jq2YG9Rbk2HmX9S.k1uZBGYUHdUcid3g/vfiEl7lwWgOH/K");
+        user.setActivationKey("invalidation-key");
+        userRepository.saveAndFlush(user);
+        try {
+            transactionTemplate.execute(status -> userService.activateRegistration("invalidation-key"));
+            cacheInvalidationBus.flush();
+
+            assertThat(received).hasSize(1);
+            CacheInvalidationDTO evictions = objectMapper.readValue(received.get(0), CacheInvalidationDTO.class);
+            assertThat(evictions.getCaches().get(UserRepository.USERS_BY_LOGIN_CACHE)).containsExactly("invalidation");
+            assertThat(evictions.getCaches().get(UserRepository.USERS_BY_EMAIL_CACHE)).containsExactly("invalidation@localhost");
+        } finally {
+            userRepository.delete(user);
+        }
+    }
+
+    @Test
+    public void peerEvictionsAreApplied() throws Exception {
+        cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).put("peer", "user");
+        long epoch = catalogEpoch.get();
+
+        CacheInvalidationDTO evictions = new CacheInvalidationDTO()
+            .entity(Item.class.getName(), 1L)
+            .cache(UserRepository.USERS_BY_LOGIN_CACHE, "peer");
+        evictions.setNode("peer");
+        peer.publish(objectMapper.writeValueAsString(evictions));
+
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("peer")).isNull();
+        assertThat(catalogEpoch.get()).isGreaterThan(epoch);
+    }
+
+    @Test
+    public void evictionsFailingToBePublishedAreSentAgain() throws Exception {
+        String channel = "store_cache_invalidation_failing";
+        AtomicBoolean failing = new AtomicBoolean(true);
+        InJvmCacheInvalidationTransport failingTransport = new InJvmCacheInvalidationTransport(channel) {
+            @Override
+            public void publish(String message) {
+                if (failing.get()) {
+                    throw new IllegalStateException("Not connected");
+                }
+                super.publish(message);
+            }
+        };
+        InJvmCacheInvalidationTransport failingPeer = new InJvmCacheInvalidationTransport(channel);
+        List<String> failingReceived = new CopyOnWriteArrayList<>();
+        failingPeer.subscribe(failingReceived::add, () -> { });
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CacheInvalidationBus bus = newBus(failingTransport, itemCatalogSnapshot, existenceIndex, meterRegistry);
+        try {
+            bus.evictEntity(Item.class.getName(), 1L);
+
+            bus.flush();
+
+            assertThat(failingReceived).isEmpty();
+            assertThat(meterRegistry.get("store.cache.invalidation.pending").gauge().value()).isEqualTo(1);
+
+            failing.set(false);
+            bus.evictEntity(Item.class.getName(), 2L);
+            bus.flush();
+
+            assertThat(failingReceived).hasSize(1);
+            CacheInvalidationDTO evictions = objectMapper.readValue(failingReceived.get(0), CacheInvalidationDTO.class);
+            assertThat(evictions.getEntities().get(Item.class.getName())).containsExactlyInAnyOrder(1L, 2L);
+            assertThat(meterRegistry.get("store.cache.invalidation.pending").gauge().value()).isZero();
+        } finally {
+            bus.close();
+            failingTransport.close();
+            failingPeer.close();
+        }
+    }
+
+    @Test
+    public void evictionsAreFlushedPeriodicallyOnTheThreadOfTheBus() throws Exception {
+        String channel = "store_cache_invalidation_periodic";
+        ApplicationProperties busProperties = new ApplicationProperties();
+        busProperties.getCache().getInvalidation().setFlushInterval(10);
+        InJvmCacheInvalidationTransport transport = new InJvmCacheInvalidationTransport(channel);
+        InJvmCacheInvalidationTransport periodicPeer = new InJvmCacheInvalidationTransport(channel);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        periodicPeer.subscribe(message -> threads.add(Thread.currentThread().getName()), () -> { });
+        CacheInvalidationBus bus = new CacheInvalidationBus(
+            new StaticListableBeanFactory(Collections.singletonMap("transport", transport))
+                .getBeanProvider(CacheInvalidationTransport.class),
+            entityManagerFactory, cacheManager, catalogEpoch, itemRepository, itemCatalogSnapshot, itemSearchService,
+            existenceIndex, objectMapper, busProperties, new SimpleMeterRegistry());
+        try {
+            bus.evictEntity(Item.class.getName(), 1L);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (threads.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertThat(threads).hasSize(1);
+            assertThat(threads.get(0)).startsWith("store-cache-invalidation-");
+        } finally {
+            bus.close();
+            transport.close();
+            periodicPeer.close();
+        }
+    }
+
+    @Test
+    public void peerItemChangesAreReloaded() throws Exception {
+        String channel = "store_cache_invalidation_items";
+        ApplicationProperties snapshotProperties = new ApplicationProperties();
+        snapshotProperties.getCatalogSnapshot().setEnabled(true);
+        snapshotProperties.getExistenceIndex().setEnabled(true);
+        snapshotProperties.getExistenceIndex().setFalsePositiveRate(1e-9);
+        ItemCatalogSnapshot snapshot = new ItemCatalogSnapshot(itemRepository, snapshotProperties, new SimpleMeterRegistry());
+        ExistenceIndex index = new ExistenceIndex(userRepository, itemRepository, snapshotProperties, new SimpleMeterRegistry());
+        transactionTemplate.execute(status -> {
+            snapshot.rebuild();
+            index.rebuild();
+            return null;
+        });
+        InJvmCacheInvalidationTransport transport = new InJvmCacheInvalidationTransport(channel);
+        InJvmCacheInvalidationTransport itemPeer = new InJvmCacheInvalidationTransport(channel);
+        CacheInvalidationBus bus = newBus(transport, snapshot, index, new SimpleMeterRegistry());
+        // Written by the peer node, which this node does not see
+        Item item = itemRepository.saveAndFlush(new Item().title("Replicated gadget").description("Reloaded").price(3.0).count(7));
+        try {
+            long epoch = catalogEpoch.get();
+            publishItemChange(itemPeer, item.getId());
+
+            assertThat(snapshot.findIds(null, Sort.unsorted())).contains(item.getId());
+            assertThat(itemSearchService.search("replicated", 10)).extracting(ItemSearchResultDTO::getId).containsExactly(item.getId());
+            assertThat(catalogEpoch.get()).isGreaterThan(epoch);
+            assertThat(index.mightExist(ExistenceIndex.Kind.ITEM_TITLE, "Replicated gadget")).isTrue();
+
+            item = itemRepository.saveAndFlush(item.title("Renamed gadget"));
+            publishItemChange(itemPeer, item.getId());
+
+            assertThat(itemSearchService.search("replicated", 10)).isEmpty();
+            assertThat(itemSearchService.search("renamed", 10)).extracting(ItemSearchResultDTO::getId).containsExactly(item.getId());
+
+            itemRepository.delete(item);
+            publishItemChange(itemPeer, item.getId());
+
+            assertThat(snapshot.findIds(null, Sort.unsorted())).doesNotContain(item.getId());
+            assertThat(itemSearchService.search("renamed", 10)).isEmpty();
+        } finally {
+            itemRepository.findById(item.getId()).ifPresent(itemRepository::delete);
+            itemSearchService.remove(item.getId());
+            bus.close();
+            transport.close();
+            itemPeer.close();
+        }
+    }
+
+    @Test
+    public void peerUsersAreAddedToTheExistenceIndex() throws Exception {
+        String channel = "store_cache_invalidation_users";
+        ApplicationProperties indexProperties = new ApplicationProperties();
+        indexProperties.getExistenceIndex().setEnabled(true);
+        indexProperties.getExistenceIndex().setFalsePositiveRate(1e-9);
+        ExistenceIndex index = new ExistenceIndex(userRepository, itemRepository, indexProperties, new SimpleMeterRegistry());
+        transactionTemplate.execute(status -> {
+            index.rebuild();
+            return null;
+        });
+        InJvmCacheInvalidationTransport transport = new InJvmCacheInvalidationTransport(channel);
+        InJvmCacheInvalidationTransport userPeer = new InJvmCacheInvalidationTransport(channel);
+        CacheInvalidationBus bus = newBus(transport, itemCatalogSnapshot, index, new SimpleMeterRegistry());
+        try {
+            assertThat(index.mightExist(ExistenceIndex.Kind.LOGIN, "peer-login")).isFalse();
+
+            CacheInvalidationDTO evictions = new CacheInvalidationDTO()
+                .cache(UserRepository.USERS_BY_LOGIN_CACHE, "peer-login")
+                .cache(UserRepository.USERS_BY_EMAIL_CACHE, "peer@localhost");
+            evictions.setNode("peer");
+            userPeer.publish(objectMapper.writeValueAsString(evictions));
+
+            assertThat(index.mightExist(ExistenceIndex.Kind.LOGIN, "peer-login")).isTrue();
+            assertThat(index.mightExist(ExistenceIndex.Kind.EMAIL, "Peer@Localhost")).isTrue();
+        } finally {
+            bus.close();
+            transport.close();
+            userPeer.close();
+        }
+    }
+
+    private void publishItemChange(InJvmCacheInvalidationTransport itemPeer, Long id) throws Exception {
+        CacheInvalidationDTO evictions = new CacheInvalidationDTO().entity(Item.class.getName(), id);
+        evictions.setNode("peer");
+        itemPeer.publish(objectMapper.writeValueAsString(evictions));
+    }
+
+    private CacheInvalidationBus newBus(CacheInvalidationTransport transport, ItemCatalogSnapshot snapshot, ExistenceIndex index,
+                                        SimpleMeterRegistry meterRegistry) {
+        return new CacheInvalidationBus(
+            new StaticListableBeanFactory(Collections.singletonMap("transport", transport))
+                .getBeanProvider(CacheInvalidationTransport.class),
+            entityManagerFactory, cacheManager, catalogEpoch, itemRepository, snapshot, itemSearchService, index,
+            objectMapper, applicationProperties, meterRegistry);
+    }
+}
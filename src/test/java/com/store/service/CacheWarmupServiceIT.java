@@ -0,0 +1,124 @@
+package com.store.service;
+
+import com.store.StoreApp;
+import com.store.config.ApplicationProperties;
+import com.store.domain.Item;
+import com.store.repository.UserRepository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.FileSystemUtils;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the {@link CacheWarmupService}, which is disabled in the other tests.
+ */
+@SpringBootTest(classes = StoreApp.class)
+public class CacheWarmupServiceIT {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Path directory;
+
+    private Path file;
+
+    private MeterRegistry meterRegistry;
+
+    private CacheWarmupService cacheWarmupService;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("cache-warmup");
+        file = directory.resolve("hot-keys.json");
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        ApplicationProperties.Cache.Warmup warmup = applicationProperties.getCache().getWarmup();
+        warmup.setEnabled(true);
+        warmup.setFile(file.toString());
+        warmup.setHotKeys(2);
+        warmup.setBatchSize(1);
+        meterRegistry = new SimpleMeterRegistry();
+        cacheWarmupService = new CacheWarmupService(em, userRepository, transactionManager, objectMapper,
+            applicationProperties, meterRegistry);
+        cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).clear();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Test
+    public void saveTheHottestKeys() throws Exception {
+        String items = Item.class.getName();
+        cacheWarmupService.recordHit(items, 1L);
+        cacheWarmupService.recordHit(items, 2L);
+        cacheWarmupService.recordHit(items, 2L);
+        cacheWarmupService.recordHit(items, 3L);
+        cacheWarmupService.recordHit(items, 3L);
+        cacheWarmupService.recordHit(items, 3L);
+        cacheWarmupService.recordHit("unknown", 1L);
+
+        cacheWarmupService.saveHotKeys();
+
+        Map<String, List<Integer>> hotKeys = objectMapper.readValue(file.toFile(), new TypeReference<Map<String, List<Integer>>>() {});
+        assertThat(hotKeys.keySet()).containsExactly(items);
+        assertThat(hotKeys.get(items)).containsExactly(3, 2);
+
+        // The counts decay on each save, and once they all are gone the keys saved last are kept
+        cacheWarmupService.saveHotKeys();
+        cacheWarmupService.saveHotKeys();
+        cacheWarmupService.saveHotKeys();
+        hotKeys = objectMapper.readValue(file.toFile(), new TypeReference<Map<String, List<Integer>>>() {});
+        assertThat(hotKeys.get(items)).containsExactlyInAnyOrder(3, 2);
+    }
+
+    @Test
+    public void warmUpTheSavedKeys() throws Exception {
+        Map<String, List<Object>> hotKeys = new LinkedHashMap<>();
+        hotKeys.put(UserRepository.USERS_BY_LOGIN_CACHE, Arrays.asList("admin", "user"));
+        hotKeys.put(Item.class.getName(), Arrays.asList(Long.MAX_VALUE));
+        Files.write(file, objectMapper.writeValueAsBytes(hotKeys));
+
+        cacheWarmupService.warmUp();
+
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("admin")).isNotNull();
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("user")).isNotNull();
+        assertThat(meterRegistry.get("store.cache.warmup.keys")
+            .tags("cache", UserRepository.USERS_BY_LOGIN_CACHE, "result", "loaded").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("store.cache.warmup.keys")
+            .tags("cache", Item.class.getName(), "result", "loaded").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("store.cache.warmup.pending").gauge().value()).isZero();
+        assertThat(meterRegistry.get("store.cache.warmup").timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,123 @@
+package com.store.service;
+
+import com.store.StoreApp;
+import com.store.config.ApplicationProperties;
+import com.store.domain.Item;
+import com.store.repository.ItemRepository;
+import com.store.repository.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the {@link ExistenceIndex}, on an index of their own.
+ */
+@SpringBootTest(classes = StoreApp.class)
+@Transactional
+public class ExistenceIndexIT {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ExistenceIndex existenceIndex;
+
+    @BeforeEach
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getExistenceIndex().setEnabled(true);
+        // Low enough for the unknown keys of the tests never to be false positives
+        applicationProperties.getExistenceIndex().setFalsePositiveRate(1e-9);
+        meterRegistry = new SimpleMeterRegistry();
+        existenceIndex = new ExistenceIndex(userRepository, itemRepository, applicationProperties, meterRegistry);
+    }
+
+    @Test
+    public void everyKeyMayExistUntilBuilt() {
+        assertThat(existenceIndex.mightExist(ExistenceIndex.Kind.LOGIN, "unknown-login")).isTrue();
+    }
+
+    @Test
+    public void existingKeysMayExist() {
+        Item item = new Item().title("existing").description("existing").price(1.0).count(1);
+        em.persist(item);
+        em.flush();
+        existenceIndex.rebuild();
+
+        assertThat(existenceIndex.mightExist(ExistenceIndex.Kind.LOGIN, "admin")).isTrue();
+        assertThat(existenceIndex.mightExist(ExistenceIndex.Kind.EMAIL, "Admin@Localhost")).isTrue();
+        assertThat(existenceIndex.mightExist(ExistenceIndex.Kind.ITEM_TITLE, "existing")).isTrue();
+        assertThat(existenceIndex.find(ExistenceIndex.Kind.LOGIN, "admin", userRepository::findOneByLogin)).isPresent();
+        assertThat(count("found")).isEqualTo(1);
+    }
+
+    @Test
+    public void unknownKeysAreNotLookedUp() {
+        existenceIndex.rebuild();
+
+        assertThat(existenceIndex.mightExist(ExistenceIndex.Kind.LOGIN, "unknown-login")).isFalse();
+        assertThat(existenceIndex.mightExist(ExistenceIndex.Kind.EMAIL, "unknown@localhost")).isFalse();
+        List<String> lookups = new ArrayList<>();
+        assertThat(existenceIndex.find(ExistenceIndex.Kind.ITEM_TITLE, "unknown", title -> {
+            lookups.add(title);
+            return Optional.of(title);
+        })).isEmpty();
+        assertThat(existenceIndex.findExisting(ExistenceIndex.Kind.ITEM_TITLE, Arrays.asList("unknown", "other"), titles -> {
+            lookups.addAll(titles);
+            return titles;
+        })).isEmpty();
+        assertThat(lookups).isEmpty();
+        assertThat(count("skipped")).isEqualTo(5);
+    }
+
+    @Test
+    public void addedKeysMayExist() {
+        existenceIndex.rebuild();
+
+        existenceIndex.add(ExistenceIndex.Kind.LOGIN, "added-login");
+        existenceIndex.add(ExistenceIndex.Kind.EMAIL, "Added@Localhost");
+
+        assertThat(existenceIndex.mightExist(ExistenceIndex.Kind.LOGIN, "added-login")).isTrue();
+        assertThat(existenceIndex.mightExist(ExistenceIndex.Kind.EMAIL, "added@localhost")).isTrue();
+        // Not in the database: a false positive
+        assertThat(existenceIndex.find(ExistenceIndex.Kind.LOGIN, "added-login", userRepository::findOneByLogin)).isEmpty();
+        assertThat(count("false-positive")).isEqualTo(1);
+    }
+
+    @Test
+    public void metricsMeasureTheIndex() {
+        assertThat(meterRegistry.get("store.existence.index.memory").tag("index", "login").gauge().value()).isZero();
+
+        existenceIndex.rebuild();
+
+        assertThat(meterRegistry.get("store.existence.index.memory").tag("index", "login").gauge().value()).isPositive();
+        double falsePositiveRate = meterRegistry.get("store.existence.index.false.positive.rate").tag("index", "login").gauge().value();
+        assertThat(falsePositiveRate).isPositive().isLessThan(1e-9);
+        assertThat(meterRegistry.get("store.existence.index.build").timer().count()).isEqualTo(1);
+    }
+
+    private double count(String result) {
+        return meterRegistry.find("store.existence.index.lookups").tag("result", result).counters().stream()
+            .mapToDouble(counter -> counter.count())
+            .sum();
+    }
+}
@@ -0,0 +1,133 @@
+package com.store.service;
+
+import com.store.StoreApp;
+import com.store.config.ApplicationProperties;
+import com.store.domain.Item;
+import com.store.repository.ItemRepository;
+import com.store.service.dto.ItemCriteria;
+import com.store.service.dto.ItemDTO;
+import com.store.service.mapper.ItemMapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.jhipster.service.filter.DoubleFilter;
+import io.github.jhipster.service.filter.StringFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for {@link ItemQueryService} reads evaluated against the {@link ItemCatalogSnapshot}, compared
+ * with the same reads evaluated by the database.
+ */
+@SpringBootTest(classes = StoreApp.class)
+@Transactional
+public class ItemCatalogSnapshotIT {
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private ItemMapper itemMapper;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CatalogEpoch catalogEpoch;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ItemCatalogSnapshot itemCatalogSnapshot;
+
+    private ItemQueryService snapshotItemQueryService;
+
+    private ItemQueryService databaseItemQueryService;
+
+    @BeforeEach
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getCatalogSnapshot().setEnabled(true);
+        itemCatalogSnapshot = new ItemCatalogSnapshot(itemRepository, applicationProperties, meterRegistry);
+        snapshotItemQueryService = new ItemQueryService(itemRepository, itemMapper, em, cacheManager, catalogEpoch,
+            itemCatalogSnapshot, objectMapper, meterRegistry);
+        ItemCatalogSnapshot disabledSnapshot = new ItemCatalogSnapshot(itemRepository, new ApplicationProperties(), meterRegistry);
+        databaseItemQueryService = new ItemQueryService(itemRepository, itemMapper, em, cacheManager, catalogEpoch,
+            disabledSnapshot, objectMapper, meterRegistry);
+        cacheManager.getCache(ItemQueryService.RESULTS_CACHE).clear();
+    }
+
+    @Test
+    public void snapshotReadsMatchTheDatabase() {
+        for (int i = 0; i < 12; i++) {
+            itemRepository.save(new Item().title("SNAPSHOT " + i).description("snapshot").price(i % 4 * 10D).count(i % 3));
+        }
+        itemRepository.flush();
+        itemCatalogSnapshot.rebuild();
+
+        ItemCriteria criteria = new ItemCriteria();
+        StringFilter title = new StringFilter();
+        title.setContains("snapshot");
+        criteria.setTitle(title);
+        DoubleFilter price = new DoubleFilter();
+        price.setGreaterThan(0D);
+        criteria.setPrice(price);
+        assertThat(itemCatalogSnapshot.canEvaluate(criteria, Sort.by("price"))).isTrue();
+
+        PageRequest page = PageRequest.of(1, 4, Sort.by(Sort.Order.desc("price"), Sort.Order.asc("id")));
+        Page<ItemDTO> fromSnapshot = snapshotItemQueryService.findByCriteria(criteria, page);
+        cacheManager.getCache(ItemQueryService.RESULTS_CACHE).clear();
+        Page<ItemDTO> fromDatabase = databaseItemQueryService.findByCriteria(criteria, page);
+
+        assertThat(fromSnapshot.getTotalElements()).isEqualTo(9).isEqualTo(fromDatabase.getTotalElements());
+        assertThat(fromSnapshot.getContent()).extracting(ItemDTO::getId)
+            .containsExactlyElementsOf(fromDatabase.map(ItemDTO::getId).getContent());
+        assertThat(fromSnapshot.getContent()).extracting(ItemDTO::getTitle)
+            .containsExactlyElementsOf(fromDatabase.map(ItemDTO::getTitle).getContent());
+        assertThat(snapshotItemQueryService.findByCriteria(criteria)).hasSize(9);
+    }
+
+    @Test
+    public void titleSortsMatchTheDatabase() {
+        for (String title : Arrays.asList("éclair", "Eclair", "eclair", "Zèbre", "zebra", "Ångström", "angstrom", "Éclair")) {
+            itemRepository.save(new Item().title("COLLATION " + title).description("collation").price(10D).count(1));
+        }
+        itemRepository.flush();
+        itemCatalogSnapshot.rebuild();
+
+        ItemCriteria criteria = new ItemCriteria();
+        StringFilter title = new StringFilter();
+        title.setContains("collation");
+        criteria.setTitle(title);
+        for (Sort sort : Arrays.asList(Sort.by("title"), Sort.by(Sort.Order.desc("title")), Sort.by(Sort.Order.asc("title").ignoreCase()))) {
+            assertThat(itemCatalogSnapshot.canEvaluate(criteria, sort)).isFalse();
+
+            PageRequest page = PageRequest.of(0, 20, sort);
+            Page<ItemDTO> fromSnapshot = snapshotItemQueryService.findByCriteria(criteria, page);
+            cacheManager.getCache(ItemQueryService.RESULTS_CACHE).clear();
+            Page<ItemDTO> fromDatabase = databaseItemQueryService.findByCriteria(criteria, page);
+
+            assertThat(fromSnapshot.getContent()).hasSize(8).extracting(ItemDTO::getTitle)
+                .containsExactlyElementsOf(fromDatabase.map(ItemDTO::getTitle).getContent());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.store.service;
+
+import com.store.config.ApplicationProperties;
+import com.store.repository.ItemRepository;
+import com.store.service.dto.ItemCriteria;
+
+import io.github.jhipster.service.filter.DoubleFilter;
+import io.github.jhipster.service.filter.IntegerFilter;
+import io.github.jhipster.service.filter.LongFilter;
+import io.github.jhipster.service.filter.StringFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the {@link ItemCatalogSnapshot} filter evaluation.
+ */
+public class ItemCatalogSnapshotTest {
+
+    private ItemRepository itemRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ItemCatalogSnapshot itemCatalogSnapshot;
+
+    @BeforeEach
+    public void setup() {
+        itemRepository = mock(ItemRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getCatalogSnapshot().setEnabled(true);
+        itemCatalogSnapshot = new ItemCatalogSnapshot(itemRepository, applicationProperties, meterRegistry);
+        when(itemRepository.streamAllCatalogFields()).thenReturn(Stream.of(
+            new Object[] {1L, "Red Chair", 30D, 5},
+            new Object[] {2L, "Red Table", 120D, 0},
+            new Object[] {3L, "Garden Chair", 30D, 12},
+            new Object[] {4L, "Lamp", 15D, 3}
+        ));
+        itemCatalogSnapshot.rebuild();
+    }
+
+    @Test
+    public void testNotEvaluatedUntilBuilt() {
+        ItemCatalogSnapshot disabled = new ItemCatalogSnapshot(itemRepository, new ApplicationProperties(), meterRegistry);
+        disabled.rebuild();
+
+        assertThat(disabled.canEvaluate(null, Sort.unsorted())).isFalse();
+        assertThat(itemCatalogSnapshot.canEvaluate(null, Sort.unsorted())).isTrue();
+        assertThat(meterRegistry.get("store.item.catalog.snapshot.items").gauge().value()).isEqualTo(4);
+    }
+
+    @Test
+    public void testRangeFilters() {
+        ItemCriteria criteria = new ItemCriteria();
+        DoubleFilter price = new DoubleFilter();
+        price.setGreaterOrEqualThan(20D);
+        price.setLessThan(100D);
+        criteria.setPrice(price);
+        IntegerFilter count = new IntegerFilter();
+        count.setGreaterThan(0);
+        criteria.setCount(count);
+
+        assertThat(itemCatalogSnapshot.findIds(criteria, Sort.unsorted())).containsExactly(1L, 3L);
+        assertThat(itemCatalogSnapshot.count(criteria)).isEqualTo(2);
+    }
+
+    @Test
+    public void testEqualsTakesPrecedence() {
+        ItemCriteria criteria = new ItemCriteria();
+        LongFilter id = new LongFilter();
+        id.setEquals(2L);
+        id.setIn(Arrays.asList(1L, 3L));
+        id.setLessThan(2L);
+        criteria.setId(id);
+
+        assertThat(itemCatalogSnapshot.findIds(criteria, Sort.unsorted())).containsExactly(2L);
+
+        id.setEquals(null);
+        assertThat(itemCatalogSnapshot.findIds(criteria, Sort.unsorted())).containsExactly(1L, 3L);
+
+        id.setIn(null);
+        id.setSpecified(false);
+        assertThat(itemCatalogSnapshot.findIds(criteria, Sort.unsorted())).isEmpty();
+    }
+
+    @Test
+    public void testTitleFilters() {
+        ItemCriteria criteria = new ItemCriteria();
+        StringFilter title = new StringFilter();
+        title.setContains("chair");
+        criteria.setTitle(title);
+
+        assertThat(itemCatalogSnapshot.findIds(criteria, Sort.unsorted())).containsExactly(1L, 3L);
+
+        title.setIn(Arrays.asList("Lamp", "Red Table"));
+        assertThat(itemCatalogSnapshot.findIds(criteria, Sort.unsorted())).containsExactly(2L, 4L);
+
+        title.setIn(null);
+        title.setContains("50%");
+        assertThat(itemCatalogSnapshot.canEvaluate(criteria, Sort.unsorted())).isFalse();
+    }
+
+    @Test
+    public void testSortAndPage() {
+        Page<Long> page = itemCatalogSnapshot.findIds(null, PageRequest.of(0, 3, Sort.by(Sort.Order.asc("price"), Sort.Order.desc("count"))));
+
+        assertThat(page.getContent()).containsExactly(4L, 3L, 1L);
+        assertThat(page.getTotalElements()).isEqualTo(4);
+
+        page = itemCatalogSnapshot.findIds(null, PageRequest.of(1, 3, Sort.by(Sort.Order.desc("count"))));
+        assertThat(page.getContent()).containsExactly(2L);
+
+        // Ties are sorted by id
+        List<Long> ids = itemCatalogSnapshot.findIds(null, Sort.by("price"));
+        assertThat(ids).containsExactly(4L, 1L, 3L, 2L);
+    }
+
+    @Test
+    public void testUnknownPropertiesAreNotEvaluated() {
+        ItemCriteria criteria = new ItemCriteria();
+        StringFilter description = new StringFilter();
+        description.setContains("garden");
+        criteria.setDescription(description);
+
+        assertThat(itemCatalogSnapshot.canEvaluate(criteria, Sort.unsorted())).isFalse();
+        assertThat(itemCatalogSnapshot.canEvaluate(null, Sort.by("description"))).isFalse();
+    }
+
+    @Test
+    public void testTitleSortsAreNotEvaluated() {
+        ItemCriteria criteria = new ItemCriteria();
+        StringFilter title = new StringFilter();
+        title.setContains("chair");
+        criteria.setTitle(title);
+
+        // Filtered on, but sorted by the database collation
+        assertThat(itemCatalogSnapshot.canEvaluate(criteria, Sort.by("price"))).isTrue();
+        assertThat(itemCatalogSnapshot.canEvaluate(criteria, Sort.by("title"))).isFalse();
+        assertThat(itemCatalogSnapshot.canEvaluate(null, Sort.by(Sort.Order.asc("title").ignoreCase()))).isFalse();
+    }
+
+    @Test
+    public void testWritesAreCopiedOnWrite() {
+        ItemCriteria criteria = new ItemCriteria();
+        IntegerFilter count = new IntegerFilter();
+        count.setEquals(0);
+        criteria.setCount(count);
+
+        itemCatalogSnapshot.put(5L, "Sofa", 400D, 0);
+        itemCatalogSnapshot.put(1L, "Red Chair", 30D, 0);
+        assertThat(itemCatalogSnapshot.findIds(criteria, Sort.unsorted())).containsExactly(1L, 2L, 5L);
+
+        itemCatalogSnapshot.remove(2L);
+        when(itemRepository.findCountsByIdIn(Arrays.asList(1L, 5L))).thenReturn(Arrays.asList(
+            new Object[] {1L, 2},
+            new Object[] {5L, 0}
+        ));
+        itemCatalogSnapshot.refreshCounts(Arrays.asList(1L, 5L));
+        assertThat(itemCatalogSnapshot.findIds(criteria, Sort.unsorted())).containsExactly(5L);
+        assertThat(itemCatalogSnapshot.findIds(null, Sort.by("price"))).containsExactly(4L, 1L, 3L, 5L);
+    }
+}
@@ -0,0 +1,118 @@
+package com.store.service;
+
+import com.store.StoreApp;
+import com.store.domain.Item;
+import com.store.repository.ItemRepository;
+import com.store.service.dto.ItemImportResultDTO;
+import com.store.service.mapper.ItemMapper;
+import com.store.service.util.FileFormat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validator;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the {@link ItemImportService}, with concurrent writes of the imported titles.
+ */
+@SpringBootTest(classes = StoreApp.class)
+public class ItemImportServiceIT {
+
+    private static final List<String> TITLES = Arrays.asList("CLASH 1", "CLASH 2", "CLASH 3");
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private ItemMapper itemMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ItemSearchService itemSearchService;
+
+    @Autowired
+    private ItemThumbnailService itemThumbnailService;
+
+    @Autowired
+    private ItemCatalogSnapshot itemCatalogSnapshot;
+
+    @Autowired
+    private CatalogEpoch catalogEpoch;
+
+    @Autowired
+    private ExistenceIndex existenceIndex;
+
+    @AfterEach
+    public void tearDown() {
+        itemRepository.deleteAll(itemRepository.findAll().stream()
+            .filter(item -> TITLES.contains(item.getTitle()))
+            .collect(Collectors.toList()));
+        // Deleted through the repository, which the snapshot does not see
+        itemCatalogSnapshot.rebuild();
+    }
+
+    @Test
+    public void titleInsertedAfterTheCheckFailsItsRowOnly() throws Exception {
+        AtomicBoolean clashed = new AtomicBoolean();
+        // Once the titles of the batch are checked, and before the batch is flushed, an other transaction inserts one of them
+        ItemRepository clashingRepository = (ItemRepository) Proxy.newProxyInstance(ItemRepository.class.getClassLoader(),
+            new Class<?>[] { ItemRepository.class }, (proxy, method, args) -> {
+                if (method.getName().equals("flush") && clashed.compareAndSet(false, true)) {
+                    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+                    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                    transactionTemplate.execute(status ->
+                        itemRepository.saveAndFlush(new Item().title("CLASH 2").description("Concurrent").price(1.0).count(1)));
+                }
+                try {
+                    return method.invoke(itemRepository, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        ItemImportService itemImportService = new ItemImportService(clashingRepository, itemMapper, entityManager,
+            transactionManager, validator, objectMapper, itemSearchService, itemThumbnailService, itemCatalogSnapshot,
+            catalogEpoch, existenceIndex, new SimpleMeterRegistry());
+
+        String csv = "title,description,price,count\n" +
+            "CLASH 1,A description,10,1\n" +
+            "CLASH 2,A description,10,1\n" +
+            "CLASH 3,A description,10,1\n";
+        ItemImportResultDTO result = itemImportService.importItems(new StringReader(csv), FileFormat.CSV);
+
+        assertThat(clashed).isTrue();
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getErrors()).hasSize(1);
+        assertThat(result.getErrors().get(0).getLine()).isEqualTo(3);
+        assertThat(result.getErrors().get(0).getMessage()).isEqualTo("Title already exists");
+        assertThat(itemRepository.findTitlesByTitleIn(TITLES)).containsExactlyInAnyOrderElementsOf(TITLES);
+    }
+}
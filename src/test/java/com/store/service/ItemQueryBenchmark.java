@@ -0,0 +1,123 @@
+package com.store.service;
+
+import com.store.StoreApp;
+import com.store.domain.Item;
+import com.store.repository.ItemRepository;
+import com.store.service.dto.ItemCriteria;
+import com.store.service.dto.ItemDTO;
+import com.store.service.mapper.ItemMapper;
+
+import io.github.jhipster.service.filter.DoubleFilter;
+import io.github.jhipster.service.filter.IntegerFilter;
+import io.github.jhipster.service.filter.StringFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the {@link ItemQueryService} reads, served from the catalog snapshot and the results cache, against
+ * the same reads from the database through the {@link org.springframework.data.jpa.domain.Specification}s.
+ * <p>
+ * It is not part of the tests, and only compiles with the {@code benchmark} profile. Run it with:
+ * {@code ./mvnw -P-webpack,dev,benchmark test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath org.openjdk.jmh.Main ItemQueryBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemQueryBenchmark {
+
+    private static final int ITEMS = 200;
+
+    private ConfigurableApplicationContext context;
+
+    private ItemQueryService itemQueryService;
+
+    private ItemRepository itemRepository;
+
+    private ItemMapper itemMapper;
+
+    private final List<Item> items = new ArrayList<>();
+
+    private ItemCriteria criteria;
+
+    private Pageable page;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(StoreApp.class).properties("server.port=0").run();
+        itemQueryService = context.getBean(ItemQueryService.class);
+        itemRepository = context.getBean(ItemRepository.class);
+        itemMapper = context.getBean(ItemMapper.class);
+        for (int i = 0; i < ITEMS; i++) {
+            items.add(itemRepository.save(new Item().title("item " + i).description("item " + i).price((double) i).count(i % 100)));
+        }
+
+        criteria = new ItemCriteria();
+        StringFilter title = new StringFilter();
+        title.setContains("item 1");
+        criteria.setTitle(title);
+        DoubleFilter price = new DoubleFilter();
+        price.setGreaterThan(10D);
+        criteria.setPrice(price);
+        IntegerFilter count = new IntegerFilter();
+        count.setLessOrEqualThan(50);
+        criteria.setCount(count);
+        page = PageRequest.of(0, 20, Sort.by("price"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        itemRepository.deleteAll(items);
+        context.close();
+    }
+
+    @Benchmark
+    public Page<ItemDTO> databasePage() {
+        return itemRepository.findAll(itemQueryService.createSpecification(criteria), page)
+            .map(itemMapper::toSummaryDto);
+    }
+
+    @Benchmark
+    public Page<ItemDTO> servicePage() {
+        return itemQueryService.findByCriteria(criteria, page);
+    }
+
+    @Benchmark
+    public long databaseCount() {
+        return itemRepository.count(itemQueryService.createSpecification(criteria));
+    }
+
+    @Benchmark
+    public long serviceCount() {
+        return itemQueryService.countByCriteria(criteria);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ItemQueryBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.store.service;
+
+import com.store.repository.ItemRepository;
+import com.store.service.dto.ItemSearchResultDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the {@link ItemSearchService} inverted index.
+ */
+public class ItemSearchServiceTest {
+
+    private ItemRepository itemRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ItemSearchService itemSearchService;
+
+    @BeforeEach
+    public void setup() {
+        itemRepository = mock(ItemRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        itemSearchService = new ItemSearchService(itemRepository, meterRegistry);
+        when(itemRepository.streamAllSearchableFields()).thenReturn(Stream.of(
+            new Object[] {1L, "Red Chair", "A wooden chair, painted red"},
+            new Object[] {2L, "Red Table", "A table for the garden"},
+            new Object[] {3L, "Garden Chair", "A plastic chair, red or green"}
+        ));
+        itemSearchService.rebuild();
+    }
+
+    @Test
+    public void testSearchRanksTitleMatchesFirst() {
+        List<ItemSearchResultDTO> results = itemSearchService.search("red", 10);
+
+        assertThat(results).extracting(ItemSearchResultDTO::getId).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    public void testSearchRequiresAllWords() {
+        List<ItemSearchResultDTO> results = itemSearchService.search("garden chair", 10);
+
+        assertThat(results).extracting(ItemSearchResultDTO::getId).containsExactly(3L);
+    }
+
+    @Test
+    public void testSearchMatchesLastWordAsPrefix() {
+        List<ItemSearchResultDTO> results = itemSearchService.search("wooden ch", 10);
+
+        assertThat(results).extracting(ItemSearchResultDTO::getTitle).containsExactly("Red Chair");
+    }
+
+    @Test
+    public void testSearchWithoutWords() {
+        assertThat(itemSearchService.search(" ,; ", 10)).isEmpty();
+        assertThat(itemSearchService.search("sofa", 10)).isEmpty();
+    }
+
+    @Test
+    public void testSuggestOrdersByFrequency() {
+        assertThat(itemSearchService.suggest("G", 10)).containsExactly("garden", "green");
+        assertThat(itemSearchService.suggest("g", 1)).containsExactly("garden");
+    }
+
+    @Test
+    public void testIndexReplacesAndRemoveDeletes() {
+        itemSearchService.index(2L, "Blue Table", "A table for the garden");
+        assertThat(itemSearchService.search("red table", 10)).isEmpty();
+        assertThat(itemSearchService.search("blue", 10)).extracting(ItemSearchResultDTO::getId).containsExactly(2L);
+
+        itemSearchService.remove(2L);
+        assertThat(itemSearchService.search("table", 10)).isEmpty();
+        assertThat(itemSearchService.suggest("blu", 10)).isEmpty();
+        assertThat(itemSearchService.getDocumentCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testMetrics() {
+        assertThat(meterRegistry.get("store.item.search.index.documents").gauge().value()).isEqualTo(3);
+        assertThat(meterRegistry.get("store.item.search.index.terms").gauge().value()).isEqualTo(itemSearchService.getTermCount());
+        assertThat(meterRegistry.get("store.item.search.index.build").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testWritesDuringRebuildAreReplayed() {
+        when(itemRepository.streamAllSearchableFields()).thenReturn(Stream.of(
+            new Object[] {1L, "Red Chair", "A wooden chair, painted red"},
+            new Object[] {2L, "Red Table", "A table for the garden"}
+        ).peek(item -> {
+            if (item[0].equals(2L)) {
+                // Committed while the items are read
+                itemSearchService.index(4L, "Blue Sofa", "A sofa for the living room");
+                itemSearchService.remove(1L);
+            }
+        }));
+
+        itemSearchService.rebuild();
+
+        assertThat(itemSearchService.search("sofa", 10)).extracting(ItemSearchResultDTO::getId).containsExactly(4L);
+        assertThat(itemSearchService.search("red", 10)).extracting(ItemSearchResultDTO::getId).containsExactly(2L);
+        assertThat(itemSearchService.getDocumentCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,168 @@
+package com.store.service;
+
+import com.store.config.ApplicationProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the {@link LoadCoalescer}.
+ */
+public class LoadCoalescerTest {
+
+    private static final int WAITERS = 8;
+
+    private static final String THREAD_PREFIX = "load-coalescer-test-";
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private LoadCoalescer loadCoalescer;
+
+    private ExecutorService executor;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getCache().getCoalescing().setTimeout(Duration.ofSeconds(10));
+        loadCoalescer = new LoadCoalescer(applicationProperties, meterRegistry);
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(WAITERS + 1, task -> new Thread(task, THREAD_PREFIX + threads.incrementAndGet()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentLoadsShareTheLoadInFlight() throws Exception {
+        Future<String> first = executor.submit(() -> loadCoalescer.load("item", 1L, blockedLoad("loaded")));
+        awaitInFlight();
+        List<Future<String>> waiters = new ArrayList<>();
+        for (int i = 0; i < WAITERS; i++) {
+            waiters.add(executor.submit(() -> loadCoalescer.load("item", 1L, blockedLoad("other"))));
+        }
+        // An other key is not coalesced
+        assertThat(loadCoalescer.<String>load("item", 2L, () -> "two")).isEqualTo("two");
+
+        awaitWaiting(WAITERS);
+        release.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("loaded");
+        for (Future<String> waiter : waiters) {
+            assertThat(waiter.get(10, TimeUnit.SECONDS)).isEqualTo("loaded");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(count("executed")).isEqualTo(2);
+        assertThat(count("coalesced")).isEqualTo(WAITERS);
+
+        // The next load runs again
+        assertThat(loadCoalescer.<String>load("item", 1L, () -> "again")).isEqualTo("again");
+    }
+
+    @Test
+    public void loadsWaitingTooLongRunOnTheirOwn() throws Exception {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getCache().getCoalescing().setTimeout(Duration.ofMillis(50));
+        loadCoalescer = new LoadCoalescer(applicationProperties, meterRegistry);
+        executor.submit(() -> loadCoalescer.load("item", 1L, blockedLoad("loaded")));
+        awaitInFlight();
+
+        assertThat(loadCoalescer.<String>load("item", 1L, () -> "own")).isEqualTo("own");
+        assertThat(count("timeout")).isEqualTo(1);
+    }
+
+    @Test
+    public void failedLoadFailsItsWaiters() throws Exception {
+        Future<String> first = executor.submit(() -> loadCoalescer.<String>load("item", 1L, () -> {
+            blockedLoad("loaded").get();
+            throw new IllegalStateException("failed");
+        }));
+        awaitInFlight();
+        Future<String> waiter = executor.submit(() -> loadCoalescer.load("item", 1L, blockedLoad("other")));
+        awaitWaiting(1);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(10, TimeUnit.SECONDS)).hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> waiter.get(10, TimeUnit.SECONDS)).hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void loadsInReadWriteTransactionsRunOnTheirOwn() throws Exception {
+        executor.submit(() -> loadCoalescer.load("item", 1L, blockedLoad("loaded")));
+        awaitInFlight();
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThat(loadCoalescer.<String>load("item", 1L, () -> "own")).isEqualTo("own");
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        assertThat(count("coalesced")).isZero();
+    }
+
+    private Supplier<String> blockedLoad(String value) {
+        return () -> {
+            loads.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return value;
+        };
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        while (loads.get() == 0) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Wait for the loads to wait for the one in flight: their threads are all parked then, besides the one loading.
+     */
+    private void awaitWaiting(int waiters) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (countParkedThreads() < waiters + 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private long countParkedThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+            .filter(thread -> thread.getName().startsWith(THREAD_PREFIX))
+            .filter(thread -> Thread.State.TIMED_WAITING.equals(thread.getState()))
+            .count();
+    }
+
+    private double count(String result) {
+        return meterRegistry.find("store.load.coalescing").tag("result", result).counters().stream()
+            .mapToDouble(counter -> counter.count())
+            .sum();
+    }
+}
@@ -0,0 +1,185 @@
+package com.store.service;
+
+import com.store.StoreApp;
+import com.store.domain.Cart;
+import com.store.domain.Item;
+import com.store.domain.Order;
+import com.store.repository.CartRepository;
+import com.store.repository.ItemRepository;
+import com.store.repository.OrderRepository;
+import com.store.service.dto.CartDTO;
+import com.store.service.mapper.CartMapper;
+import com.store.web.rest.errors.BadRequestAlertException;
+import com.store.web.rest.errors.InsufficientStockException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Integration tests for {@link StockReservationService}, through {@link CartService#close}.
+ * <p>
+ * The tests are not transactional, so that each close commits, or rolls back, on its own.
+ */
+@SpringBootTest(classes = StoreApp.class)
+public class StockReservationServiceIT {
+
+    private static final int STOCK = 100;
+
+    private static final int CARTS = 300;
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CartMapper cartMapper;
+
+    private final List<Item> items = new ArrayList<>();
+
+    private final List<Cart> carts = new ArrayList<>();
+
+    private final List<Order> orders = new ArrayList<>();
+
+    @BeforeEach
+    public void init() {
+        items.clear();
+        carts.clear();
+        orders.clear();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        orderRepository.deleteAll(orders);
+        // By id, as the carts and items have new versions since
+        carts.forEach(cart -> cartRepository.deleteById(cart.getId()));
+        items.forEach(item -> itemRepository.deleteById(item.getId()));
+    }
+
+    @Test
+    public void assertThatConcurrentClosesNeverOversell() throws Exception {
+        Item item = createItem("stress", STOCK);
+        List<CartDTO> openCarts = new ArrayList<>();
+        for (int i = 0; i < CARTS; i++) {
+            openCarts.add(createCart(item, 1));
+        }
+
+        // Close every cart twice, from many threads at once
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 2 * CARTS; i++) {
+            CartDTO cart = openCarts.get(i % CARTS);
+            results.add(executor.submit(awaitThenClose(start, cart)));
+        }
+        start.countDown();
+        int closed = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(2, TimeUnit.MINUTES)) {
+                closed++;
+            }
+        }
+        executor.shutdown();
+
+        assertThat(closed).isEqualTo(STOCK);
+        assertThat(itemRepository.findById(item.getId()).get().getCount()).isZero();
+        assertThat(cartRepository.findAllById(ids(openCarts)).stream().filter(cart -> cart.getClosedAt() != null))
+            .hasSize(STOCK);
+    }
+
+    @Test
+    public void assertThatShortItemReservesNothing() {
+        Item inStock = createItem("in stock", 5);
+        Item shortOfStock = createItem("short of stock", 1);
+        CartDTO cart = createCart(inStock, 2);
+        addOrder(cart, shortOfStock, 2);
+
+        assertThatThrownBy(() -> cartService.close(cart)).isInstanceOf(InsufficientStockException.class);
+
+        assertThat(itemRepository.findById(inStock.getId()).get().getCount()).isEqualTo(5);
+        assertThat(itemRepository.findById(shortOfStock.getId()).get().getCount()).isEqualTo(1);
+        assertThat(cartRepository.findById(cart.getId()).get().getClosedAt()).isNull();
+    }
+
+    @Test
+    public void assertThatCartIsClosedOnlyOnce() {
+        Item item = createItem("closed once", 5);
+        CartDTO cart = createCart(item, 2);
+
+        cartService.close(cart);
+
+        assertThatThrownBy(() -> cartService.close(cart)).isInstanceOf(BadRequestAlertException.class);
+        assertThat(itemRepository.findById(item.getId()).get().getCount()).isEqualTo(3);
+    }
+
+    /**
+     * Close the cart like a client would: retrying on lock conflicts, and giving up on a business error.
+     */
+    private Callable<Boolean> awaitThenClose(CountDownLatch start, CartDTO cart) {
+        return () -> {
+            start.await();
+            while (true) {
+                try {
+                    cartService.close(cart);
+                    return true;
+                } catch (ConcurrencyFailureException e) {
+                    Thread.yield();
+                } catch (BadRequestAlertException e) {
+                    return false;
+                }
+            }
+        };
+    }
+
+    private Item createItem(String title, int count) {
+        Item item = itemRepository.saveAndFlush(new Item().title(title).description(title).price(1D).count(count));
+        items.add(item);
+        return item;
+    }
+
+    private CartDTO createCart(Item item, int quantity) {
+        Cart cart = cartRepository.saveAndFlush(new Cart().email("stress@localhost"));
+        carts.add(cart);
+        CartDTO cartDTO = cartMapper.toDto(cart);
+        addOrder(cartDTO, item, quantity);
+        return cartDTO;
+    }
+
+    private void addOrder(CartDTO cart, Item item, int quantity) {
+        Cart reference = new Cart();
+        reference.setId(cart.getId());
+        reference.setVersion(cart.getVersion());
+        orders.add(orderRepository.saveAndFlush(new Order().quantity(quantity).item(item).cart(reference)));
+    }
+
+    private static List<Long> ids(List<CartDTO> carts) {
+        List<Long> ids = new ArrayList<>();
+        carts.forEach(cart -> ids.add(cart.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,176 @@
+package com.store.service;
+
+import com.store.StoreApp;
+import com.store.config.ApplicationProperties;
+import com.store.domain.Cart;
+import com.store.domain.Item;
+import com.store.domain.Order;
+import com.store.domain.TicketOutboxEntry;
+import com.store.domain.enumeration.DeliveryStatus;
+import com.store.repository.CartRepository;
+import com.store.repository.ItemRepository;
+import com.store.repository.OrderRepository;
+import com.store.repository.TicketOutboxEntryRepository;
+import com.store.service.dto.CartDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.MailSendException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Integration tests for {@link TicketOutboxService}.
+ * <p>
+ * The tests are not transactional, as the dispatcher runs its own transactions.
+ */
+@SpringBootTest(classes = StoreApp.class)
+public class TicketOutboxServiceIT {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private TicketOutboxEntryRepository ticketOutboxEntryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private MailService mailService;
+
+    private TicketOutboxService ticketOutboxService;
+
+    private ApplicationProperties applicationProperties;
+
+    private Item item;
+
+    private Cart cart;
+
+    private Order order;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getTicketOutbox().setMaxAttempts(2);
+        ticketOutboxService = new TicketOutboxService(ticketOutboxEntryRepository, cartRepository, mailService,
+            transactionManager, applicationProperties, new SimpleMeterRegistry());
+
+        item = itemRepository.saveAndFlush(new Item().title("ticket").description("ticket").price(2.5).count(10));
+        order = new Order().quantity(2).item(item);
+        cart = cartRepository.saveAndFlush(new Cart().email("ticket@localhost").addOrder(order));
+        order = orderRepository.saveAndFlush(order);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        orderRepository.deleteById(order.getId());
+        cartRepository.deleteById(cart.getId());
+        itemRepository.deleteById(item.getId());
+    }
+
+    @Test
+    public void assertThatClosingACartQueuesItsTicket() {
+        CartDTO cartDTO = new CartDTO();
+        cartDTO.setId(cart.getId());
+        cartDTO.setEmail(cart.getEmail());
+
+        cartService.close(cartDTO);
+
+        List<TicketOutboxEntry> entries = ticketOutboxEntryRepository.findAllByCartId(cart.getId());
+        assertThat(entries).hasSize(1);
+        assertThat(entries.get(0).getStatus()).isEqualTo(DeliveryStatus.PENDING);
+        assertThat(entries.get(0).getAttempts()).isZero();
+    }
+
+    @Test
+    public void assertThatDispatchSendsTheTicket() throws Exception {
+        queueTicket();
+
+        ticketOutboxService.dispatch();
+
+        ArgumentCaptor<Cart> sent = ArgumentCaptor.forClass(Cart.class);
+        verify(mailService).sendTicket(sent.capture());
+        assertThat(sent.getValue().getId()).isEqualTo(cart.getId());
+        assertThat(sent.getValue().getTotal()).isEqualTo(5.0);
+        TicketOutboxEntry entry = ticketOutboxEntryRepository.findAllByCartId(cart.getId()).get(0);
+        assertThat(entry.getStatus()).isEqualTo(DeliveryStatus.SENT);
+        assertThat(entry.getAttempts()).isEqualTo(1);
+        assertThat(entry.getSentAt()).isNotNull();
+    }
+
+    @Test
+    public void assertThatFailedTicketIsRetriedThenGivenUp() throws Exception {
+        doThrow(new MailSendException("Mail server unreachable")).when(mailService).sendTicket(any());
+        TicketOutboxEntry entry = queueTicket();
+
+        Instant before = Instant.now();
+        ticketOutboxService.dispatch();
+
+        entry = ticketOutboxEntryRepository.findById(entry.getId()).get();
+        assertThat(entry.getStatus()).isEqualTo(DeliveryStatus.PENDING);
+        assertThat(entry.getAttempts()).isEqualTo(1);
+        assertThat(entry.getLastError()).isEqualTo("Mail server unreachable");
+        assertThat(entry.getNextAttemptAt()).isAfterOrEqualTo(before.plus(applicationProperties.getTicketOutbox().getInitialBackoff()));
+
+        // Not due yet
+        assertThat(ticketOutboxService.dispatchBatch()).isZero();
+
+        ticketOutboxEntryRepository.saveAndFlush(entry.nextAttemptAt(Instant.now()));
+        ticketOutboxService.dispatch();
+
+        entry = ticketOutboxEntryRepository.findById(entry.getId()).get();
+        assertThat(entry.getStatus()).isEqualTo(DeliveryStatus.FAILED);
+        assertThat(entry.getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    public void assertThatNothingIsSentWhenNothingIsDue() throws Exception {
+        ticketOutboxEntryRepository.saveAndFlush(new TicketOutboxEntry()
+            .cart(cart)
+            .status(DeliveryStatus.PENDING)
+            .attempts(0)
+            .createdAt(Instant.now())
+            .nextAttemptAt(Instant.now().plus(Duration.ofHours(1))));
+
+        ticketOutboxService.dispatch();
+
+        verify(mailService, never()).sendTicket(any());
+    }
+
+    private TicketOutboxEntry queueTicket() {
+        Instant now = Instant.now();
+        return ticketOutboxEntryRepository.saveAndFlush(new TicketOutboxEntry()
+            .cart(cart)
+            .status(DeliveryStatus.PENDING)
+            .attempts(0)
+            .createdAt(now)
+            .nextAttemptAt(now));
+    }
+}
@@ -1,22 +1,30 @@
 package com.store.service;
 
 import com.store.StoreApp;
+import com.store.config.ApplicationProperties;
 import com.store.config.Constants;
 import com.store.domain.User;
+import com.store.repository.AuthorityRepository;
+import com.store.repository.ItemRepository;
 import com.store.repository.UserRepository;
 import com.store.service.dto.UserDTO;
 import com.store.service.util.RandomUtil;
+import com.store.web.rest.errors.EmailAlreadyUsedException;
+import com.store.web.rest.errors.LoginAlreadyUsedException;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.auditing.AuditingHandler;
 import org.springframework.data.auditing.DateTimeProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
@@ -26,6 +34,7 @@ import java.util.Optional;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.when;
 
 /**
@@ -56,6 +65,24 @@ public class UserServiceIT {
     @Autowired
     private AuditingHandler auditingHandler;
 
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private AuthorityRepository authorityRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CacheWarmupService cacheWarmupService;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
     @Mock
     private DateTimeProvider dateTimeProvider;
 
@@ -196,4 +223,37 @@ public class UserServiceIT {
         assertThat(userRepository.findOneByLogin(DEFAULT_LOGIN)).isNotPresent();
     }
 
+
+    @Test
+    @Transactional
+    public void assertThatLoginUnknownToTheExistenceIndexIsAlreadyUsed() {
+        UserService userService = userServiceWithBuiltExistenceIndex();
+        // Written by another node, which the index did not hear from yet
+        userRepository.saveAndFlush(user);
+        UserDTO userDTO = new UserDTO(user);
+        userDTO.setEmail("other-" + DEFAULT_EMAIL);
+
+        assertThatThrownBy(() -> userService.registerUser(userDTO, "password")).isInstanceOf(LoginAlreadyUsedException.class);
+    }
+
+    @Test
+    @Transactional
+    public void assertThatEmailUnknownToTheExistenceIndexIsAlreadyUsed() {
+        UserService userService = userServiceWithBuiltExistenceIndex();
+        userRepository.saveAndFlush(user);
+        UserDTO userDTO = new UserDTO(user);
+        userDTO.setLogin("other-" + DEFAULT_LOGIN);
+
+        assertThatThrownBy(() -> userService.registerUser(userDTO, "password")).isInstanceOf(EmailAlreadyUsedException.class);
+    }
+
+    private UserService userServiceWithBuiltExistenceIndex() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getExistenceIndex().setEnabled(true);
+        applicationProperties.getExistenceIndex().setFalsePositiveRate(1e-9);
+        ExistenceIndex existenceIndex = new ExistenceIndex(userRepository, itemRepository, applicationProperties, new SimpleMeterRegistry());
+        existenceIndex.rebuild();
+        return new UserService(userRepository, passwordEncoder, authorityRepository, cacheManager, cacheWarmupService,
+            cacheInvalidationBus, existenceIndex);
+    }
 }
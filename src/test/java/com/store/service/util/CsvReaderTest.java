@@ -0,0 +1,43 @@
+package com.store.service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the {@link CsvReader} utility class.
+ */
+public class CsvReaderTest {
+
+    @Test
+    public void testReadRecords() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,b,c\r\n1,,\"x, \"\"y\"\"\"\n"));
+
+        assertThat(reader.readRecord()).containsExactly("a", "b", "c");
+        assertThat(reader.getLineNumber()).isEqualTo(1);
+        assertThat(reader.readRecord()).containsExactly("1", "", "x, \"y\"");
+        assertThat(reader.getLineNumber()).isEqualTo(2);
+        assertThat(reader.readRecord()).isNull();
+    }
+
+    @Test
+    public void testQuotedLineBreaks() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("\"first\nsecond\",1\nlast,2"));
+
+        assertThat(reader.readRecord()).containsExactly("first\nsecond", "1");
+        assertThat(reader.readRecord()).containsExactly("last", "2");
+        assertThat(reader.getLineNumber()).isEqualTo(3);
+        assertThat(reader.readRecord()).isNull();
+    }
+
+    @Test
+    public void testUnterminatedQuotedField() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("\"unterminated,1\n"));
+
+        assertThatThrownBy(reader::readRecord).isInstanceOf(IOException.class);
+    }
+}
@@ -17,6 +17,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
@@ -32,6 +33,8 @@ import java.util.List;
 import static com.store.web.rest.TestUtil.createFormattingConversionService;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.contains;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -194,7 +197,97 @@ public class CartResourceIT {
             .andExpect(jsonPath("$.[*].email").value(hasItem(DEFAULT_EMAIL.toString())))
             .andExpect(jsonPath("$.[*].closedAt").value(hasItem(DEFAULT_CLOSED_AT.toString())));
     }
+
+    @Test
+    @Transactional
+    public void exportCarts() throws Exception {
+        // Initialize the database
+        cartRepository.saveAndFlush(cart);
+        Cart otherCart = createEntity(em).email(UPDATED_EMAIL);
+        cartRepository.saveAndFlush(otherCart);
+
+        // Export the matching carts, as CSV by default
+        restCartMockMvc.perform(get("/api/carts/export?id.equals=" + cart.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/csv;charset=UTF-8"))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"carts.csv\""))
+            .andExpect(content().string("id,email,closedAt,total,lineCount\r\n"
+                + cart.getId() + "," + DEFAULT_EMAIL + "," + DEFAULT_CLOSED_AT + ",0.0,0\r\n"));
+
+        // Export them as newline delimited JSON
+        restCartMockMvc.perform(get("/api/carts/export?format=NDJSON&id.in=" + cart.getId() + "," + otherCart.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+            .andExpect(content().string(
+                "{\"id\":" + cart.getId() + ",\"email\":\"" + DEFAULT_EMAIL + "\",\"closedAt\":\"" + DEFAULT_CLOSED_AT
+                    + "\",\"total\":0.0,\"lineCount\":0,\"version\":" + cart.getVersion() + "}\n"
+                + "{\"id\":" + otherCart.getId() + ",\"email\":\"" + UPDATED_EMAIL + "\",\"closedAt\":\"" + DEFAULT_CLOSED_AT
+                    + "\",\"total\":0.0,\"lineCount\":0,\"version\":" + otherCart.getVersion() + "}\n"));
+    }
     
+    @Test
+    @Transactional
+    public void getAllCartsWithoutTotal() throws Exception {
+        // Initialize the database
+        cartRepository.saveAndFlush(cart);
+        Cart otherCart = createEntity(em).email(UPDATED_EMAIL);
+        cartRepository.saveAndFlush(otherCart);
+        String filter = "id.in=" + cart.getId() + "," + otherCart.getId() + "&sort=id,asc&size=1&total=false";
+
+        // Get the first page
+        restCartMockMvc.perform(get("/api/carts?" + filter + "&page=0"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string("X-Has-Next-Page", "true"))
+            .andExpect(jsonPath("$.[*].id").value(contains(cart.getId().intValue())));
+
+        // Get the last page
+        restCartMockMvc.perform(get("/api/carts?" + filter + "&page=1"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string("X-Has-Next-Page", "false"))
+            .andExpect(jsonPath("$.[*].id").value(contains(otherCart.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    public void getAllCartsWithKeysetPagination() throws Exception {
+        // Initialize the database
+        cartRepository.saveAndFlush(cart);
+        Cart otherCart = createEntity(em).email(UPDATED_EMAIL);
+        cartRepository.saveAndFlush(otherCart);
+        String filter = "id.in=" + cart.getId() + "," + otherCart.getId() + "&sort=email,asc&size=1";
+
+        // Get the first slice
+        String next = restCartMockMvc.perform(get("/api/carts?" + filter + "&after="))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string(HttpHeaders.LINK, endsWith("; rel=\"next\"")))
+            .andExpect(jsonPath("$.[*].id").value(contains(cart.getId().intValue())))
+            .andReturn().getResponse().getHeader(HttpHeaders.LINK);
+
+        // Get the last slice
+        restCartMockMvc.perform(get(next.substring(1, next.indexOf('>'))))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.LINK))
+            .andExpect(jsonPath("$.[*].id").value(contains(otherCart.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    public void getAllCartsWithInvalidKeysetPagination() throws Exception {
+        restCartMockMvc.perform(get("/api/carts?after=notacursor"))
+            .andExpect(status().isBadRequest());
+        restCartMockMvc.perform(get("/api/carts?sort=closedAt,asc&after="))
+            .andExpect(status().isBadRequest());
+        // The id breaks the ties in the direction of the sort only
+        restCartMockMvc.perform(get("/api/carts?sort=email,asc&sort=id,asc&after="))
+            .andExpect(status().isOk());
+        restCartMockMvc.perform(get("/api/carts?sort=email,asc&sort=id,desc&after="))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.invalidcursor"));
+    }
+
     @Test
     @Transactional
     public void getCart() throws Exception {
@@ -210,6 +303,68 @@ public class CartResourceIT {
             .andExpect(jsonPath("$.closedAt").value(DEFAULT_CLOSED_AT.toString()));
     }
 
+    @Test
+    @Transactional
+    public void getUnmodifiedCart() throws Exception {
+        // Initialize the database
+        cartRepository.saveAndFlush(cart);
+
+        // The ETag is the version of the cart
+        restCartMockMvc.perform(get("/api/carts/{id}", cart.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + cart.getVersion() + "\""))
+            .andExpect(jsonPath("$.version").value(cart.getVersion()));
+
+        // Get the cart with the ETag the client already holds
+        restCartMockMvc.perform(get("/api/carts/{id}", cart.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + cart.getVersion() + "\""))
+            .andExpect(status().isNotModified())
+            .andExpect(content().bytes(new byte[0]));
+
+        // An update gives the cart a new version
+        CartDTO cartDTO = cartMapper.toDto(cart);
+        cartDTO.setEmail(UPDATED_EMAIL);
+        cartDTO = cartService.save(cartDTO);
+        restCartMockMvc.perform(get("/api/carts/{id}", cart.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + (cartDTO.getVersion() - 1) + "\""))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + cartDTO.getVersion() + "\""))
+            .andExpect(jsonPath("$.email").value(UPDATED_EMAIL));
+    }
+
+    @Test
+    @Transactional
+    public void getCartFull() throws Exception {
+        // Initialize the database
+        Order order = OrderResourceIT.createEntity(em);
+        cart.addOrder(order.item(order.getItem().price(2.5)).quantity(2));
+        cartRepository.saveAndFlush(cart);
+        em.persist(order);
+        em.flush();
+        em.clear();
+
+        // Get the cart with its orders
+        restCartMockMvc.perform(get("/api/carts/{id}/full", cart.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.id").value(cart.getId().intValue()))
+            .andExpect(jsonPath("$.email").value(DEFAULT_EMAIL))
+            .andExpect(jsonPath("$.total").value(5.0))
+            .andExpect(jsonPath("$.lineCount").value(1))
+            .andExpect(jsonPath("$.lines.[0].id").value(order.getId().intValue()))
+            .andExpect(jsonPath("$.lines.[0].quantity").value(2))
+            .andExpect(jsonPath("$.lines.[0].total").value(5.0))
+            .andExpect(jsonPath("$.lines.[0].item.id").value(order.getItem().getId().intValue()))
+            .andExpect(jsonPath("$.lines.[0].item.image").doesNotExist());
+    }
+
+    @Test
+    @Transactional
+    public void getNonExistingCartFull() throws Exception {
+        restCartMockMvc.perform(get("/api/carts/{id}/full", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
     @Test
     @Transactional
     public void getAllCartsByEmailIsEqualToSomething() throws Exception {
@@ -407,6 +562,31 @@ public class CartResourceIT {
         assertThat(testCart.getClosedAt()).isEqualTo(UPDATED_CLOSED_AT);
     }
 
+    @Test
+    @Transactional
+    public void updateCartWithStaleVersion() throws Exception {
+        // Initialize the database
+        cartRepository.saveAndFlush(cart);
+        CartDTO staleCartDTO = cartMapper.toDto(cart);
+
+        // An update without version overwrites the cart, as before versions
+        CartDTO cartDTO = cartMapper.toDto(cart);
+        cartDTO.setEmail(UPDATED_EMAIL);
+        cartDTO.setVersion(null);
+        restCartMockMvc.perform(put("/api/carts")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(cartDTO)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.version").value(staleCartDTO.getVersion() + 1));
+
+        // An update of the version read before that one conflicts with it
+        staleCartDTO.setClosedAt(UPDATED_CLOSED_AT);
+        restCartMockMvc.perform(put("/api/carts")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(staleCartDTO)))
+            .andExpect(status().isConflict());
+    }
+
     @Test
     @Transactional
     public void updateNonExistingCart() throws Exception {
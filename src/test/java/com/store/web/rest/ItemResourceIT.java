@@ -1,35 +1,76 @@
 package com.store.web.rest;
 
 import com.store.StoreApp;
+import com.store.config.ApplicationProperties;
 import com.store.domain.Item;
 import com.store.repository.ItemRepository;
+import com.store.repository.ItemThumbnailRepository;
+import com.store.repository.OrderRepository;
+import com.store.repository.UserRepository;
 import com.store.service.ItemService;
 import com.store.service.dto.ItemDTO;
 import com.store.service.mapper.ItemMapper;
 import com.store.web.rest.errors.ExceptionTranslator;
 import com.store.service.dto.ItemCriteria;
 import com.store.service.ItemQueryService;
+import com.store.service.ItemImportService;
+import com.store.service.ItemSearchService;
+import com.store.service.CatalogEpoch;
+import com.store.service.ItemThumbnailService;
+import com.store.service.CacheWarmupService;
+import com.store.service.ExistenceIndex;
+import com.store.service.ItemCatalogSnapshot;
+import com.store.service.LoadCoalescer;
+import com.store.service.impl.ItemServiceImpl;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+import org.springframework.http.converter.ResourceRegionHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.test.context.transaction.AfterTransaction;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Base64Utils;
+import org.springframework.util.DigestUtils;
 import org.springframework.validation.Validator;
 
+import javax.imageio.ImageIO;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 import static com.store.web.rest.TestUtil.createFormattingConversionService;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -68,6 +109,24 @@ public class ItemResourceIT {
     @Autowired
     private ItemQueryService itemQueryService;
 
+    @Autowired
+    private ItemThumbnailService itemThumbnailService;
+
+    @Autowired
+    private ItemSearchService itemSearchService;
+
+    @Autowired
+    private ItemImportService itemImportService;
+
+    @Autowired
+    private CatalogEpoch catalogEpoch;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -83,6 +142,27 @@ public class ItemResourceIT {
     @Autowired
     private Validator validator;
 
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ItemThumbnailRepository itemThumbnailRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ItemCatalogSnapshot itemCatalogSnapshot;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheWarmupService cacheWarmupService;
+
+    @Autowired
+    private LoadCoalescer loadCoalescer;
+
     private MockMvc restItemMockMvc;
 
     private Item item;
@@ -90,12 +170,14 @@ public class ItemResourceIT {
     @BeforeEach
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final ItemResource itemResource = new ItemResource(itemService, itemQueryService);
+        cacheManager.getCache(ItemQueryService.RESULTS_CACHE).clear();
+        final ItemResource itemResource = new ItemResource(itemService, itemQueryService, itemThumbnailService, itemSearchService,
+            itemImportService);
         this.restItemMockMvc = MockMvcBuilders.standaloneSetup(itemResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
             .setConversionService(createFormattingConversionService())
-            .setMessageConverters(jacksonMessageConverter)
+            .setMessageConverters(jacksonMessageConverter, new ResourceHttpMessageConverter(), new ResourceRegionHttpMessageConverter())
             .setValidator(validator).build();
     }
 
@@ -137,6 +219,12 @@ public class ItemResourceIT {
         item = createEntity(em);
     }
 
+    @AfterTransaction
+    public void rebuildCatalogSnapshot() {
+        // Without the items the tests wrote through the repository, then rolled back
+        itemCatalogSnapshot.rebuild();
+    }
+
     @Test
     @Transactional
     public void createItem() throws Exception {
@@ -159,6 +247,7 @@ public class ItemResourceIT {
         assertThat(testItem.getCount()).isEqualTo(DEFAULT_COUNT);
         assertThat(testItem.getImage()).isEqualTo(DEFAULT_IMAGE);
         assertThat(testItem.getImageContentType()).isEqualTo(DEFAULT_IMAGE_CONTENT_TYPE);
+        assertThat(testItem.getImageHash()).isEqualTo(DigestUtils.md5DigestAsHex(DEFAULT_IMAGE));
     }
 
     @Test
@@ -181,6 +270,58 @@ public class ItemResourceIT {
         assertThat(itemList).hasSize(databaseSizeBeforeCreate);
     }
 
+    @Test
+    @Transactional
+    public void createItemWithExistingTitle() throws Exception {
+        itemRepository.saveAndFlush(item);
+        int databaseSizeBeforeCreate = itemRepository.findAll().size();
+
+        // An other item with the same title is rejected before it is written
+        ItemDTO itemDTO = itemMapper.toDto(createEntity(em));
+        restItemMockMvc.perform(post("/api/items")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(itemDTO)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.titleexists"));
+
+        // The item keeps its own title
+        ItemDTO updatedItemDTO = itemMapper.toDto(itemRepository.findById(item.getId()).get());
+        updatedItemDTO.setDescription(UPDATED_DESCRIPTION);
+        restItemMockMvc.perform(put("/api/items")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedItemDTO)))
+            .andExpect(status().isOk());
+
+        assertThat(itemRepository.findAll()).hasSize(databaseSizeBeforeCreate);
+    }
+
+    @Test
+    @Transactional
+    public void createItemWithTitleUnknownToTheExistenceIndex() throws Exception {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getExistenceIndex().setEnabled(true);
+        applicationProperties.getExistenceIndex().setFalsePositiveRate(1e-9);
+        ExistenceIndex existenceIndex = new ExistenceIndex(userRepository, itemRepository, applicationProperties, new SimpleMeterRegistry());
+        existenceIndex.rebuild();
+        // Written by another node, which the index did not hear from yet
+        itemRepository.saveAndFlush(item);
+        ItemServiceImpl itemService = new ItemServiceImpl(itemRepository, orderRepository, itemMapper, itemThumbnailService,
+            itemSearchService, catalogEpoch, itemCatalogSnapshot, entityManagerFactory, cacheWarmupService, loadCoalescer,
+            existenceIndex);
+        MockMvc restItemMockMvc = MockMvcBuilders.standaloneSetup(new ItemResource(itemService, itemQueryService,
+            itemThumbnailService, itemSearchService, itemImportService))
+            .setControllerAdvice(exceptionTranslator)
+            .setMessageConverters(jacksonMessageConverter)
+            .setValidator(validator).build();
+
+        // The unique constraint rejects it as the lookup would have
+        restItemMockMvc.perform(post("/api/items")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(itemMapper.toDto(createEntity(em)))))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.titleexists"));
+    }
+
 
     @Test
     @Transactional
@@ -263,6 +404,7 @@ public class ItemResourceIT {
     public void getAllItems() throws Exception {
         // Initialize the database
         itemRepository.saveAndFlush(item);
+        itemCatalogSnapshot.rebuild();
 
         // Get all the itemList
         restItemMockMvc.perform(get("/api/items?sort=id,desc"))
@@ -274,9 +416,233 @@ public class ItemResourceIT {
             .andExpect(jsonPath("$.[*].price").value(hasItem(DEFAULT_PRICE.doubleValue())))
             .andExpect(jsonPath("$.[*].count").value(hasItem(DEFAULT_COUNT)))
             .andExpect(jsonPath("$.[*].imageContentType").value(hasItem(DEFAULT_IMAGE_CONTENT_TYPE)))
-            .andExpect(jsonPath("$.[*].image").value(hasItem(Base64Utils.encodeToString(DEFAULT_IMAGE))));
+            .andExpect(jsonPath("$.[*].imageHash").value(hasItem(DigestUtils.md5DigestAsHex(DEFAULT_IMAGE))))
+            .andExpect(jsonPath("$.[*].imageUrl").value(hasItem("api/items/" + item.getId() + "/image?v=" + DigestUtils.md5DigestAsHex(DEFAULT_IMAGE))))
+            .andExpect(jsonPath("$.[*].image").value(hasItem(nullValue())));
+    }
+
+    @Test
+    @Transactional
+    public void exportItems() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(item);
+        Item otherItem = createEntity(em).title(UPDATED_TITLE).description("with, a \"comma\"");
+        itemRepository.saveAndFlush(otherItem);
+
+        // Export the items, with the quoted fields of the description
+        restItemMockMvc.perform(get("/api/items/export?id.in=" + item.getId() + "," + otherItem.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/csv;charset=UTF-8"))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"items.csv\""))
+            .andExpect(content().string("id,title,description,price,count,imageContentType,imageHash\r\n"
+                + item.getId() + "," + DEFAULT_TITLE + "," + DEFAULT_DESCRIPTION + "," + DEFAULT_PRICE + "," + DEFAULT_COUNT
+                + "," + DEFAULT_IMAGE_CONTENT_TYPE + "," + item.getImageHash() + "\r\n"
+                + otherItem.getId() + "," + UPDATED_TITLE + ",\"with, a \"\"comma\"\"\"," + DEFAULT_PRICE + "," + DEFAULT_COUNT
+                + "," + DEFAULT_IMAGE_CONTENT_TYPE + "," + otherItem.getImageHash() + "\r\n"));
+
+        // Export them as newline delimited JSON
+        restItemMockMvc.perform(get("/api/items/export?format=NDJSON&title.equals=" + UPDATED_TITLE))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"items.ndjson\""))
+            .andExpect(jsonPath("$.id").value(otherItem.getId().intValue()))
+            .andExpect(jsonPath("$.description").value("with, a \"comma\""));
     }
     
+    @Test
+    @Transactional
+    public void getAllItemsIsCachedUntilTheCatalogIsWritten() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(item);
+        itemCatalogSnapshot.rebuild();
+        double hits = meterRegistry.get("store.item.query.cache").tag("result", "hit").counter().count();
+
+        restItemMockMvc.perform(get("/api/items?sort=id,desc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(item.getId().intValue())));
+
+        // A write which bypasses the services is not seen, even once the snapshot is rebuilt: the page comes from the cache
+        Item other = itemRepository.saveAndFlush(createEntity(em).title(UPDATED_TITLE));
+        itemCatalogSnapshot.rebuild();
+        restItemMockMvc.perform(get("/api/items?sort=id,desc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(other.getId().intValue()))));
+        assertThat(meterRegistry.get("store.item.query.cache").tag("result", "hit").counter().count()).isEqualTo(hits + 1);
+
+        // A write through the services is seen by the next read
+        itemService.save(itemMapper.toDto(item));
+        restItemMockMvc.perform(get("/api/items?sort=id,desc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(other.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    public void getItemFacets() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(createEntity(em).title("FACET 1").price(5D).count(0));
+        itemRepository.saveAndFlush(createEntity(em).title("FACET 2").price(10D).count(3));
+        itemRepository.saveAndFlush(createEntity(em).title("FACET 3").price(30D).count(1));
+        itemRepository.saveAndFlush(createEntity(em).title("FACET 4").price(250D).count(0));
+
+        // Get the facets of the matching items, on the default price breaks
+        restItemMockMvc.perform(get("/api/items/facets?title.contains=FACET"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.total").value(4))
+            .andExpect(jsonPath("$.inStock").value(2))
+            .andExpect(jsonPath("$.outOfStock").value(2))
+            .andExpect(jsonPath("$.priceRanges[0].from").value(nullValue()))
+            .andExpect(jsonPath("$.priceRanges[0].to").value(10D))
+            .andExpect(jsonPath("$.priceRanges[3].from").value(50D))
+            .andExpect(jsonPath("$.priceRanges[3].to").value(100D))
+            .andExpect(jsonPath("$.priceRanges[4].from").value(100D))
+            .andExpect(jsonPath("$.priceRanges[4].to").value(nullValue()))
+            .andExpect(jsonPath("$.priceRanges.[*].count").value(contains(1, 1, 1, 0, 1)));
+
+        // Get the facets on other price breaks, given in any order, and further filtered
+        restItemMockMvc.perform(get("/api/items/facets?title.contains=FACET&price.greaterThan=5&priceBreaks=100,20"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(3))
+            .andExpect(jsonPath("$.inStock").value(2))
+            .andExpect(jsonPath("$.outOfStock").value(1))
+            .andExpect(jsonPath("$.priceRanges[1].from").value(20D))
+            .andExpect(jsonPath("$.priceRanges[1].to").value(100D))
+            .andExpect(jsonPath("$.priceRanges.[*].count").value(contains(1, 1, 1)));
+
+        // Get the facets of no item
+        restItemMockMvc.perform(get("/api/items/facets?title.equals=NOFACET"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(0))
+            .andExpect(jsonPath("$.inStock").value(0))
+            .andExpect(jsonPath("$.priceRanges.[*].count").value(contains(0, 0, 0, 0, 0)));
+    }
+
+    @Test
+    @Transactional
+    public void getItemFacetsWithTooManyPriceBreaks() throws Exception {
+        String priceBreaks = IntStream.rangeClosed(0, ItemQueryService.MAX_PRICE_BREAKS)
+            .mapToObj(Integer::toString)
+            .collect(Collectors.joining(","));
+
+        restItemMockMvc.perform(get("/api/items/facets?priceBreaks=" + priceBreaks))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void catalogEpochAdvancesOnceTheWriteCompletes() {
+        long epoch = catalogEpoch.get();
+
+        itemService.delete(itemService.save(itemMapper.toDto(item)).getId());
+
+        assertThat(catalogEpoch.get()).isEqualTo(epoch + 2);
+        assertThat(catalogEpoch.isWrittenInTransaction()).isFalse();
+    }
+
+    @Test
+    @Transactional
+    public void getAllItemsWithFields() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(item);
+
+        // Get only the grid columns of the itemList
+        restItemMockMvc.perform(get("/api/items?sort=id,desc&fields=title,price,count"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(header().string("X-Total-Count", notNullValue()))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(item.getId().intValue())))
+            .andExpect(jsonPath("$.[*].title").value(hasItem(DEFAULT_TITLE)))
+            .andExpect(jsonPath("$.[*].price").value(hasItem(DEFAULT_PRICE.doubleValue())))
+            .andExpect(jsonPath("$.[*].count").value(hasItem(DEFAULT_COUNT)))
+            .andExpect(jsonPath("$.[*].version").value(hasItem(item.getVersion())))
+            .andExpect(jsonPath("$.[*].description").value(everyItem(nullValue())))
+            .andExpect(jsonPath("$.[*].imageContentType").value(everyItem(nullValue())))
+            .andExpect(jsonPath("$.[*].image").value(everyItem(nullValue())));
+    }
+
+    @Test
+    @Transactional
+    public void getAllItemsWithFieldsByTitleIsEqualToSomething() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(item);
+
+        // Get the projected itemList where title equals to DEFAULT_TITLE
+        restItemMockMvc.perform(get("/api/items?sort=id,desc&fields=title&title.equals=" + DEFAULT_TITLE))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(item.getId().intValue())))
+            .andExpect(jsonPath("$.[*].title").value(hasItem(DEFAULT_TITLE)));
+
+        // Get the projected itemList where title equals to UPDATED_TITLE
+        restItemMockMvc.perform(get("/api/items?sort=id,desc&fields=title&title.equals=" + UPDATED_TITLE))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isArray())
+            .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    @Transactional
+    public void getAllItemsWithUnknownField() throws Exception {
+        restItemMockMvc.perform(get("/api/items?fields=title,image"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void getAllItemsWithoutTotal() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(item);
+        Item otherItem = createEntity(em).title(UPDATED_TITLE);
+        itemRepository.saveAndFlush(otherItem);
+        String filter = "id.in=" + item.getId() + "," + otherItem.getId() + "&sort=id,asc&size=1&total=false&fields=title";
+
+        // Get the first page
+        restItemMockMvc.perform(get("/api/items?" + filter + "&page=0"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string("X-Has-Next-Page", "true"))
+            .andExpect(jsonPath("$.[*].id").value(contains(item.getId().intValue())));
+
+        // Get the last page
+        restItemMockMvc.perform(get("/api/items?" + filter + "&page=1"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string("X-Has-Next-Page", "false"))
+            .andExpect(jsonPath("$.[*].id").value(contains(otherItem.getId().intValue())))
+            .andExpect(jsonPath("$.[*].title").value(contains(UPDATED_TITLE)))
+            .andExpect(jsonPath("$.[*].price").value(everyItem(nullValue())));
+    }
+
+    @Test
+    @Transactional
+    public void getAllItemsWithKeysetPagination() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(item);
+        Item otherItem = createEntity(em).title(UPDATED_TITLE).price(DEFAULT_PRICE);
+        itemRepository.saveAndFlush(otherItem);
+        String filter = "id.in=" + item.getId() + "," + otherItem.getId() + "&sort=price,asc&size=1";
+
+        // Get the first slice
+        String next = restItemMockMvc.perform(get("/api/items?" + filter + "&after="))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string(HttpHeaders.LINK, endsWith("; rel=\"next\"")))
+            .andExpect(jsonPath("$.[*].id").value(contains(item.getId().intValue())))
+            .andExpect(jsonPath("$.[*].image").value(everyItem(nullValue())))
+            .andReturn().getResponse().getHeader(HttpHeaders.LINK);
+
+        // Get the last slice
+        restItemMockMvc.perform(get(next.substring(1, next.indexOf('>'))))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.LINK))
+            .andExpect(jsonPath("$.[*].id").value(contains(otherItem.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    public void getAllItemsWithKeysetPaginationAndFields() throws Exception {
+        restItemMockMvc.perform(get("/api/items?after=&fields=title"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void getItem() throws Exception {
@@ -296,6 +662,306 @@ public class ItemResourceIT {
             .andExpect(jsonPath("$.image").value(Base64Utils.encodeToString(DEFAULT_IMAGE)));
     }
 
+    @Test
+    @Transactional
+    public void getUnmodifiedItem() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(item);
+
+        // The ETag is the version of the item
+        restItemMockMvc.perform(get("/api/items/{id}", item.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + item.getVersion() + "\""))
+            .andExpect(jsonPath("$.version").value(item.getVersion()));
+
+        // Get the item with the ETag the client already holds
+        restItemMockMvc.perform(get("/api/items/{id}", item.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + item.getVersion() + "\""))
+            .andExpect(status().isNotModified())
+            .andExpect(content().bytes(new byte[0]));
+
+        // An update gives the item a new version
+        ItemDTO itemDTO = itemMapper.toDto(item);
+        itemDTO.setTitle(UPDATED_TITLE);
+        itemDTO = itemService.save(itemDTO);
+        restItemMockMvc.perform(get("/api/items/{id}", item.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + (itemDTO.getVersion() - 1) + "\""))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + itemDTO.getVersion() + "\""))
+            .andExpect(jsonPath("$.title").value(UPDATED_TITLE));
+    }
+
+    @Test
+    @Transactional
+    public void getItemChecksTheVersionOnlyForConditionalRequests() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(item);
+        AtomicInteger versionLookups = new AtomicInteger();
+        ItemService countingItemService = (ItemService) Proxy.newProxyInstance(ItemService.class.getClassLoader(),
+            new Class<?>[] { ItemService.class }, (proxy, method, args) -> {
+                if (method.getName().equals("findVersion")) {
+                    versionLookups.incrementAndGet();
+                }
+                try {
+                    return method.invoke(itemService, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        MockMvc restItemMockMvc = MockMvcBuilders.standaloneSetup(new ItemResource(countingItemService, itemQueryService,
+            itemThumbnailService, itemSearchService, itemImportService))
+            .setControllerAdvice(exceptionTranslator)
+            .setMessageConverters(jacksonMessageConverter)
+            .setValidator(validator).build();
+
+        // The ETag of an unconditional request comes from the item loaded
+        restItemMockMvc.perform(get("/api/items/{id}", item.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + item.getVersion() + "\""));
+        assertThat(versionLookups).hasValue(0);
+
+        // A conditional request checks the version before loading the item
+        restItemMockMvc.perform(get("/api/items/{id}", item.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + item.getVersion() + "\""))
+            .andExpect(status().isNotModified());
+        assertThat(versionLookups).hasValue(1);
+    }
+
+    @Test
+    @Transactional
+    public void getUnmodifiedItems() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(item);
+
+        String eTag = restItemMockMvc.perform(get("/api/items?sort=id,desc"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).isNotNull();
+
+        // Get the items with the ETag the client already holds
+        restItemMockMvc.perform(get("/api/items?sort=id,desc").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().bytes(new byte[0]));
+
+        // Other parameters give another list
+        restItemMockMvc.perform(get("/api/items?sort=id,asc").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk());
+
+        // The projected slices have their own ETag too
+        String filter = "/api/items?id.equals=" + item.getId() + "&fields=title&total=false";
+        String projectedETag = restItemMockMvc.perform(get(filter))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        restItemMockMvc.perform(get(filter).header(HttpHeaders.IF_NONE_MATCH, projectedETag))
+            .andExpect(status().isNotModified());
+
+        // An update of a matching item gives the lists a new ETag
+        ItemDTO itemDTO = itemMapper.toDto(item);
+        itemDTO.setTitle(UPDATED_TITLE);
+        itemService.save(itemDTO);
+        restItemMockMvc.perform(get("/api/items?sort=id,desc").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+            .andExpect(jsonPath("$.[*].title").value(hasItem(UPDATED_TITLE)));
+        restItemMockMvc.perform(get(filter).header(HttpHeaders.IF_NONE_MATCH, projectedETag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(projectedETag)));
+    }
+
+    @Test
+    @Transactional
+    public void getItemsById() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(item);
+        Item other = itemRepository.saveAndFlush(createEntity(em).title(UPDATED_TITLE));
+
+        // Get the items in the order of the ids, skipping the duplicates and the missing ones
+        restItemMockMvc.perform(get("/api/items/batch?ids={ids}", other.getId() + "," + Long.MAX_VALUE + "," + item.getId() + "," + other.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[*].id").value(contains(other.getId().intValue(), item.getId().intValue())))
+            .andExpect(jsonPath("$.[*].title").value(contains(UPDATED_TITLE, DEFAULT_TITLE)))
+            .andExpect(jsonPath("$.[*].image").value(everyItem(nullValue())));
+    }
+
+    @Test
+    @Transactional
+    public void getItemsByIdWithTooManyIds() throws Exception {
+        String ids = LongStream.rangeClosed(0, ItemResource.MAX_BATCH_SIZE)
+            .mapToObj(Long::toString)
+            .collect(Collectors.joining(","));
+
+        restItemMockMvc.perform(get("/api/items/batch?ids=" + ids))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void getItemImage() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(item);
+
+        // Get the image of the item
+        restItemMockMvc.perform(get("/api/items/{id}/image", item.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(DEFAULT_IMAGE_CONTENT_TYPE))
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + DigestUtils.md5DigestAsHex(DEFAULT_IMAGE) + "\""))
+            .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+            .andExpect(content().bytes(DEFAULT_IMAGE));
+    }
+
+    @Test
+    @Transactional
+    public void getItemImageRange() throws Exception {
+        // Initialize the database
+        item.setImage(new byte[] {1, 2, 3, 4, 5});
+        itemRepository.saveAndFlush(item);
+
+        // Get the second and third bytes of the image
+        restItemMockMvc.perform(get("/api/items/{id}/image", item.getId())
+            .header(HttpHeaders.RANGE, "bytes=1-2"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1-2/5"))
+            .andExpect(content().bytes(new byte[] {2, 3}));
+    }
+
+    @Test
+    @Transactional
+    public void getUnmodifiedItemImage() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(item);
+
+        // Get the image with the ETag the client already holds
+        restItemMockMvc.perform(get("/api/items/{id}/image", item.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + DigestUtils.md5DigestAsHex(DEFAULT_IMAGE) + "\""))
+            .andExpect(status().isNotModified())
+            .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    @Transactional
+    public void getNonExistingItemImage() throws Exception {
+        // Get the image of an item which does not exist
+        restItemMockMvc.perform(get("/api/items/{id}/image", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+
+        // Get the image of an item which has none
+        item.setImage(null);
+        item.setImageContentType(null);
+        itemRepository.saveAndFlush(item);
+        restItemMockMvc.perform(get("/api/items/{id}/image", item.getId()))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void getItemThumbnail() throws Exception {
+        // Initialize the database with an item having a 400x200 image
+        ByteArrayOutputStream image = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 200, BufferedImage.TYPE_INT_ARGB), "png", image);
+        item.setImage(image.toByteArray());
+        item.setImageContentType("image/png");
+        itemRepository.saveAndFlush(item);
+        itemThumbnailService.createThumbnails(item.getImage());
+
+        // Get the 64 pixels thumbnail of the image
+        byte[] thumbnail = restItemMockMvc.perform(get("/api/item-thumbnails/{hash}/{size}", item.getImageHash(), 64))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("image/png"))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+            .andReturn().getResponse().getContentAsByteArray();
+        BufferedImage result = ImageIO.read(new ByteArrayInputStream(thumbnail));
+        assertThat(result.getWidth()).isEqualTo(64);
+        assertThat(result.getHeight()).isEqualTo(32);
+    }
+
+    @Test
+    @Transactional
+    public void thumbnailsOfUnusedImagesAreDeleted() throws Exception {
+        // Initialize the database with two items having the same image
+        ByteArrayOutputStream image = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 200, BufferedImage.TYPE_INT_ARGB), "png", image);
+        item.setImage(image.toByteArray());
+        item.setImageContentType("image/png");
+        itemRepository.saveAndFlush(item);
+        Item other = itemRepository.saveAndFlush(createEntity(em).title(UPDATED_TITLE).image(image.toByteArray()).imageContentType("image/png"));
+        itemThumbnailService.createThumbnails(item.getImage());
+        String hash = item.getImageHash();
+
+        // Replace the image of an item, the other one still has it
+        ItemDTO itemDTO = itemMapper.toDto(itemRepository.findById(item.getId()).get());
+        itemDTO.setImage(UPDATED_IMAGE);
+        itemDTO.setImageContentType(UPDATED_IMAGE_CONTENT_TYPE);
+        restItemMockMvc.perform(put("/api/items")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(itemDTO)))
+            .andExpect(status().isOk());
+        assertThat(itemThumbnailRepository.findSizesByHash(hash)).containsExactlyInAnyOrder(64, 256);
+
+        // Delete the other item, the image is no longer used
+        restItemMockMvc.perform(delete("/api/items/{id}", other.getId()))
+            .andExpect(status().isNoContent());
+        assertThat(itemThumbnailRepository.findSizesByHash(hash)).isEmpty();
+    }
+
+    @Test
+    @Transactional
+    public void getPendingItemThumbnail() throws Exception {
+        // Initialize the database, without generating the thumbnails
+        itemRepository.saveAndFlush(item);
+
+        // Get a thumbnail which is not generated yet
+        restItemMockMvc.perform(get("/api/item-thumbnails/{hash}/{size}", item.getImageHash(), 64))
+            .andExpect(status().isTemporaryRedirect())
+            .andExpect(redirectedUrl("/api/items/" + item.getId() + "/image"));
+
+        // Get a thumbnail of an unknown image
+        restItemMockMvc.perform(get("/api/item-thumbnails/{hash}/{size}", "unknown", 64))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void searchItem() throws Exception {
+        // Initialize the index, outside of any transaction
+        Long id = Long.MAX_VALUE - 1;
+        itemSearchService.index(id, "Blue Mug", "A large blue mug for coffee");
+
+        try {
+            // Search the item, the last word being a prefix
+            restItemMockMvc.perform(get("/api/_search/items?query=blue cof"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(jsonPath("$.[*].id").value(hasItem(id)))
+                .andExpect(jsonPath("$.[*].title").value(hasItem("Blue Mug")));
+
+            // Complete a prefix
+            restItemMockMvc.perform(get("/api/_search/items/suggest?prefix=Mu"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(hasItem("mug")));
+        } finally {
+            itemSearchService.remove(id);
+        }
+
+        // Search the removed item
+        restItemMockMvc.perform(get("/api/_search/items?query=blue mug"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(id))));
+    }
+
+    @Test
+    public void searchItemWithInvalidSize() throws Exception {
+        restItemMockMvc.perform(get("/api/_search/items?query=blue&size=-1"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.invalidsearchsize"));
+
+        restItemMockMvc.perform(get("/api/_search/items?query=blue&size=" + (ItemResource.MAX_SEARCH_SIZE + 1)))
+            .andExpect(status().isBadRequest());
+
+        restItemMockMvc.perform(get("/api/_search/items/suggest?prefix=bl&size=0"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.invalidsearchsize"));
+    }
+
     @Test
     @Transactional
     public void getAllItemsByTitleIsEqualToSomething() throws Exception {
@@ -482,6 +1148,8 @@ public class ItemResourceIT {
      * Executes the search, and checks that the default entity is returned.
      */
     private void defaultItemShouldBeFound(String filter) throws Exception {
+        // The item was written through the repository, which the snapshot does not see
+        itemCatalogSnapshot.rebuild();
         restItemMockMvc.perform(get("/api/items?sort=id,desc&" + filter))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
@@ -491,7 +1159,9 @@ public class ItemResourceIT {
             .andExpect(jsonPath("$.[*].price").value(hasItem(DEFAULT_PRICE.doubleValue())))
             .andExpect(jsonPath("$.[*].count").value(hasItem(DEFAULT_COUNT)))
             .andExpect(jsonPath("$.[*].imageContentType").value(hasItem(DEFAULT_IMAGE_CONTENT_TYPE)))
-            .andExpect(jsonPath("$.[*].image").value(hasItem(Base64Utils.encodeToString(DEFAULT_IMAGE))));
+            .andExpect(jsonPath("$.[*].imageHash").value(hasItem(DigestUtils.md5DigestAsHex(DEFAULT_IMAGE))))
+            .andExpect(jsonPath("$.[*].imageUrl").value(hasItem("api/items/" + item.getId() + "/image?v=" + DigestUtils.md5DigestAsHex(DEFAULT_IMAGE))))
+            .andExpect(jsonPath("$.[*].image").value(hasItem(nullValue())));
 
         // Check, that the count call also returns 1
         restItemMockMvc.perform(get("/api/items/count?sort=id,desc&" + filter))
@@ -504,6 +1174,7 @@ public class ItemResourceIT {
      * Executes the search, and checks that the default entity is not returned.
      */
     private void defaultItemShouldNotBeFound(String filter) throws Exception {
+        itemCatalogSnapshot.rebuild();
         restItemMockMvc.perform(get("/api/items?sort=id,desc&" + filter))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
@@ -526,6 +1197,70 @@ public class ItemResourceIT {
             .andExpect(status().isNotFound());
     }
 
+    @Test
+    @Transactional
+    public void importItemsFromCsv() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(item);
+        int databaseSizeBeforeImport = itemRepository.findAll().size();
+
+        String csv = "Title,Price,Description,Count\r\n" +
+            "IMPORT 1,10.5,\"A description, with a comma\nand a line break\",3\r\n" +
+            "IMPORT 2,abc,A description,3\r\n" +
+            "IMPORT 3,20,A description,4\r\n" +
+            "\r\n" +
+            "IMPORT 3,20,A description,4\r\n" +
+            DEFAULT_TITLE + ",20,A description,4\r\n" +
+            "IMPORT 4,-1,A description,4\r\n";
+        restItemMockMvc.perform(post("/api/items/import")
+            .contentType("text/csv")
+            .content(csv))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(2))
+            .andExpect(jsonPath("$.failed").value(4))
+            .andExpect(jsonPath("$.rowsPerSecond").value(greaterThan(0D)))
+            .andExpect(jsonPath("$.errors.[*].line").value(containsInAnyOrder(4, 7, 8, 9)))
+            .andExpect(jsonPath("$.errors[?(@.line == 4)].message").value(contains("price: invalid number abc")))
+            .andExpect(jsonPath("$.errors[?(@.line == 7)].message").value(contains("Duplicate title in the file")))
+            .andExpect(jsonPath("$.errors[?(@.line == 8)].message").value(contains("Title already exists")))
+            .andExpect(jsonPath("$.errors[?(@.line == 9)].message").value(contains("price: must be greater than or equal to 0")));
+
+        // Validate the imported items in the database
+        List<Item> itemList = itemRepository.findAll();
+        assertThat(itemList).hasSize(databaseSizeBeforeImport + 2);
+        assertThat(itemList).filteredOn(imported -> imported.getTitle().equals("IMPORT 1"))
+            .extracting(Item::getDescription, Item::getPrice, Item::getCount)
+            .containsExactly(tuple("A description, with a comma\nand a line break", 10.5, 3));
+    }
+
+    @Test
+    @Transactional
+    public void importItemsFromNdjson() throws Exception {
+        int databaseSizeBeforeImport = itemRepository.findAll().size();
+
+        String ndjson = "{\"title\":\"IMPORT 1\",\"description\":\"A description\",\"price\":1,\"count\":2}\n" +
+            "{\"title\":\"IMPORT 2\",\n" +
+            "{\"id\":1,\"title\":\"IMPORT 3\",\"description\":\"A description\",\"price\":1,\"count\":2}\n";
+        restItemMockMvc.perform(post("/api/items/import")
+            .contentType("application/x-ndjson")
+            .content(ndjson))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(1))
+            .andExpect(jsonPath("$.failed").value(2))
+            .andExpect(jsonPath("$.errors.[*].line").value(contains(2, 3)));
+
+        assertThat(itemRepository.findAll()).hasSize(databaseSizeBeforeImport + 1);
+    }
+
+    @Test
+    @Transactional
+    public void importItemsWithUnknownColumn() throws Exception {
+        restItemMockMvc.perform(post("/api/items/import")
+            .contentType("text/csv")
+            .content("title,description,price,count,color\r\n"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void updateItem() throws Exception {
@@ -562,6 +1297,32 @@ public class ItemResourceIT {
         assertThat(testItem.getCount()).isEqualTo(UPDATED_COUNT);
         assertThat(testItem.getImage()).isEqualTo(UPDATED_IMAGE);
         assertThat(testItem.getImageContentType()).isEqualTo(UPDATED_IMAGE_CONTENT_TYPE);
+        assertThat(testItem.getImageHash()).isEqualTo(DigestUtils.md5DigestAsHex(UPDATED_IMAGE));
+    }
+
+    @Test
+    @Transactional
+    public void updateItemWithStaleVersion() throws Exception {
+        // Initialize the database
+        itemRepository.saveAndFlush(item);
+        ItemDTO staleItemDTO = itemMapper.toDto(item);
+
+        // An update without version overwrites the item, as before versions
+        ItemDTO itemDTO = itemMapper.toDto(item);
+        itemDTO.setTitle(UPDATED_TITLE);
+        itemDTO.setVersion(null);
+        restItemMockMvc.perform(put("/api/items")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(itemDTO)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.version").value(staleItemDTO.getVersion() + 1));
+
+        // An update of the version read before that one conflicts with it
+        staleItemDTO.setDescription(UPDATED_DESCRIPTION);
+        restItemMockMvc.perform(put("/api/items")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(staleItemDTO)))
+            .andExpect(status().isConflict());
     }
 
     @Test
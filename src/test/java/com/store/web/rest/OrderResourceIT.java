@@ -5,19 +5,25 @@ import com.store.domain.Order;
 import com.store.domain.Cart;
 import com.store.domain.Item;
 import com.store.repository.OrderRepository;
+import com.store.service.ItemService;
 import com.store.service.OrderService;
+import com.store.service.dto.ItemDTO;
 import com.store.service.dto.OrderDTO;
+import com.store.service.dto.OrderLinesDTO;
 import com.store.service.mapper.OrderMapper;
 import com.store.web.rest.errors.ExceptionTranslator;
 import com.store.service.dto.OrderCriteria;
 import com.store.service.OrderQueryService;
+import com.store.service.mapper.ItemMapper;
 
+import org.hibernate.Session;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
@@ -26,11 +32,15 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.Validator;
 
 import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static com.store.web.rest.TestUtil.createFormattingConversionService;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.contains;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -55,6 +65,12 @@ public class OrderResourceIT {
     @Autowired
     private OrderQueryService orderQueryService;
 
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private ItemMapper itemMapper;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -226,7 +242,96 @@ public class OrderResourceIT {
             .andExpect(jsonPath("$.[*].id").value(hasItem(order.getId().intValue())))
             .andExpect(jsonPath("$.[*].quantity").value(hasItem(DEFAULT_QUANTITY)));
     }
+
+    @Test
+    @Transactional
+    public void getAllOrdersLoadsNoEntity() throws Exception {
+        // Initialize the database
+        orderRepository.saveAndFlush(order);
+        em.clear();
+
+        // Get the orders of the cart and item, sorted on the title of the item
+        restOrderMockMvc.perform(get("/api/orders?sort=item.title,asc&cartId.equals=" + order.getCart().getId()
+                + "&itemId.equals=" + order.getItem().getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(order.getId().intValue()))
+            .andExpect(jsonPath("$.[0].quantity").value(DEFAULT_QUANTITY))
+            .andExpect(jsonPath("$.[0].cartId").value(order.getCart().getId().intValue()))
+            .andExpect(jsonPath("$.[0].itemId").value(order.getItem().getId().intValue()))
+            .andExpect(jsonPath("$.[0].itemTitle").value(order.getItem().getTitle()));
+
+        // Validate only columns were read
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    @Transactional
+    public void exportOrders() throws Exception {
+        // Initialize the database
+        orderRepository.saveAndFlush(order);
+
+        // Export the orders of the cart
+        restOrderMockMvc.perform(get("/api/orders/export?cartId.equals=" + order.getCart().getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/csv;charset=UTF-8"))
+            .andExpect(content().string("id,quantity,cartId,itemId,itemTitle\r\n"
+                + order.getId() + "," + DEFAULT_QUANTITY + "," + order.getCart().getId() + "," + order.getItem().getId()
+                + "," + order.getItem().getTitle() + "\r\n"));
+
+        // Export the orders of no cart: only the header is written
+        restOrderMockMvc.perform(get("/api/orders/export?cartId.equals=" + Long.MAX_VALUE))
+            .andExpect(status().isOk())
+            .andExpect(content().string("id,quantity,cartId,itemId,itemTitle\r\n"));
+    }
     
+    @Test
+    @Transactional
+    public void getAllOrdersWithoutTotal() throws Exception {
+        // Initialize the database
+        orderRepository.saveAndFlush(order);
+        Order otherOrder = createEntity(em);
+        orderRepository.saveAndFlush(otherOrder);
+        String filter = "id.in=" + order.getId() + "," + otherOrder.getId() + "&sort=id,asc&size=1&total=false";
+
+        // Get the first page
+        restOrderMockMvc.perform(get("/api/orders?" + filter + "&page=0"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string("X-Has-Next-Page", "true"))
+            .andExpect(jsonPath("$.[*].id").value(contains(order.getId().intValue())));
+
+        // Get the last page
+        restOrderMockMvc.perform(get("/api/orders?" + filter + "&page=1"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string("X-Has-Next-Page", "false"))
+            .andExpect(jsonPath("$.[*].id").value(contains(otherOrder.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    public void getAllOrdersWithKeysetPagination() throws Exception {
+        // Initialize the database with two orders of the same quantity, the id breaks the tie
+        orderRepository.saveAndFlush(order);
+        Order otherOrder = createEntity(em);
+        orderRepository.saveAndFlush(otherOrder);
+        String filter = "id.in=" + order.getId() + "," + otherOrder.getId() + "&sort=quantity,desc&size=1";
+
+        // Get the first slice
+        String next = restOrderMockMvc.perform(get("/api/orders?" + filter + "&after="))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string(HttpHeaders.LINK, endsWith("; rel=\"next\"")))
+            .andExpect(jsonPath("$.[*].id").value(contains(otherOrder.getId().intValue())))
+            .andReturn().getResponse().getHeader(HttpHeaders.LINK);
+
+        // Get the last slice
+        restOrderMockMvc.perform(get(next.substring(1, next.indexOf('>'))))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.LINK))
+            .andExpect(jsonPath("$.[*].id").value(contains(order.getId().intValue())));
+    }
+
     @Test
     @Transactional
     public void getOrder() throws Exception {
@@ -446,6 +551,137 @@ public class OrderResourceIT {
         assertThat(orderList).hasSize(databaseSizeBeforeDelete - 1);
     }
 
+    @Test
+    @Transactional
+    public void cartTotalsAreMaintained() throws Exception {
+        Cart cart = order.getCart().closedAt(null);
+        Item item = order.getItem().price(2.5);
+        em.flush();
+
+        // Create the Order
+        restOrderMockMvc.perform(post("/api/orders")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(orderMapper.toDto(order))))
+            .andExpect(status().isCreated());
+        assertThat(cart.getLineCount()).isEqualTo(1);
+        assertThat(cart.getTotal()).isEqualTo(2.5);
+
+        // Update its quantity
+        Order createdOrder = orderRepository.findAll().get(orderRepository.findAll().size() - 1);
+        OrderDTO orderDTO = orderMapper.toDto(createdOrder);
+        orderDTO.setQuantity(UPDATED_QUANTITY);
+        restOrderMockMvc.perform(put("/api/orders")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(orderDTO)))
+            .andExpect(status().isOk());
+        assertThat(cart.getLineCount()).isEqualTo(1);
+        assertThat(cart.getTotal()).isEqualTo(5.0);
+
+        // Change the price of its item
+        ItemDTO itemDTO = itemMapper.toDto(item);
+        itemDTO.setPrice(3.0);
+        itemService.save(itemDTO);
+        assertThat(cart.getTotal()).isEqualTo(6.0);
+
+        // Delete it
+        restOrderMockMvc.perform(delete("/api/orders/{id}", createdOrder.getId())
+            .accept(TestUtil.APPLICATION_JSON_UTF8))
+            .andExpect(status().isNoContent());
+        assertThat(cart.getLineCount()).isZero();
+        assertThat(cart.getTotal()).isZero();
+    }
+
+    @Test
+    @Transactional
+    public void saveOrderLines() throws Exception {
+        Cart cart = order.getCart().closedAt(null);
+        Item item = order.getItem().price(2.5);
+        Item otherItem = ItemResourceIT.createEntity(em).title("BULK").price(4.0);
+        em.persist(otherItem);
+        orderRepository.saveAndFlush(order);
+        Order removedOrder = new Order().quantity(1).cart(cart).item(otherItem);
+        orderRepository.saveAndFlush(removedOrder);
+        cart.addToTotals(2, 6.5);
+
+        // Add two lines, update one and remove another
+        OrderDTO added = new OrderDTO();
+        added.setItemId(otherItem.getId());
+        added.setQuantity(3);
+        OrderDTO addedWithCart = new OrderDTO();
+        addedWithCart.setItemId(item.getId());
+        addedWithCart.setCartId(cart.getId());
+        addedWithCart.setQuantity(1);
+        OrderDTO updated = new OrderDTO();
+        updated.setId(order.getId());
+        updated.setItemId(otherItem.getId());
+        updated.setQuantity(UPDATED_QUANTITY);
+        OrderLinesDTO orderLinesDTO = new OrderLinesDTO();
+        orderLinesDTO.setLines(Arrays.asList(added, addedWithCart, updated));
+        orderLinesDTO.setRemovedIds(Collections.singleton(removedOrder.getId()));
+        restOrderMockMvc.perform(post("/api/carts/{cartId}/orders/bulk", cart.getId())
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(orderLinesDTO)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].cartId").value(contains(cart.getId().intValue(), cart.getId().intValue(), cart.getId().intValue())))
+            .andExpect(jsonPath("$.[*].itemTitle").value(contains("BULK", item.getTitle(), "BULK")))
+            .andExpect(jsonPath("$.[*].quantity").value(contains(3, 1, UPDATED_QUANTITY)))
+            .andExpect(jsonPath("$.[2].id").value(order.getId().intValue()));
+
+        // Validate the orders and the totals of the cart
+        em.flush();
+        assertThat(orderRepository.findById(removedOrder.getId())).isEmpty();
+        assertThat(orderRepository.findAll()).filteredOn(o -> o.getCart().getId().equals(cart.getId()))
+            .extracting(Order::getQuantity).containsExactlyInAnyOrder(3, 1, UPDATED_QUANTITY);
+        assertThat(cart.getLineCount()).isEqualTo(3);
+        assertThat(cart.getTotal()).isEqualTo(12.0 + 2.5 + 4.0 * UPDATED_QUANTITY);
+    }
+
+    @Test
+    @Transactional
+    public void saveOrderLinesIsAllOrNothing() throws Exception {
+        Cart cart = order.getCart().closedAt(null);
+        orderRepository.saveAndFlush(order);
+        int databaseSizeBefore = orderRepository.findAll().size();
+
+        // A valid line along a line of an unknown item
+        OrderDTO added = new OrderDTO();
+        added.setItemId(order.getItem().getId());
+        added.setQuantity(1);
+        OrderDTO unknownItem = new OrderDTO();
+        unknownItem.setItemId(Long.MAX_VALUE);
+        unknownItem.setQuantity(1);
+        OrderLinesDTO orderLinesDTO = new OrderLinesDTO();
+        orderLinesDTO.setLines(Arrays.asList(added, unknownItem));
+        restOrderMockMvc.perform(post("/api/carts/{cartId}/orders/bulk", cart.getId())
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(orderLinesDTO)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.itemnotfound"));
+
+        // A line of another cart
+        unknownItem.setItemId(order.getItem().getId());
+        unknownItem.setCartId(cart.getId() + 1);
+        restOrderMockMvc.perform(post("/api/carts/{cartId}/orders/bulk", cart.getId())
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(orderLinesDTO)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.cartmismatch"));
+
+        // The removal of an order twice
+        OrderDTO updated = orderMapper.toDto(order);
+        orderLinesDTO.setLines(Collections.singletonList(updated));
+        orderLinesDTO.setRemovedIds(Collections.singleton(order.getId()));
+        restOrderMockMvc.perform(post("/api/carts/{cartId}/orders/bulk", cart.getId())
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(orderLinesDTO)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.duplicateline"));
+
+        // Validate nothing changed
+        assertThat(orderRepository.findAll()).hasSize(databaseSizeBefore);
+        assertThat(cart.getLineCount()).isZero();
+    }
+
     @Test
     @Transactional
     public void equalsVerifier() throws Exception {
@@ -12,6 +12,7 @@ import reducer, {
   deleteEntity,
   getEntities,
   getEntity,
+  getFullEntity,
   updateEntity,
   reset
 } from 'app/entities/cart/cart.reducer';
@@ -224,6 +225,19 @@ describe('Entities reducer tests', () => {
       await store.dispatch(getEntity(42666)).then(() => expect(store.getActions()).toEqual(expectedActions));
     });
 
+    it('dispatches ACTION_TYPES.FETCH_CART actions for the full cart', async () => {
+      const expectedActions = [
+        {
+          type: REQUEST(ACTION_TYPES.FETCH_CART)
+        },
+        {
+          type: SUCCESS(ACTION_TYPES.FETCH_CART),
+          payload: resolvedObject
+        }
+      ];
+      await store.dispatch(getFullEntity(42666)).then(() => expect(store.getActions()).toEqual(expectedActions));
+    });
+
     it('dispatches ACTION_TYPES.CREATE_CART actions', async () => {
       const expectedActions = [
         {
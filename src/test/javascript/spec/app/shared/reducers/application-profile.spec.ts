@@ -11,7 +11,8 @@ describe('Profile reducer tests', () => {
   const initialState = {
     ribbonEnv: '',
     inProduction: true,
-    isSwaggerEnabled: false
+    isSwaggerEnabled: false,
+    thumbnailSizes: []
   };
   describe('Common tests', () => {
     it('should return the initial state', () => {
@@ -23,14 +24,16 @@ describe('Profile reducer tests', () => {
       const payload = {
         data: {
           'display-ribbon-on-profiles': 'awesome ribbon stuff',
-          activeProfiles: ['prod']
+          activeProfiles: ['prod'],
+          'thumbnail-sizes': [64, 256]
         }
       };
 
       expect(profile(undefined, { type: SUCCESS(ACTION_TYPES.GET_PROFILE), payload })).toEqual({
         ribbonEnv: 'awesome ribbon stuff',
         inProduction: true,
-        isSwaggerEnabled: false
+        isSwaggerEnabled: false,
+        thumbnailSizes: [64, 256]
       });
     });
 
@@ -45,7 +48,8 @@ describe('Profile reducer tests', () => {
       expect(profile(undefined, { type: SUCCESS(ACTION_TYPES.GET_PROFILE), payload })).toEqual({
         ribbonEnv: 'awesome ribbon stuff',
         inProduction: false,
-        isSwaggerEnabled: true
+        isSwaggerEnabled: true,
+        thumbnailSizes: []
       });
     });
   });
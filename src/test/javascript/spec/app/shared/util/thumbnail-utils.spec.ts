@@ -0,0 +1,21 @@
+import { getThumbnailUrl } from 'app/shared/util/thumbnail-utils';
+
+describe('Thumbnail utils', () => {
+  describe('getThumbnailUrl', () => {
+    const item = { imageHash: 'hash', imageUrl: 'api/items/1/image?v=hash' };
+
+    it('should return the smallest thumbnail at least as large as the size', () => {
+      expect(getThumbnailUrl(item, 64, [256, 64, 128])).toEqual('api/item-thumbnails/hash/64');
+      expect(getThumbnailUrl(item, 100, [256, 64, 128])).toEqual('api/item-thumbnails/hash/128');
+    });
+
+    it('should return the image without any thumbnail large enough', () => {
+      expect(getThumbnailUrl(item, 512, [64, 256])).toEqual(item.imageUrl);
+      expect(getThumbnailUrl(item, 64, [])).toEqual(item.imageUrl);
+    });
+
+    it('should return the image without its hash', () => {
+      expect(getThumbnailUrl({ imageUrl: 'image.png' }, 64, [64])).toEqual('image.png');
+    });
+  });
+});